@@ -0,0 +1,65 @@
+package com.chessgpt;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON analysis frame serialization: the Gson tree the broadcast used to build (copy of the lines,
+ * JsonObject, toJsonTree, toJson and the UTF-8 encoding done by the WebSocket send) against
+ * AnalysisJsonWriter, which writes the same bytes into a reused buffer
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalysisJsonBenchmark {
+
+    @Param({"1", "4"})
+    public int multiPv;
+
+    private final Gson gson = new Gson();
+    private final AnalysisJsonWriter writer = new AnalysisJsonWriter();
+    private Map<String, ChessEngine.AnalysisLine> lines;
+
+    @Setup
+    public void setUp() {
+        // Deep lines, as broadcast late in a search
+        EngineProcess process = Fixtures.replayProcess(null);
+        for (String line : Fixtures.engineOutput()) {
+            if (line.startsWith("info depth 20 ")) {
+                process.processEngineOutput(line);
+            }
+        }
+        lines = process.getAnalysisLines();
+        lines.keySet().removeIf(key -> Integer.parseInt(key) > multiPv);
+
+        ByteBuffer written = writer.encodeAnalysis(Fixtures.TRANSCRIPT_FEN, lines);
+        byte[] streamed = Arrays.copyOfRange(written.array(), written.position(), written.limit());
+        if (!Arrays.equals(streamed, gsonTree())) {
+            throw new IllegalStateException("AnalysisJsonWriter output differs from Gson");
+        }
+    }
+
+    @Benchmark
+    public byte[] gsonTree() {
+        JsonObject analysisResponse = new JsonObject();
+        analysisResponse.addProperty("fen", Fixtures.TRANSCRIPT_FEN);
+        analysisResponse.add("lines", gson.toJsonTree(new ArrayList<>(lines.values())));
+        return gson.toJson(analysisResponse).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer jsonWriter() {
+        return writer.encodeAnalysis(Fixtures.TRANSCRIPT_FEN, lines);
+    }
+}
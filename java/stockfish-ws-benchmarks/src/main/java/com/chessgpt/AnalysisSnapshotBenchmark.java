@@ -0,0 +1,41 @@
+package com.chessgpt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis line snapshots: EngineProcess.getAnalysisLines, taken once per info line
+ * and again whenever a search completes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalysisSnapshotBenchmark {
+
+    // Number of principal variations held by the process
+    @Param({"1", "4"})
+    public int multiPv;
+
+    private EngineProcess process;
+
+    @Setup
+    public void setUp() {
+        Log.setLevel(Log.Level.WARN);
+        process = Fixtures.replayProcess(null);
+        for (String line : Fixtures.engineOutput()) {
+            if (line.contains(" multipv ") && Integer.parseInt(line.split(" multipv ")[1].split(" ")[0]) <= multiPv) {
+                process.processEngineOutput(line);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, ChessEngine.AnalysisLine> getAnalysisLines() {
+        return process.getAnalysisLines();
+    }
+}
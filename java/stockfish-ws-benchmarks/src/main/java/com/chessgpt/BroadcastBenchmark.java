@@ -0,0 +1,52 @@
+package com.chessgpt;
+
+import org.java_websocket.handshake.HandshakeImpl1Client;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis broadcast: WebSocketClientManager.broadcastAnalysisToClient from session lookup to the
+ * connection's send, with Gson serialization for JSON sessions and BinaryAnalysisCodec for binary ones
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastBenchmark {
+
+    @Param({"json", "binary"})
+    public String protocol;
+
+    private WebSocketClientManager manager;
+    private StubWebSocket connection;
+    private String sessionId;
+    private Map<String, ChessEngine.AnalysisLine> lines;
+
+    @Setup
+    public void setUp() {
+        Log.setLevel(Log.Level.WARN);
+        manager = new WebSocketClientManager(null, null);
+        connection = new StubWebSocket("binary".equals(protocol) ? BinaryAnalysisCodec.SUBPROTOCOL : null);
+        manager.handleConnection(connection, new HandshakeImpl1Client());
+        sessionId = connection.<ClientSession>getAttachment().getId();
+
+        // Four deep lines, as broadcast late in a search
+        EngineProcess process = Fixtures.replayProcess(null);
+        for (String line : Fixtures.engineOutput()) {
+            if (line.startsWith("info depth 20 ")) {
+                process.processEngineOutput(line);
+            }
+        }
+        lines = process.getAnalysisLines();
+    }
+
+    @Benchmark
+    public long broadcastAnalysisToClient() {
+        manager.broadcastAnalysisToClient(sessionId, Fixtures.TRANSCRIPT_FEN, lines);
+        return connection.bytesSent;
+    }
+}
@@ -0,0 +1,64 @@
+package com.chessgpt;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine output path: EngineProcess.processEngineOutput replaying a multipv 4 transcript,
+ * i.e. parsing, the AnalysisLine, the snapshot and the listener call for every info line.
+ * Scores are per line.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineOutputBenchmark {
+
+    private static final String[] OUTPUT = Fixtures.engineOutput();
+
+    private EngineProcess process;
+    private Map<String, ChessEngine.AnalysisLine> lastLines;
+
+    @Setup
+    public void setUp() {
+        Log.setLevel(Log.Level.WARN);
+        process = Fixtures.replayProcess(new EngineProcess.EngineProcessListener() {
+            @Override
+            public void onProcessReady(EngineProcess engineProcess) {
+            }
+
+            @Override
+            public void onProcessError(EngineProcess engineProcess, String error) {
+            }
+
+            @Override
+            public void onProcessTerminated(EngineProcess engineProcess) {
+            }
+
+            @Override
+            public void onAnalysisUpdate(EngineProcess engineProcess, String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+                lastLines = lines;
+            }
+
+            @Override
+            public void onSearchComplete(EngineProcess engineProcess, String fen, String bestMove,
+                                         Map<String, ChessEngine.AnalysisLine> lines) {
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(512)
+    public void processAnalysisLine(Blackhole bh) {
+        // A fixed operation count keeps the per-line score independent of the transcript length
+        for (int i = 0; i < 512; i++) {
+            process.processEngineOutput(OUTPUT[i % OUTPUT.length]);
+        }
+        bh.consume(lastLines);
+    }
+}
@@ -0,0 +1,79 @@
+package com.chessgpt;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine stdout splitting: BufferedReader.readLine, which decodes and allocates every line,
+ * versus EngineOutputReader, which only makes Strings of the lines the engine process acts on.
+ * Replays the multipv 4 transcript 16 times; scores are per replay. Run with "-prof gc" for allocation.
+ * currmoveLines adds that many "currmove" lines after each info line, like Stockfish prints on a long search.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineOutputReaderBenchmark {
+
+    // Repeated so the per-stream buffers are a small share of the work
+    private static final int REPEATS = 16;
+
+    @Param({"0", "8"})
+    public int currmoveLines;
+
+    private byte[] output;
+
+    @Setup
+    public void setUp() {
+        Log.setLevel(Log.Level.WARN);
+        List<String> lines = Fixtures.lines(Fixtures.ENGINE_TRANSCRIPT);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < REPEATS; i++) {
+            for (String line : lines) {
+                sb.append(line).append('\n');
+                if (line.startsWith("info depth")) {
+                    for (int j = 1; j <= currmoveLines; j++) {
+                        sb.append("info depth 24 currmove e2e4 currmovenumber ").append(j).append('\n');
+                    }
+                }
+            }
+        }
+        output = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int bufferedReader(Blackhole bh) throws IOException {
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(output)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                bh.consume(line);
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public int engineOutputReader(Blackhole bh) throws IOException {
+        int lines = 0;
+        try (EngineOutputReader reader = new EngineOutputReader(new ByteArrayInputStream(output), "engine-1")) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                bh.consume(line);
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,88 @@
+package com.chessgpt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark fixtures
+ * Transcripts under src/main/resources/fixtures: engine output in Stockfish's multipv format,
+ * client messages as sent by the web app and games in PGN movetext, one per line
+ */
+final class Fixtures {
+
+    static final String ENGINE_TRANSCRIPT = "fixtures/multipv4.uci";
+    static final String CLIENT_MESSAGES = "fixtures/client-messages.jsonl";
+    static final String GAMES = "fixtures/games.txt";
+
+    // Position searched in the first part of the engine transcript
+    static final String TRANSCRIPT_FEN = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Non-empty lines of a fixture
+     */
+    static List<String> lines(String resource) {
+        InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Missing fixture " + resource);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    /**
+     * Engine output lines of the transcript without the "bestmove" lines, so one search can replay all of them
+     */
+    static String[] engineOutput() {
+        List<String> output = new ArrayList<>();
+        for (String line : lines(ENGINE_TRANSCRIPT)) {
+            if (!line.startsWith("bestmove")) {
+                output.add(line);
+            }
+        }
+        return output.toArray(new String[0]);
+    }
+
+    /**
+     * Engine process without an OS process, fed by replaying transcript lines
+     */
+    static EngineProcess replayProcess(EngineProcess.EngineProcessListener listener) {
+        EngineProcess process = new EngineProcess(1, new String[]{"stockfish"}, 4, null, listener);
+        process.search(TRANSCRIPT_FEN, SearchLimits.INFINITE);
+        return process;
+    }
+
+    /**
+     * Positions of every fixture game, from the start position to the last move
+     */
+    static List<List<String>> gamePositions() {
+        List<List<String>> games = new ArrayList<>();
+        for (String line : lines(GAMES)) {
+            GameRecord game = GameRecord.fromPgn(line);
+            List<String> fens = new ArrayList<>(game.getPlyCount() + 1);
+            for (int ply = 0; ply <= game.getPlyCount(); ply++) {
+                fens.add(game.getFen(ply));
+            }
+            games.add(fens);
+        }
+        return games;
+    }
+}
@@ -0,0 +1,97 @@
+package com.chessgpt;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * UCI info line parsing: legacy regex path versus UciInfoParser
+ * Run with "-prof gc" to compare allocation per line
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InfoLineParserBenchmark {
+
+    // Pattern used by ChessEngine before the single-pass parser
+    private static final Pattern INFO_PATTERN = Pattern.compile(
+        "info.*?depth (\\d+).*?seldepth (\\d+).*?multipv (\\d+).*?score (cp|mate) (-?\\d+).*?nodes (\\d+).*?pv (.+)"
+    );
+
+    private static final String FEN = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+
+    private static final String[] LINES = {
+        "info depth 1 seldepth 1 multipv 1 score cp 35 nodes 20 nps 20000 tbhits 0 time 1 pv d2d4",
+        "info depth 12 seldepth 16 multipv 2 score cp -18 nodes 48211 nps 1205275 hashfull 14 tbhits 0 time 40 pv f1b5 a7a6 b5a4 g8f6 e1g1 f8e7 f1e1 b7b5 a4b3 d7d6",
+        "info depth 20 seldepth 28 multipv 1 score cp 41 lowerbound nodes 2318844 nps 1501843 hashfull 512 tbhits 0 time 1544 pv f1b5",
+        "info depth 24 seldepth 33 multipv 3 score cp 12 nodes 9911231 nps 1602043 hashfull 871 tbhits 0 time 6187 pv b1c3 g8f6 d2d4 e5d4 f3d4 f8b4 d4c6 b7c6 f1d3 d7d5 e4d5 c6d5 e1g1 e8g8",
+        "info depth 31 seldepth 44 multipv 4 score mate -7 nodes 81249012 nps 1700343 hashfull 999 tbhits 0 time 47783 pv e4e5 d8h4 g2g3 h4e4 d1e2 e4h1 e2e3 h1g1",
+        "info depth 18 currmove f1b5 currmovenumber 1"
+    };
+
+    private final UciInfo info = new UciInfo();
+
+    @Benchmark
+    public void regex(Blackhole bh) {
+        for (String line : LINES) {
+            Matcher matcher = INFO_PATTERN.matcher(line);
+            if (matcher.find()) {
+                int depthValue = Integer.parseInt(matcher.group(1));
+                String pvNum = matcher.group(3);
+                String scoreType = matcher.group(4);
+                String scoreValue = matcher.group(5);
+                String[] moveList = matcher.group(7).trim().split(" ");
+                boolean isWhiteToMove = "w".equals(FEN.split(" ")[1]);
+
+                String score;
+                if ("mate".equals(scoreType)) {
+                    int mateValue = Integer.parseInt(scoreValue);
+                    score = "#" + (isWhiteToMove ? mateValue : -mateValue);
+                } else {
+                    double numericScore = Integer.parseInt(scoreValue) / 100.0;
+                    score = String.format("%.2f", isWhiteToMove ? numericScore : -numericScore);
+                }
+
+                ChessEngine.AnalysisLine analysisLine = new ChessEngine.AnalysisLine();
+                analysisLine.score = score;
+                analysisLine.depth = depthValue;
+                analysisLine.nodes = Long.parseLong(matcher.group(6));
+                analysisLine.uciMoves = String.join(" ", moveList);
+                analysisLine.fen = FEN;
+                bh.consume(pvNum);
+                bh.consume(analysisLine);
+            }
+        }
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        for (String line : LINES) {
+            if (UciInfoParser.parse(line, info) && info.isAnalysisLine()) {
+                ChessEngine.AnalysisLine analysisLine = new ChessEngine.AnalysisLine();
+                analysisLine.score = EngineProcess.formatScore(info.scoreType, info.scoreValue, true);
+                analysisLine.depth = info.depth;
+                analysisLine.nodes = info.nodes;
+                analysisLine.uciMoves = info.pv.toString();
+                analysisLine.fen = FEN;
+                bh.consume(info.multipv);
+                bh.consume(analysisLine);
+            }
+        }
+    }
+
+    @Benchmark
+    public void singlePassFieldsOnly(Blackhole bh) {
+        // Parse without materialising an AnalysisLine, as for discarded lines
+        for (String line : LINES) {
+            bh.consume(UciInfoParser.parse(line, info));
+            bh.consume(info.depth);
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package com.chessgpt;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.protocols.Protocol;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WebSocket Load Generator
+ * Soak test against a running server: opens many Java-WebSocket clients, replays scripted analyze/stop
+ * sequences and writes a JSON report with per-client frame rates, first-frame latency percentiles,
+ * dropped and rejected connections and the server's heap/GC samples scraped from its /metrics endpoint.
+ *
+ *   java -cp target/benchmarks.jar com.chessgpt.LoadGenerator
+ *
+ * Options are -Dchessgpt.load.* properties:
+ *   url                 server to load (ws://localhost:8080)
+ *   clients             concurrent connections (50)
+ *   rampUpSeconds       time over which the connections are opened (10)
+ *   durationSeconds     length of the run after the ramp-up (60)
+ *   scenario            "game" steps each client through a fixture game at human speed,
+ *                       "storm" sends a new analyze every stormIntervalMillis with a stop in between
+ *   moveIntervalMillis  average think time per move in the game scenario, jittered by +-50% (3000)
+ *   stormIntervalMillis time between requests in the storm scenario (50)
+ *   depth               depth limit of every analyze, 0 for infinite analysis (0)
+ *   binary              negotiate the binary analysis subprotocol (false)
+ *   slowClients         fraction of clients that read slowly, e.g. 0.1 (0)
+ *   slowReadMillis      time a slow client spends on each received frame (50)
+ *   metricsUrl          server metrics endpoint, empty to skip server samples (http://127.0.0.1:9464/metrics)
+ *   sampleSeconds       interval of progress lines and server samples (10)
+ *   report              path of the JSON report (load-report.json)
+ *   seed                seed of the think-time jitter and the storm positions (1)
+ */
+public class LoadGenerator {
+
+    private static final String PROPERTY_PREFIX = "chessgpt.load.";
+    private static final String DEFAULT_URL = "ws://localhost:8080";
+    private static final String DEFAULT_METRICS_URL = "http://127.0.0.1:9464/metrics";
+    private static final String DEFAULT_REPORT = "load-report.json";
+    private static final int DEFAULT_CLIENTS = 50;
+    private static final long DEFAULT_RAMP_UP_SECONDS = 10;
+    private static final long DEFAULT_DURATION_SECONDS = 60;
+    private static final long DEFAULT_MOVE_INTERVAL_MILLIS = 3000;
+    private static final long DEFAULT_STORM_INTERVAL_MILLIS = 50;
+    private static final long DEFAULT_SLOW_READ_MILLIS = 50;
+    private static final long DEFAULT_SAMPLE_SECONDS = 10;
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+    // Close code of a connection refused because the server is at its session limit
+    private static final int CLOSE_TRY_AGAIN_LATER = 1013;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final URI url = URI.create(System.getProperty(PROPERTY_PREFIX + "url", DEFAULT_URL));
+    private final int clientCount = Integer.getInteger(PROPERTY_PREFIX + "clients", DEFAULT_CLIENTS);
+    private final long rampUpSeconds = Long.getLong(PROPERTY_PREFIX + "rampUpSeconds", DEFAULT_RAMP_UP_SECONDS);
+    private final long durationSeconds = Long.getLong(PROPERTY_PREFIX + "durationSeconds", DEFAULT_DURATION_SECONDS);
+    private final String scenario = System.getProperty(PROPERTY_PREFIX + "scenario", "game");
+    private final long moveIntervalMillis = Long.getLong(PROPERTY_PREFIX + "moveIntervalMillis", DEFAULT_MOVE_INTERVAL_MILLIS);
+    private final long stormIntervalMillis = Long.getLong(PROPERTY_PREFIX + "stormIntervalMillis", DEFAULT_STORM_INTERVAL_MILLIS);
+    private final int depth = Integer.getInteger(PROPERTY_PREFIX + "depth", 0);
+    private final boolean binary = Boolean.getBoolean(PROPERTY_PREFIX + "binary");
+    private final double slowClients = Double.parseDouble(System.getProperty(PROPERTY_PREFIX + "slowClients", "0"));
+    private final long slowReadMillis = Long.getLong(PROPERTY_PREFIX + "slowReadMillis", DEFAULT_SLOW_READ_MILLIS);
+    private final String metricsUrl = System.getProperty(PROPERTY_PREFIX + "metricsUrl", DEFAULT_METRICS_URL);
+    private final long sampleSeconds = Long.getLong(PROPERTY_PREFIX + "sampleSeconds", DEFAULT_SAMPLE_SECONDS);
+    private final Path reportPath = Paths.get(System.getProperty(PROPERTY_PREFIX + "report", DEFAULT_REPORT));
+    private final long seed = Long.getLong(PROPERTY_PREFIX + "seed", 1);
+
+    private final List<List<String>> games = Fixtures.gamePositions();
+    private final List<String> allPositions = new ArrayList<>();
+    private final List<Client> clients = Collections.synchronizedList(new ArrayList<>());
+    private final LatencyHistogram firstFrameLatency = new LatencyHistogram();
+    private final List<JsonObject> serverSamples = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong connectFailures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+        Math.max(2, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+            Thread thread = new Thread(runnable, "LoadGenerator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean closing = false;
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator().run();
+    }
+
+    private void run() throws InterruptedException {
+        if (!scenario.equals("game") && !scenario.equals("storm")) {
+            throw new IllegalArgumentException("Unknown scenario " + scenario + ", expected game or storm");
+        }
+        for (List<String> game : games) {
+            allPositions.addAll(game);
+        }
+        Log.info("🚦 Load test: " + clientCount + " " + (binary ? "binary" : "JSON") + " clients against " + url
+            + ", scenario " + scenario + ", ramp-up " + rampUpSeconds + "s, duration " + durationSeconds + "s");
+        Runtime.getRuntime().addShutdownHook(new Thread(this::finish, "LoadGeneratorShutdown"));
+
+        scheduler.scheduleAtFixedRate(this::sample, sampleSeconds, sampleSeconds, TimeUnit.SECONDS);
+
+        // Open the connections evenly over the ramp-up
+        long spacingNanos = clientCount > 0 ? TimeUnit.SECONDS.toNanos(rampUpSeconds) / clientCount : 0;
+        long nextConnectNanos = System.nanoTime();
+        for (int id = 1; id <= clientCount && !closing; id++) {
+            LockSupport.parkNanos(nextConnectNanos - System.nanoTime());
+            nextConnectNanos += spacingNanos;
+            connect(new Client(id, id <= Math.round(clientCount * slowClients)));
+        }
+        Log.info("✅ Ramp-up done: " + connectedCount() + "/" + clientCount + " clients connected");
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        finish();
+        System.exit(connectFailures.get() < clientCount ? 0 : 1);
+    }
+
+    private void connect(Client client) {
+        clients.add(client);
+        try {
+            if (client.connectBlocking(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                client.connectedNanos = System.nanoTime();
+                client.scheduleNext(0);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (client.closeCode != CLOSE_TRY_AGAIN_LATER) {
+            connectFailures.incrementAndGet();
+            Log.warn("⚠️  Client " + client.id + " could not connect");
+        }
+    }
+
+    /**
+     * One connection replaying a script; latency is measured from sending an analyze
+     * to the first analysis frame of that position (for binary clients: the first frame after it)
+     */
+    private final class Client extends WebSocketClient {
+        final int id;
+        final boolean slow;
+        final Random random;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong frames = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong done = new AtomicLong();
+        final AtomicLong busy = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        volatile long connectedNanos;
+        volatile long closedNanos;
+        volatile int closeCode = -1;
+        volatile boolean dropped = false;
+        // Expected start of the first analysis frame of the last request, null once it arrived
+        volatile String pendingPrefix;
+        volatile long pendingSentNanos;
+        int game;
+        int ply;
+
+        Client(int id, boolean slow) {
+            super(url, binary
+                ? new Draft_6455(Collections.emptyList(), Collections.singletonList(new Protocol(BinaryAnalysisCodec.SUBPROTOCOL)))
+                : new Draft_6455());
+            this.id = id;
+            this.slow = slow;
+            this.random = new Random(seed * 31 + id);
+            // Spread the clients over the games and moves so they do not share positions
+            this.game = id % games.size();
+            this.ply = (id * 7) % games.get(game).size();
+        }
+
+        void scheduleNext(long delayMillis) {
+            if (!closing && isOpen()) {
+                scheduler.schedule(this::step, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void step() {
+            if (closing || !isOpen()) {
+                return;
+            }
+            try {
+                if (scenario.equals("storm")) {
+                    if (requests.get() % 2 == 1) {
+                        send("{\"type\":\"stop\"}");
+                    }
+                    analyze(allPositions.get(random.nextInt(allPositions.size())));
+                    scheduleNext(stormIntervalMillis);
+                    return;
+                }
+                List<String> positions = games.get(game);
+                if (ply >= positions.size()) {
+                    // Game over: stop, then start the next game after a pause
+                    send("{\"type\":\"stop\"}");
+                    game = (game + 1) % games.size();
+                    ply = 0;
+                } else {
+                    analyze(positions.get(ply++));
+                }
+                scheduleNext(moveIntervalMillis / 2 + (long) (random.nextDouble() * moveIntervalMillis));
+            } catch (RuntimeException e) {
+                // The connection closed between the check and the send
+                Log.debug("⚠️  Client " + id + " could not send: " + e.getMessage());
+            }
+        }
+
+        private void analyze(String fen) {
+            pendingSentNanos = System.nanoTime();
+            pendingPrefix = binary ? "" : "{\"fen\":\"" + fen + "\"";
+            requests.incrementAndGet();
+            send("{\"type\":\"analyze\",\"fen\":\"" + fen + "\"" + (depth > 0 ? ",\"depth\":" + depth : "") + "}");
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            received(message.length());
+            String prefix = pendingPrefix;
+            if (prefix != null && !binary && message.startsWith(prefix)) {
+                recordLatency();
+            } else if (message.startsWith("{\"type\":\"done\"")) {
+                done.incrementAndGet();
+            } else if (message.startsWith("{\"type\":\"busy\"")) {
+                busy.incrementAndGet();
+            } else if (message.startsWith("{\"type\":\"error\"")) {
+                errors.incrementAndGet();
+            }
+            readSlowly();
+        }
+
+        @Override
+        public void onMessage(ByteBuffer message) {
+            received(message.remaining());
+            if (pendingPrefix != null) {
+                recordLatency();
+            }
+            readSlowly();
+        }
+
+        private void received(int size) {
+            frames.incrementAndGet();
+            bytes.addAndGet(size);
+        }
+
+        private void recordLatency() {
+            long nanos = System.nanoTime() - pendingSentNanos;
+            pendingPrefix = null;
+            latency.record(nanos);
+            firstFrameLatency.record(nanos);
+        }
+
+        // A slow client holds up its read thread, so the server's send queue for it grows
+        private void readSlowly() {
+            if (slow) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(slowReadMillis));
+            }
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            closedNanos = System.nanoTime();
+            closeCode = code;
+            if (code == CLOSE_TRY_AGAIN_LATER) {
+                rejected.incrementAndGet();
+                Log.warn("⚠️  Client " + id + " rejected: " + reason);
+            } else if (!closing) {
+                dropped = true;
+                LoadGenerator.this.dropped.incrementAndGet();
+                Log.warn("⚠️  Client " + id + " dropped: code " + code + (reason.isEmpty() ? "" : ", " + reason));
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.incrementAndGet();
+            Log.debug("⚠️  Client " + id + " error: " + e.getMessage());
+        }
+
+        double connectedSeconds() {
+            if (connectedNanos == 0) {
+                return 0;
+            }
+            long end = closedNanos != 0 ? closedNanos : System.nanoTime();
+            return (end - connectedNanos) / 1e9;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("id", id);
+            json.addProperty("slow", slow);
+            json.addProperty("connected", connectedNanos != 0);
+            json.addProperty("dropped", dropped);
+            json.addProperty("rejected", closeCode == CLOSE_TRY_AGAIN_LATER);
+            json.addProperty("closeCode", closeCode);
+            json.addProperty("connectedSeconds", round(connectedSeconds()));
+            json.addProperty("requests", requests.get());
+            json.addProperty("frames", frames.get());
+            json.addProperty("bytes", bytes.get());
+            json.addProperty("framesPerSecond", round(rate(frames.get(), connectedSeconds())));
+            json.addProperty("done", done.get());
+            json.addProperty("busy", busy.get());
+            json.addProperty("errors", errors.get());
+            json.add("firstFrameLatencyMillis", latencyJson(latency));
+            return json;
+        }
+    }
+
+    /**
+     * Log progress and scrape the server's heap, GC and session metrics
+     */
+    private void sample() {
+        long frames = 0;
+        long requests = 0;
+        for (Client client : snapshot()) {
+            frames += client.frames.get();
+            requests += client.requests.get();
+        }
+        JsonObject server = scrapeServer();
+        Log.info("📈 t=" + elapsedSeconds() + "s clients=" + connectedCount() + "/" + clientCount
+            + " dropped=" + dropped.get() + " rejected=" + rejected.get() + " requests=" + requests + " frames=" + frames
+            + " first frame " + firstFrameLatency.getSummary()
+            + (server != null ? " server heap=" + (server.get("heapUsedBytes").getAsLong() >> 20) + "MB"
+                + " gc=" + server.get("gcCollections").getAsLong() : ""));
+    }
+
+    private JsonObject scrapeServer() {
+        if (metricsUrl.isEmpty()) {
+            return null;
+        }
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(metricsUrl))
+                .timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                Log.warn("⚠️  Metrics endpoint answered " + response.statusCode());
+                return null;
+            }
+            String body = response.body();
+            JsonObject sample = new JsonObject();
+            sample.addProperty("elapsedSeconds", elapsedSeconds());
+            sample.addProperty("heapUsedBytes", (long) sum(body, "jvm_memory_bytes_used", "area=\"heap\""));
+            sample.addProperty("heapCommittedBytes", (long) sum(body, "jvm_memory_bytes_committed", "area=\"heap\""));
+            sample.addProperty("gcCollections", (long) sum(body, "jvm_gc_collections_total", null));
+            sample.addProperty("gcSeconds", round(sum(body, "jvm_gc_collection_seconds_total", null)));
+            sample.addProperty("threads", (long) sum(body, "jvm_threads_current", null));
+            sample.addProperty("sessions", (long) sum(body, "chessgpt_ws_sessions", null));
+            sample.addProperty("sendQueueFrames", (long) sum(body, "chessgpt_ws_send_queue_frames", null));
+            sample.addProperty("framesSent", (long) sum(body, "chessgpt_ws_frames_sent_total", null));
+            serverSamples.add(sample);
+            return sample;
+        } catch (IOException e) {
+            Log.warn("⚠️  Could not scrape " + metricsUrl + ": " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Sum of the samples of a metric family in the Prometheus text format, optionally only those with a label
+     */
+    private static double sum(String body, String name, String label) {
+        double total = 0;
+        for (String line : body.split("\n")) {
+            if (!line.startsWith(name) || line.length() <= name.length()) {
+                continue;
+            }
+            char next = line.charAt(name.length());
+            if ((next != '{' && next != ' ') || (label != null && !line.contains(label))) {
+                continue;
+            }
+            try {
+                total += Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+            } catch (NumberFormatException e) {
+                // NaN-like values are skipped
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Close every client, take a last server sample and write the report; runs once
+     */
+    private void finish() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        closing = true;
+        double runSeconds = (System.nanoTime() - startNanos) / 1e9;
+        List<Client> all = snapshot();
+        for (Client client : all) {
+            if (client.isOpen()) {
+                client.close();
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT_SECONDS);
+        for (Client client : all) {
+            while (!client.isClosed() && client.connectedNanos != 0 && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+        scrapeServer();
+        scheduler.shutdownNow();
+
+        JsonObject report = buildReport(all, runSeconds);
+        try (Writer writer = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+            Log.info("📝 Load report written to " + reportPath.toAbsolutePath());
+        } catch (IOException e) {
+            Log.error("❌ Could not write load report: " + e.getMessage());
+        }
+        JsonObject totals = report.getAsJsonObject("totals");
+        Log.info("📊 Load test finished: " + totals.get("connected") + "/" + clientCount + " connected, "
+            + dropped.get() + " dropped, " + rejected.get() + " rejected, " + connectFailures.get() + " connect failures, "
+            + totals.get("frames") + " frames (" + totals.get("framesPerSecond") + "/s), first frame "
+            + firstFrameLatency.getSummary());
+        Log.flush();
+    }
+
+    private JsonObject buildReport(List<Client> all, double runSeconds) {
+        JsonObject config = new JsonObject();
+        config.addProperty("url", url.toString());
+        config.addProperty("clients", clientCount);
+        config.addProperty("scenario", scenario);
+        config.addProperty("rampUpSeconds", rampUpSeconds);
+        config.addProperty("durationSeconds", durationSeconds);
+        config.addProperty("moveIntervalMillis", moveIntervalMillis);
+        config.addProperty("stormIntervalMillis", stormIntervalMillis);
+        config.addProperty("depth", depth);
+        config.addProperty("binary", binary);
+        config.addProperty("slowClients", slowClients);
+        config.addProperty("slowReadMillis", slowReadMillis);
+        config.addProperty("seed", seed);
+
+        long connected = 0;
+        long frames = 0;
+        long bytes = 0;
+        long requests = 0;
+        long done = 0;
+        long busy = 0;
+        long errors = 0;
+        JsonArray clientReports = new JsonArray();
+        for (Client client : all) {
+            connected += client.connectedNanos != 0 ? 1 : 0;
+            frames += client.frames.get();
+            bytes += client.bytes.get();
+            requests += client.requests.get();
+            done += client.done.get();
+            busy += client.busy.get();
+            errors += client.errors.get();
+            clientReports.add(client.toJson());
+        }
+        JsonObject totals = new JsonObject();
+        totals.addProperty("connected", connected);
+        totals.addProperty("connectFailures", connectFailures.get());
+        totals.addProperty("dropped", dropped.get());
+        totals.addProperty("rejected", rejected.get());
+        totals.addProperty("requests", requests);
+        totals.addProperty("frames", frames);
+        totals.addProperty("bytes", bytes);
+        totals.addProperty("framesPerSecond", round(rate(frames, runSeconds)));
+        totals.addProperty("done", done);
+        totals.addProperty("busy", busy);
+        totals.addProperty("errors", errors);
+
+        JsonArray samples = new JsonArray();
+        synchronized (serverSamples) {
+            serverSamples.forEach(samples::add);
+        }
+
+        JsonObject report = new JsonObject();
+        report.addProperty("startedAt", startedAt.toString());
+        report.addProperty("runSeconds", round(runSeconds));
+        report.add("config", config);
+        report.add("totals", totals);
+        report.add("firstFrameLatencyMillis", latencyJson(firstFrameLatency));
+        report.add("server", samples);
+        report.add("clients", clientReports);
+        return report;
+    }
+
+    private static JsonObject latencyJson(LatencyHistogram histogram) {
+        long[] values = histogram.getPercentilesNanos(PERCENTILES);
+        JsonObject json = new JsonObject();
+        json.addProperty("count", histogram.getCount());
+        json.addProperty("p50", round(values[0] / 1e6));
+        json.addProperty("p90", round(values[1] / 1e6));
+        json.addProperty("p99", round(values[2] / 1e6));
+        json.addProperty("p999", round(values[3] / 1e6));
+        json.addProperty("max", round(histogram.getMaxNanos() / 1e6));
+        return json;
+    }
+
+    private List<Client> snapshot() {
+        synchronized (clients) {
+            return new ArrayList<>(clients);
+        }
+    }
+
+    private long connectedCount() {
+        long count = 0;
+        for (Client client : snapshot()) {
+            count += client.isOpen() ? 1 : 0;
+        }
+        return count;
+    }
+
+    private long elapsedSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+    }
+
+    private static double rate(long count, double seconds) {
+        return seconds > 0 ? count / seconds : 0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
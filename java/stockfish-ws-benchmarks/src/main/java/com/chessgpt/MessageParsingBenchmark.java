@@ -0,0 +1,103 @@
+package com.chessgpt;
+
+import org.java_websocket.handshake.HandshakeImpl1Client;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client message handling: WebSocketClientManager.handleMessage parsing and validating each recorded
+ * message type up to the listener call
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageParsingBenchmark {
+
+    @Param({"analyze", "stop", "analyzeBatch", "analyzeGame"})
+    public String type;
+
+    private WebSocketClientManager manager;
+    private StubWebSocket connection;
+    private String message;
+    private Object lastRequest;
+
+    @Setup
+    public void setUp() {
+        Log.setLevel(Log.Level.WARN);
+        manager = new WebSocketClientManager(new RecordingListener(), null);
+        connection = new StubWebSocket(null);
+        manager.handleConnection(connection, new HandshakeImpl1Client());
+        for (String line : Fixtures.lines(Fixtures.CLIENT_MESSAGES)) {
+            if (line.contains("\"type\":\"" + type + "\"")) {
+                message = line;
+                break;
+            }
+        }
+        if (message == null) {
+            throw new IllegalStateException("No " + type + " message in " + Fixtures.CLIENT_MESSAGES);
+        }
+    }
+
+    @Benchmark
+    public Object processMessage() {
+        manager.handleMessage(connection, message);
+        return lastRequest;
+    }
+
+    /**
+     * Keeps the parsed request so the parsing cannot be optimised away
+     */
+    private final class RecordingListener implements WebSocketClientManager.WebSocketClientListener {
+        @Override
+        public void onAnalyzeRequest(ClientSession session, String fen, SearchLimits limits) {
+            lastRequest = limits;
+        }
+
+        @Override
+        public void onStopRequest(ClientSession session) {
+            lastRequest = session;
+        }
+
+        @Override
+        public void onAnalyzeBatchRequest(ClientSession session, String batchId, List<String> fens, SearchLimits limits) {
+            lastRequest = fens;
+        }
+
+        @Override
+        public void onCancelBatchRequest(ClientSession session, String batchId) {
+            lastRequest = batchId;
+        }
+
+        @Override
+        public void onAnalyzeGameRequest(ClientSession session, String gameId, GameRecord game, SearchLimits limits) {
+            lastRequest = game;
+        }
+
+        @Override
+        public void onCancelGameRequest(ClientSession session, String gameId) {
+            lastRequest = gameId;
+        }
+
+        @Override
+        public void onClientConnected(ClientSession session) {
+        }
+
+        @Override
+        public void onClientDisconnected(ClientSession session) {
+        }
+
+        @Override
+        public void onClientError(String error) {
+            lastRequest = error;
+        }
+
+        @Override
+        public void onServerStarted() {
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.chessgpt;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.enums.ReadyState;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
+
+import javax.net.ssl.SSLSession;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Open connection that discards what is sent, so the server send path runs without a socket
+ */
+final class StubWebSocket implements WebSocket {
+
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 50000);
+
+    private final IProtocol protocol;
+    private Object attachment;
+    long framesSent;
+    long bytesSent;
+
+    StubWebSocket(String subprotocol) {
+        this.protocol = subprotocol != null ? new Protocol(subprotocol) : null;
+    }
+
+    @Override
+    public void send(String text) {
+        framesSent++;
+        bytesSent += text.length();
+    }
+
+    @Override
+    public void send(ByteBuffer bytes) {
+        framesSent++;
+        bytesSent += bytes.remaining();
+    }
+
+    @Override
+    public void send(byte[] bytes) {
+        framesSent++;
+        bytesSent += bytes.length;
+    }
+
+    @Override
+    public void close(int code, String message) {
+    }
+
+    @Override
+    public void close(int code) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void closeConnection(int code, String message) {
+    }
+
+    @Override
+    public void sendFrame(Framedata framedata) {
+        framesSent++;
+        bytesSent += framedata.getPayloadData().remaining();
+    }
+
+    @Override
+    public void sendFrame(Collection<Framedata> frames) {
+    }
+
+    @Override
+    public void sendPing() {
+    }
+
+    @Override
+    public void sendFragmentedFrame(Opcode op, ByteBuffer buffer, boolean fin) {
+    }
+
+    @Override
+    public boolean hasBufferedData() {
+        return false;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress() {
+        return ADDRESS;
+    }
+
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return ADDRESS;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public boolean isClosing() {
+        return false;
+    }
+
+    @Override
+    public boolean isFlushAndClose() {
+        return false;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+
+    @Override
+    public Draft getDraft() {
+        return null;
+    }
+
+    @Override
+    public ReadyState getReadyState() {
+        return ReadyState.OPEN;
+    }
+
+    @Override
+    public String getResourceDescriptor() {
+        return "/";
+    }
+
+    @Override
+    public <T> void setAttachment(T attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getAttachment() {
+        return (T) attachment;
+    }
+
+    @Override
+    public boolean hasSSLSupport() {
+        return false;
+    }
+
+    @Override
+    public SSLSession getSSLSession() {
+        throw new IllegalArgumentException("No SSL");
+    }
+
+    @Override
+    public IProtocol getProtocol() {
+        return protocol;
+    }
+}
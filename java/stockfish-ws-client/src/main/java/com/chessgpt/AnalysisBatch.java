@@ -0,0 +1,166 @@
+package com.chessgpt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch Analysis State
+ * Tracks which positions of a batch are pending, running on an engine process or completed
+ */
+public class AnalysisBatch {
+
+    private final String id;
+    private final String sessionId;
+    private final List<String> fens;
+    private final SearchLimits limits;
+
+    private final Deque<Integer> pending = new ArrayDeque<>();
+    private final Map<EngineProcess, Integer> running = new HashMap<>();
+    private int completed = 0;
+    private boolean cancelled = false;
+    private boolean finished = false;
+    private long progressReportedAtNanos = 0;
+
+    public AnalysisBatch(String id, String sessionId, List<String> fens, SearchLimits limits) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.fens = new ArrayList<>(fens);
+        this.limits = limits;
+        for (int i = 0; i < this.fens.size(); i++) {
+            pending.addLast(i);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    public String getFen(int index) {
+        return fens.get(index);
+    }
+
+    public int getTotal() {
+        return fens.size();
+    }
+
+    public synchronized int getCompleted() {
+        return completed;
+    }
+
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+
+    /**
+     * Positions still waiting for an engine process
+     */
+    public synchronized int getPendingCount() {
+        return cancelled ? 0 : pending.size();
+    }
+
+    public synchronized boolean hasPending() {
+        return !cancelled && !pending.isEmpty();
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Take the next position to analyze, or -1 when none is left
+     */
+    synchronized int pollPending() {
+        if (cancelled || pending.isEmpty()) {
+            return -1;
+        }
+        return pending.pollFirst();
+    }
+
+    /**
+     * Put a position back at the front of the queue, e.g. when no process was free for it
+     */
+    synchronized void requeue(int index) {
+        if (!cancelled) {
+            pending.addFirst(index);
+        }
+    }
+
+    /**
+     * Record that a process is searching a position; returns false if the batch was cancelled meanwhile
+     */
+    synchronized boolean start(EngineProcess process, int index) {
+        if (cancelled) {
+            return false;
+        }
+        running.put(process, index);
+        return true;
+    }
+
+    /**
+     * Remove a process from the batch and return the position it was searching, or -1
+     */
+    synchronized int detach(EngineProcess process) {
+        Integer index = running.remove(process);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Count a completed position and return the new total
+     */
+    synchronized int complete() {
+        return ++completed;
+    }
+
+    /**
+     * Mark the batch finished once every position completed; true only for the first caller
+     */
+    synchronized boolean markFinishedIfDone() {
+        if (finished || cancelled || completed < fens.size()) {
+            return false;
+        }
+        finished = true;
+        return true;
+    }
+
+    /**
+     * Check if a progress report is due, at most one per interval
+     */
+    synchronized boolean shouldReportProgress(long intervalNanos) {
+        long now = System.nanoTime();
+        if (progressReportedAtNanos != 0 && now - progressReportedAtNanos < intervalNanos) {
+            return false;
+        }
+        progressReportedAtNanos = now;
+        return true;
+    }
+
+    /**
+     * Cancel the batch and return the processes that were searching for it
+     */
+    synchronized List<EngineProcess> cancel() {
+        if (cancelled || finished) {
+            return new ArrayList<>();
+        }
+        cancelled = true;
+        pending.clear();
+        List<EngineProcess> processes = new ArrayList<>(running.keySet());
+        running.clear();
+        return processes;
+    }
+}
@@ -0,0 +1,164 @@
+package com.chessgpt;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of analysis lines per position
+ * Eviction picks the shallowest entry among the least recently used ones
+ */
+public class AnalysisCache {
+
+    // Number of least recently used entries considered when evicting
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Statistics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public AnalysisCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Cached analysis of a single position
+     */
+    public static class Entry {
+        public final int depth;
+        public final Map<String, ChessEngine.AnalysisLine> lines;
+
+        Entry(int depth, Map<String, ChessEngine.AnalysisLine> lines) {
+            this.depth = depth;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Look up the analysis of a position.
+     * Returned lines carry the requested FEN so clients can match them against their board.
+     */
+    public synchronized Entry get(String fen) {
+        Entry entry = entries.get(normalize(fen));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new Entry(entry.depth, copyLines(entry.lines, fen));
+    }
+
+    /**
+     * Store analysis lines if they are at least as deep as what is cached
+     */
+    public synchronized void put(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        int depth = completedDepth(lines);
+        String key = normalize(fen);
+
+        Entry existing = entries.get(key);
+        if (existing != null && existing.depth > depth) {
+            return;
+        }
+        if (existing == null && entries.size() >= capacity) {
+            evict();
+        }
+        entries.put(key, new Entry(depth, lines));
+    }
+
+    /**
+     * Depth every line in the set has reached
+     */
+    public static int completedDepth(Map<String, ChessEngine.AnalysisLine> lines) {
+        int depth = Integer.MAX_VALUE;
+        for (ChessEngine.AnalysisLine line : lines.values()) {
+            depth = Math.min(depth, line.depth);
+        }
+        return depth == Integer.MAX_VALUE ? 0 : depth;
+    }
+
+    /**
+     * Reduce a FEN to the fields that identify the position (drops move counters)
+     */
+    public static String normalize(String fen) {
+        String trimmed = fen.trim();
+        int fields = 0;
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (trimmed.charAt(i) == ' ' && ++fields == 4) {
+                return trimmed.substring(0, i);
+            }
+        }
+        return trimmed;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Get a human readable summary of the cache counters
+     */
+    public String getStats() {
+        return "cache size=" + getSize() + "/" + capacity
+            + " hits=" + hits.get()
+            + " misses=" + misses.get()
+            + " evictions=" + evictions.get();
+    }
+
+    private void evict() {
+        String victim = null;
+        int victimDepth = Integer.MAX_VALUE;
+        int inspected = 0;
+
+        // Iteration order is least recently used first
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext() && inspected++ < EVICTION_SAMPLE) {
+            Map.Entry<String, Entry> candidate = it.next();
+            if (candidate.getValue().depth < victimDepth) {
+                victim = candidate.getKey();
+                victimDepth = candidate.getValue().depth;
+            }
+        }
+
+        if (victim != null) {
+            entries.remove(victim);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static Map<String, ChessEngine.AnalysisLine> copyLines(Map<String, ChessEngine.AnalysisLine> lines, String fen) {
+        Map<String, ChessEngine.AnalysisLine> copy = new ConcurrentHashMap<>();
+        for (Map.Entry<String, ChessEngine.AnalysisLine> e : lines.entrySet()) {
+            ChessEngine.AnalysisLine source = e.getValue();
+            ChessEngine.AnalysisLine line = new ChessEngine.AnalysisLine();
+            line.score = source.score;
+            line.depth = source.depth;
+            line.nodes = source.nodes;
+            line.uciMoves = source.uciMoves;
+            line.fen = fen;
+            copy.put(e.getKey(), line);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,227 @@
+package com.chessgpt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Analysis JSON writer for clients on the default JSON protocol
+ * Writes {"fen":...,"lines":[...]} frames as UTF-8 straight into a reused buffer, byte for byte what
+ * Gson produced for the same frame: AnalysisLine fields in declaration order, null fields left out
+ * and Gson's default HTML-safe escaping. A new AnalysisLine field has to be added here as well.
+ * One instance per connection, like BinaryAnalysisCodec.
+ */
+public class AnalysisJsonWriter {
+
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final byte[] HEX = ascii("0123456789abcdef");
+    // Valid in JSON but not in JavaScript source, so Gson escapes them
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private static final byte[] FEN_FIELD = ascii("{\"fen\":");
+    private static final byte[] LINES_FIELD = ascii("\"lines\":[");
+    private static final byte[] SCORE_FIELD = ascii("\"score\":");
+    private static final byte[] DEPTH_FIELD = ascii("\"depth\":");
+    private static final byte[] NODES_FIELD = ascii("\"nodes\":");
+    private static final byte[] UCI_MOVES_FIELD = ascii("\"uciMoves\":");
+    private static final byte[] LINE_FEN_FIELD = ascii("\"fen\":");
+
+    // Reused between frames; WebSocket sendFrame copies the payload into its own frame
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private ByteBuffer view = ByteBuffer.wrap(buffer);
+    private int size;
+    private boolean firstField;
+
+    /**
+     * Encode an analysis frame; the returned buffer is valid until the next call
+     */
+    public synchronized ByteBuffer encodeAnalysis(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        size = 0;
+        if (fen != null) {
+            append(FEN_FIELD);
+            appendString(fen);
+            append((byte) ',');
+        } else {
+            append((byte) '{');
+        }
+        append(LINES_FIELD);
+        boolean firstLine = true;
+        for (ChessEngine.AnalysisLine line : lines.values()) {
+            if (!firstLine) {
+                append((byte) ',');
+            }
+            firstLine = false;
+            appendLine(line);
+        }
+        append((byte) ']');
+        append((byte) '}');
+        if (view.array() != buffer) {
+            view = ByteBuffer.wrap(buffer);
+        }
+        view.limit(size).position(0);
+        return view;
+    }
+
+    private void appendLine(ChessEngine.AnalysisLine line) {
+        append((byte) '{');
+        firstField = true;
+        if (line.score != null) {
+            field(SCORE_FIELD);
+            appendString(line.score);
+        }
+        field(DEPTH_FIELD);
+        appendLong(line.depth);
+        field(NODES_FIELD);
+        appendLong(line.nodes);
+        if (line.uciMoves != null) {
+            field(UCI_MOVES_FIELD);
+            appendString(line.uciMoves);
+        }
+        if (line.fen != null) {
+            field(LINE_FEN_FIELD);
+            appendString(line.fen);
+        }
+        append((byte) '}');
+    }
+
+    private void field(byte[] name) {
+        if (!firstField) {
+            append((byte) ',');
+        }
+        firstField = false;
+        append(name);
+    }
+
+    private void appendLong(long value) {
+        ensureCapacity(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                append(ascii(Long.toString(value)));
+                return;
+            }
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int start = size;
+        do {
+            buffer[size++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+
+    /**
+     * Quoted string with Gson's HTML-safe escapes, encoded as UTF-8 like String.getBytes would
+     */
+    private void appendString(String value) {
+        int length = value.length();
+        // Worst case is six bytes per char for a unicode escape
+        ensureCapacity(length * 6 + 2);
+        buffer[size++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                appendAscii(c);
+            } else if (c < 0x800) {
+                buffer[size++] = (byte) (0xc0 | c >> 6);
+                buffer[size++] = (byte) (0x80 | c & 0x3f);
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                appendUnicodeEscape(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[size++] = (byte) (0xf0 | codePoint >> 18);
+                buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buffer[size++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates cannot be encoded; the UTF-8 encoder writes '?' for them
+                buffer[size++] = '?';
+            } else {
+                buffer[size++] = (byte) (0xe0 | c >> 12);
+                buffer[size++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[size++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        buffer[size++] = '"';
+    }
+
+    private void appendAscii(char c) {
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer[size++] = '\\';
+                buffer[size++] = (byte) c;
+                break;
+            case '\t':
+                buffer[size++] = '\\';
+                buffer[size++] = 't';
+                break;
+            case '\b':
+                buffer[size++] = '\\';
+                buffer[size++] = 'b';
+                break;
+            case '\n':
+                buffer[size++] = '\\';
+                buffer[size++] = 'n';
+                break;
+            case '\r':
+                buffer[size++] = '\\';
+                buffer[size++] = 'r';
+                break;
+            case '\f':
+                buffer[size++] = '\\';
+                buffer[size++] = 'f';
+                break;
+            case '<':
+            case '>':
+            case '&':
+            case '=':
+            case '\'':
+                appendUnicodeEscape(c);
+                break;
+            default:
+                if (c < 0x20) {
+                    appendUnicodeEscape(c);
+                } else {
+                    buffer[size++] = (byte) c;
+                }
+        }
+    }
+
+    private void appendUnicodeEscape(char c) {
+        buffer[size++] = '\\';
+        buffer[size++] = 'u';
+        buffer[size++] = HEX[c >> 12 & 0xf];
+        buffer[size++] = HEX[c >> 8 & 0xf];
+        buffer[size++] = HEX[c >> 4 & 0xf];
+        buffer[size++] = HEX[c & 0xf];
+    }
+
+    private void append(byte b) {
+        ensureCapacity(1);
+        buffer[size++] = b;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
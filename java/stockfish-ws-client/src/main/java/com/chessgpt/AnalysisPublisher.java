@@ -0,0 +1,196 @@
+package com.chessgpt;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalescing Analysis Publisher
+ * Collects analysis updates and sends at most one frame per interval,
+ * flushing immediately on a depth increase, a best move change or a large score swing
+ */
+public class AnalysisPublisher {
+
+    private final long intervalNanos;
+    private final int scoreThreshold;
+    private final ScheduledExecutorService scheduler;
+    private final AnalysisSink sink;
+
+    // Last published frame
+    private String sentFen;
+    private int sentDepth;
+    private String sentBestMove;
+    private int sentScore;
+    private boolean sentMate;
+    private long sentAtNanos;
+
+    // Latest update not yet published
+    private String pendingFen;
+    private Map<String, ChessEngine.AnalysisLine> pendingLines;
+    private ScheduledFuture<?> pendingFlush;
+
+    // Statistics, shared by every publisher created with the same counters
+    private final Counters counters;
+
+    public AnalysisPublisher(long intervalMillis, int scoreThreshold, ScheduledExecutorService scheduler,
+                             Counters counters, AnalysisSink sink) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.scoreThreshold = scoreThreshold;
+        this.scheduler = scheduler;
+        this.counters = counters;
+        this.sink = sink;
+    }
+
+    /**
+     * Frame counters that can be shared across publishers
+     */
+    public static class Counters {
+        final LongAdder framesSent = new LongAdder();
+        final LongAdder framesSuppressed = new LongAdder();
+
+        public long getFramesSent() {
+            return framesSent.sum();
+        }
+
+        public long getFramesSuppressed() {
+            return framesSuppressed.sum();
+        }
+
+        /**
+         * Get a human readable summary of the publisher counters
+         */
+        public String getStats() {
+            return "publisher sent=" + framesSent.sum() + " suppressed=" + framesSuppressed.sum();
+        }
+    }
+
+    /**
+     * Receives the frames that pass the publisher
+     */
+    public interface AnalysisSink {
+        void publish(String fen, Map<String, ChessEngine.AnalysisLine> lines);
+    }
+
+    /**
+     * Offer an analysis update; it is sent now or coalesced into the next frame.
+     * The lines may keep changing after the call, they are copied when a frame is sent.
+     */
+    public synchronized void submit(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (pendingLines != null) {
+            counters.framesSuppressed.increment();
+        }
+        pendingFen = fen;
+        pendingLines = lines;
+
+        long now = System.nanoTime();
+        if (isSignificant(fen, lines) || now - sentAtNanos >= intervalNanos) {
+            flush();
+        } else if (pendingFlush == null) {
+            long delay = intervalNanos - (now - sentAtNanos);
+            pendingFlush = scheduler.schedule(this::flush, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Send a frame immediately, replacing anything pending
+     */
+    public synchronized void publishNow(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (pendingLines != null) {
+            counters.framesSuppressed.increment();
+        }
+        pendingFen = fen;
+        pendingLines = lines;
+        flush();
+    }
+
+    /**
+     * Send the pending frame now, if there is one
+     */
+    public synchronized void flushPending() {
+        flush();
+    }
+
+    /**
+     * Drop any pending frame, e.g. when analysis stops
+     */
+    public synchronized void reset() {
+        cancelPendingFlush();
+        pendingFen = null;
+        pendingLines = null;
+        sentFen = null;
+    }
+
+    private synchronized void flush() {
+        cancelPendingFlush();
+        if (pendingLines == null) {
+            return;
+        }
+        String fen = pendingFen;
+        Map<String, ChessEngine.AnalysisLine> lines = ChessEngine.AnalysisLine.snapshot(pendingLines);
+        pendingFen = null;
+        pendingLines = null;
+
+        remember(fen, lines);
+        counters.framesSent.increment();
+        sink.publish(fen, lines);
+    }
+
+    /**
+     * Check if an update differs enough from the last frame to skip the interval
+     */
+    private boolean isSignificant(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (sentFen == null || !sentFen.equals(fen)) {
+            return true;
+        }
+        ChessEngine.AnalysisLine best = lines.get("1");
+        if (best == null) {
+            return false;
+        }
+        if (best.depth > sentDepth) {
+            return true;
+        }
+        if (!startsWithMove(best.uciMoves, sentBestMove)) {
+            return true;
+        }
+        boolean mate = best.score.startsWith("#");
+        int score = EngineProcess.parseScore(best.score);
+        if (mate != sentMate) {
+            return true;
+        }
+        return mate ? score != sentScore : Math.abs(score - sentScore) >= scoreThreshold;
+    }
+
+    private void remember(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        sentFen = fen;
+        sentAtNanos = System.nanoTime();
+        ChessEngine.AnalysisLine best = lines.get("1");
+        if (best != null) {
+            sentDepth = best.depth;
+            sentBestMove = firstMove(best.uciMoves);
+            sentMate = best.score.startsWith("#");
+            sentScore = EngineProcess.parseScore(best.score);
+        } else {
+            sentDepth = 0;
+            sentBestMove = "";
+        }
+    }
+
+    private void cancelPendingFlush() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+    }
+
+    private static boolean startsWithMove(String uciMoves, String move) {
+        return uciMoves.startsWith(move)
+            && (uciMoves.length() == move.length() || uciMoves.charAt(move.length()) == ' ');
+    }
+
+    private static String firstMove(String uciMoves) {
+        int space = uciMoves.indexOf(' ');
+        return space < 0 ? uciMoves : uciMoves.substring(0, space);
+    }
+}
@@ -0,0 +1,577 @@
+package com.chessgpt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent analysis store backed by memory-mapped files
+ *
+ * index.bin holds an open-addressing hash table of (key hash, record offset) slots.
+ * data-NNNNN.seg files hold append-only records:
+ *   int magic | int payload length | long key hash | int crc32 | payload
+ * The index header remembers how far the data has been indexed; on open, records past
+ * that point are validated by CRC and re-indexed, and a torn tail is discarded.
+ * The checkpoint only moves in sync, after the records it covers were forced to disk; index
+ * slots may reach the disk ahead of their records, so every read checks the record CRC.
+ */
+public class AnalysisStore {
+
+    private static final int INDEX_MAGIC = 0x43474958;   // "CGIX"
+    private static final int RECORD_MAGIC = 0x43475231;  // "CGR1"
+    private static final int VERSION = 1;
+
+    private static final int INDEX_HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 20;
+    private static final int MAX_PV_MOVES = 64;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long syncIntervalMillis;
+    private final ScheduledExecutorService writer;
+
+    // Index mapping
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int slotCount;
+    private int usedSlots;
+
+    // Data segments, the last one is the write target
+    private final List<FileChannel> segmentChannels = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int writePosition;
+    // Records appended since the last sync start in this segment
+    private int firstUnsyncedSegment;
+    private boolean unsynced;
+
+    // Statistics
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong readHits = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+
+    // Reused by the writer thread
+    private final ByteBuffer scratch = ByteBuffer.allocate(64 * 1024);
+    private final short[] moveScratch = new short[MAX_PV_MOVES];
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * @param syncIntervalMillis how often appended records are forced to disk; 0 only syncs on close
+     */
+    public AnalysisStore(File directory, int initialSlots, int segmentSize, long syncIntervalMillis) {
+        this.directory = directory;
+        this.slotCount = Integer.highestOneBit(Math.max(1024, initialSlots));
+        this.segmentSize = segmentSize;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "analysis-store-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Map the index and data segments, recovering anything written after the last checkpoint
+     */
+    public synchronized void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create analysis store directory " + directory);
+        }
+
+        File indexFile = new File(directory, "index.bin");
+        boolean fresh = !indexFile.exists() || indexFile.length() < INDEX_HEADER_SIZE;
+        if (!fresh) {
+            try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r")) {
+                if (raf.readInt() != INDEX_MAGIC || raf.readInt() != VERSION) {
+                    throw new IOException("Unrecognised analysis store index " + indexFile);
+                }
+                slotCount = raf.readInt();
+            }
+        }
+        mapIndex(indexFile, slotCount, fresh);
+
+        // Map existing segments in order
+        for (int segmentNo = 0; ; segmentNo++) {
+            File segmentFile = segmentFile(segmentNo);
+            if (!segmentFile.exists()) {
+                break;
+            }
+            mapSegment(segmentNo);
+        }
+        if (segments.isEmpty()) {
+            mapSegment(0);
+        }
+
+        recover();
+        firstUnsyncedSegment = 0;
+        unsynced = true;
+        sync();
+        if (syncIntervalMillis > 0) {
+            writer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        Log.info("💾 Analysis store opened: " + directory
+            + " (" + usedSlots + " positions, " + segments.size() + " segments, "
+            + recovered.get() + " records recovered)");
+    }
+
+    /**
+     * Look up stored analysis lines for a position
+     */
+    public synchronized Map<String, ChessEngine.AnalysisLine> get(String fen) {
+        if (index == null) {
+            return null;
+        }
+        reads.incrementAndGet();
+        String key = AnalysisCache.normalize(fen);
+        long hash = hash(key);
+
+        int slot = findSlot(hash);
+        long offset = index.getLong(slotPosition(slot) + 8);
+        if (index.getLong(slotPosition(slot)) != hash) {
+            return null;
+        }
+
+        Map<String, ChessEngine.AnalysisLine> lines = readRecord(offset, key, fen);
+        if (lines != null) {
+            readHits.incrementAndGet();
+        }
+        return lines;
+    }
+
+    /**
+     * Queue analysis lines to be appended in the background
+     */
+    public void putAsync(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (writer.isShutdown()) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                put(fen, lines);
+            } catch (Exception e) {
+                Log.error("❌ Failed to write analysis store record: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Append analysis lines unless a deeper record already exists
+     */
+    public synchronized void put(String fen, Map<String, ChessEngine.AnalysisLine> lines) throws IOException {
+        if (index == null || lines.isEmpty()) {
+            return;
+        }
+        String key = AnalysisCache.normalize(fen);
+        long hash = hash(key);
+        int depth = AnalysisCache.completedDepth(lines);
+
+        int slot = findSlot(hash);
+        int slotPos = slotPosition(slot);
+        boolean existing = index.getLong(slotPos) == hash;
+        if (existing && storedDepth(index.getLong(slotPos + 8)) >= depth) {
+            return;
+        }
+
+        ByteBuffer payload = encode(key, depth, lines);
+        long offset = append(hash, payload);
+
+        index.putLong(slotPos + 8, offset);
+        index.putLong(slotPos, hash);
+        if (!existing) {
+            usedSlots++;
+        }
+        unsynced = true;
+        writes.incrementAndGet();
+
+        if (usedSlots > slotCount * MAX_LOAD_FACTOR) {
+            growIndex();
+        }
+    }
+
+    /**
+     * Get a human readable summary of the store counters
+     */
+    public String getStats() {
+        return "store positions=" + usedSlots
+            + " reads=" + reads.get()
+            + " hits=" + readHits.get()
+            + " writes=" + writes.get()
+            + " recovered=" + recovered.get()
+            + " syncs=" + syncs.get();
+    }
+
+    /**
+     * Force appended records to disk, then move the index checkpoint past them and force the index.
+     * In that order a checkpoint never covers records a power loss could still take.
+     * Runs on the writer thread (or after it stopped), so nothing is appended meanwhile.
+     */
+    private void sync() throws IOException {
+        List<MappedByteBuffer> dirty;
+        long end;
+        synchronized (this) {
+            if (index == null || !unsynced) {
+                return;
+            }
+            dirty = new ArrayList<>(segments.subList(firstUnsyncedSegment, segments.size()));
+            end = ((long) (segments.size() - 1) << 32) | writePosition;
+            firstUnsyncedSegment = segments.size() - 1;
+            unsynced = false;
+        }
+        // Lookups keep going while the data is written out
+        for (MappedByteBuffer segment : dirty) {
+            segment.force();
+        }
+        synchronized (this) {
+            if (index == null) {
+                return;
+            }
+            index.putLong(16, end);
+            index.force();
+        }
+        syncs.incrementAndGet();
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException | RuntimeException e) {
+            Log.error("❌ Failed to sync analysis store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write out pending records, sync and unmap files
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            sync();
+        } catch (IOException e) {
+            Log.error("❌ Failed to sync analysis store: " + e.getMessage());
+        }
+        synchronized (this) {
+            try {
+                if (index != null) {
+                    indexChannel.close();
+                }
+                for (FileChannel channel : segmentChannels) {
+                    channel.close();
+                }
+                Log.info("✅ Analysis store closed (" + getStats() + ")");
+            } catch (IOException e) {
+                Log.error("❌ Error closing analysis store: " + e.getMessage());
+            }
+            index = null;
+        }
+    }
+
+    // ============= Index =============
+
+    private void mapIndex(File indexFile, int slots, boolean fresh) throws IOException {
+        indexChannel = new RandomAccessFile(indexFile, "rw").getChannel();
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) slots * SLOT_SIZE);
+        slotCount = slots;
+        if (fresh) {
+            index.putInt(0, INDEX_MAGIC);
+            index.putInt(4, VERSION);
+            index.putInt(8, slots);
+            index.putLong(16, 0L);
+        }
+        usedSlots = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (index.getLong(slotPosition(slot)) != 0) {
+                usedSlots++;
+            }
+        }
+    }
+
+    /**
+     * Linear probe for the slot holding the hash, or the first empty slot
+     */
+    private int findSlot(long hash) {
+        int mask = slotCount - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (true) {
+            long stored = index.getLong(slotPosition(slot));
+            if (stored == 0 || stored == hash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Rebuild the index at twice the size and swap it in
+     */
+    private void growIndex() throws IOException {
+        int newSlots = slotCount * 2;
+        File tmpFile = new File(directory, "index.bin.tmp");
+        tmpFile.delete();
+
+        FileChannel oldChannel = indexChannel;
+        MappedByteBuffer oldIndex = index;
+        int oldSlots = slotCount;
+        long checkpoint = oldIndex.getLong(16);
+
+        mapIndex(tmpFile, newSlots, true);
+        for (int slot = 0; slot < oldSlots; slot++) {
+            long hash = oldIndex.getLong(slotPosition(slot));
+            if (hash != 0) {
+                int target = findSlot(hash);
+                index.putLong(slotPosition(target) + 8, oldIndex.getLong(slotPosition(slot) + 8));
+                index.putLong(slotPosition(target), hash);
+                usedSlots++;
+            }
+        }
+        index.putLong(16, checkpoint);
+        index.force();
+        indexChannel.close();
+        oldChannel.close();
+
+        File indexFile = new File(directory, "index.bin");
+        if (!tmpFile.renameTo(indexFile)) {
+            throw new IOException("Failed to replace analysis store index");
+        }
+        mapIndex(indexFile, newSlots, false);
+        Log.info("💾 Analysis store index grown to " + newSlots + " slots");
+    }
+
+    // ============= Data segments =============
+
+    private File segmentFile(int segmentNo) {
+        return new File(directory, String.format("data-%05d.seg", segmentNo));
+    }
+
+    private void mapSegment(int segmentNo) throws IOException {
+        FileChannel channel = new RandomAccessFile(segmentFile(segmentNo), "rw").getChannel();
+        segmentChannels.add(channel);
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        writePosition = 0;
+    }
+
+    private long append(long hash, ByteBuffer payload) throws IOException {
+        int length = payload.limit();
+        if (writePosition + RECORD_HEADER_SIZE + length > segmentSize) {
+            mapSegment(segments.size());
+        }
+        int segmentNo = segments.size() - 1;
+        MappedByteBuffer segment = segments.get(segmentNo);
+        int position = writePosition;
+
+        crc.reset();
+        crc.update(payload.array(), 0, length);
+
+        // Payload first, magic last, so a torn write never looks like a valid record
+        segment.putInt(position + 4, length);
+        segment.putLong(position + 8, hash);
+        segment.putInt(position + 16, (int) crc.getValue());
+        ByteBuffer target = segment.duplicate();
+        target.position(position + RECORD_HEADER_SIZE);
+        target.put(payload.array(), 0, length);
+        segment.putInt(position, RECORD_MAGIC);
+
+        writePosition = position + RECORD_HEADER_SIZE + length;
+        return ((long) segmentNo << 32) | position;
+    }
+
+    /**
+     * Re-index records written after the index checkpoint and find the write position
+     */
+    private void recover() throws IOException {
+        long checkpoint = index.getLong(16);
+        int startSegment = (int) (checkpoint >>> 32);
+        int startPosition = (int) checkpoint;
+
+        for (int segmentNo = startSegment; segmentNo < segments.size(); segmentNo++) {
+            MappedByteBuffer segment = segments.get(segmentNo);
+            int position = segmentNo == startSegment ? startPosition : 0;
+
+            while (isValidRecord(segment, position)) {
+                int length = segment.getInt(position + 4);
+                long hash = segment.getLong(position + 8);
+
+                long offset = ((long) segmentNo << 32) | position;
+                int slot = findSlot(hash);
+                if (index.getLong(slotPosition(slot)) == 0) {
+                    usedSlots++;
+                }
+                index.putLong(slotPosition(slot) + 8, offset);
+                index.putLong(slotPosition(slot), hash);
+                recovered.incrementAndGet();
+                position += RECORD_HEADER_SIZE + length;
+
+                if (usedSlots > slotCount * MAX_LOAD_FACTOR) {
+                    growIndex();
+                }
+            }
+
+            // Clear a torn tail so it is never mistaken for a record later
+            if (position + 4 <= segmentSize) {
+                segment.putInt(position, 0);
+            }
+            writePosition = position;
+            index.putLong(16, ((long) segmentNo << 32) | position);
+        }
+    }
+
+    /**
+     * Magic, length and CRC check out; after a power loss an index slot can point at a record that never
+     * reached the disk
+     */
+    private boolean isValidRecord(MappedByteBuffer segment, int position) {
+        if (position + RECORD_HEADER_SIZE > segmentSize || segment.getInt(position) != RECORD_MAGIC) {
+            return false;
+        }
+        int length = segment.getInt(position + 4);
+        return length > 0 && position + RECORD_HEADER_SIZE + length <= segmentSize
+            && checksum(segment, position + RECORD_HEADER_SIZE, length) == segment.getInt(position + 16);
+    }
+
+    private int checksum(MappedByteBuffer segment, int position, int length) {
+        ByteBuffer slice = segment.duplicate();
+        slice.position(position);
+        slice.limit(position + length);
+        crc.reset();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    // ============= Record encoding =============
+
+    /*
+     * Payload layout:
+     *   short fen length | fen bytes | byte depth | byte line count
+     *   per line: byte multipv | byte score type | int score (White's view)
+     *             | byte depth | long nodes | byte move count | short[] moves
+     */
+    private ByteBuffer encode(String key, int depth, Map<String, ChessEngine.AnalysisLine> lines) {
+        ByteBuffer buf = scratch;
+        buf.clear();
+        byte[] fenBytes = key.getBytes(StandardCharsets.US_ASCII);
+        buf.putShort((short) fenBytes.length);
+        buf.put(fenBytes);
+        buf.put((byte) depth);
+        buf.put((byte) lines.size());
+
+        for (Map.Entry<String, ChessEngine.AnalysisLine> e : lines.entrySet()) {
+            ChessEngine.AnalysisLine line = e.getValue();
+            boolean mate = line.score.startsWith("#");
+            buf.put((byte) Integer.parseInt(e.getKey()));
+            buf.put((byte) (mate ? UciInfo.SCORE_MATE : UciInfo.SCORE_CP));
+            buf.putInt(EngineProcess.parseScore(line.score));
+            buf.put((byte) line.depth);
+            buf.putLong(line.nodes);
+            int moveCount = MoveCodec.packAll(line.uciMoves, moveScratch);
+            buf.put((byte) moveCount);
+            for (int i = 0; i < moveCount; i++) {
+                buf.putShort(moveScratch[i]);
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private Map<String, ChessEngine.AnalysisLine> readRecord(long offset, String key, String fen) {
+        int segmentNo = (int) (offset >>> 32);
+        int position = (int) offset;
+        if (segmentNo >= segments.size()) {
+            return null;
+        }
+        MappedByteBuffer segment = segments.get(segmentNo);
+        if (!isValidRecord(segment, position)) {
+            return null;
+        }
+
+        ByteBuffer buf = segment.duplicate();
+        buf.position(position + RECORD_HEADER_SIZE);
+        byte[] fenBytes = new byte[buf.getShort()];
+        buf.get(fenBytes);
+        if (!key.equals(new String(fenBytes, StandardCharsets.US_ASCII))) {
+            // 64-bit hash collision with another position
+            return null;
+        }
+        buf.get(); // completed depth
+        int lineCount = buf.get();
+
+        // Scores are stored from White's side; formatting them for the side to move keeps "-0.00" for Black
+        int space = fen.indexOf(' ');
+        boolean whiteToMove = space < 0 || space + 1 >= fen.length() || fen.charAt(space + 1) != 'b';
+        Map<String, ChessEngine.AnalysisLine> lines = new ConcurrentHashMap<>();
+        StringBuilder moves = new StringBuilder(256);
+        for (int i = 0; i < lineCount; i++) {
+            int multipv = buf.get();
+            int scoreType = buf.get();
+            int score = buf.getInt();
+
+            ChessEngine.AnalysisLine line = new ChessEngine.AnalysisLine();
+            line.score = EngineProcess.formatScore(scoreType, whiteToMove ? score : -score, whiteToMove);
+            line.depth = buf.get() & 0xFF;
+            line.nodes = buf.getLong();
+            int moveCount = buf.get() & 0xFF;
+            moves.setLength(0);
+            for (int m = 0; m < moveCount; m++) {
+                if (m > 0) {
+                    moves.append(' ');
+                }
+                MoveCodec.unpack(buf.getShort() & 0xFFFF, moves);
+            }
+            line.uciMoves = moves.toString();
+            line.fen = fen;
+            lines.put(Integer.toString(multipv), line);
+        }
+        return lines;
+    }
+
+    private int storedDepth(long offset) {
+        int segmentNo = (int) (offset >>> 32);
+        int position = (int) offset;
+        if (segmentNo >= segments.size()) {
+            return 0;
+        }
+        MappedByteBuffer segment = segments.get(segmentNo);
+        if (!isValidRecord(segment, position)) {
+            return 0;
+        }
+        int fenLength = segment.getShort(position + RECORD_HEADER_SIZE);
+        return segment.get(position + RECORD_HEADER_SIZE + 2 + fenLength) & 0xFF;
+    }
+
+    /**
+     * FNV-1a hash of the normalized FEN; zero is reserved for empty slots
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+}
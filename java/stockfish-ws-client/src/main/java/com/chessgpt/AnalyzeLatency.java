@@ -0,0 +1,131 @@
+package com.chessgpt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyze Latency
+ * End-to-end latency of analyze requests, measured from the moment the WebSocket message arrived:
+ * until the "go" was written to the engine, until the first info line, until the first analysis
+ * frame was sent and until the requested depth was reached
+ */
+public class AnalyzeLatency {
+
+    private static final int DEFAULT_DEPTH = 20;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public enum Stage {
+        COMMAND("command"),
+        FIRST_INFO("first_info"),
+        FIRST_FRAME("first_frame"),
+        DEPTH("depth");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private final int depthTarget = Integer.getInteger("chessgpt.latency.depth", DEFAULT_DEPTH);
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    public AnalyzeLatency() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Start tracing a request for a position
+     */
+    public Trace start(String fen, long receivedAtNanos) {
+        return new Trace(fen, receivedAtNanos);
+    }
+
+    /**
+     * Stages of one request; each stage is recorded at most once
+     */
+    public final class Trace {
+        private final String fen;
+        private final long receivedAtNanos;
+        private final AtomicInteger recorded = new AtomicInteger();
+
+        private Trace(String fen, long receivedAtNanos) {
+            this.fen = fen;
+            this.receivedAtNanos = receivedAtNanos;
+        }
+
+        public String getFen() {
+            return fen;
+        }
+
+        /**
+         * Record a stage unless it was recorded before
+         */
+        public void record(Stage stage) {
+            int bit = 1 << stage.ordinal();
+            while (true) {
+                int current = recorded.get();
+                if ((current & bit) != 0) {
+                    return;
+                }
+                if (recorded.compareAndSet(current, current | bit)) {
+                    histograms[stage.ordinal()].record(System.nanoTime() - receivedAtNanos);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Record the depth stage once analysis of this position reaches the target depth
+         */
+        public void recordDepth(int depth) {
+            if (depth >= depthTarget) {
+                record(Stage.DEPTH);
+            }
+        }
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public int getDepthTarget() {
+        return depthTarget;
+    }
+
+    /**
+     * Export every stage as a summary with quantiles; read at scrape time
+     */
+    public void registerMetrics() {
+        Metrics.register("chessgpt_analyze_latency_seconds", "Time from analyze request received to each stage",
+            Metrics.Type.SUMMARY, samples -> {
+                for (Stage stage : Stage.values()) {
+                    LatencyHistogram histogram = getHistogram(stage);
+                    String label = stageLabel(stage);
+                    long[] values = histogram.getPercentilesNanos(PERCENTILES);
+                    for (int i = 0; i < QUANTILES.length; i++) {
+                        samples.add(values[i] / 1e9, "stage", label, "quantile", Double.toString(QUANTILES[i]));
+                    }
+                    samples.addWithSuffix("_sum", histogram.getSumNanos() / 1e9, "stage", label);
+                    samples.addWithSuffix("_count", histogram.getCount(), "stage", label);
+                }
+            });
+    }
+
+    /**
+     * Get a human readable percentile summary of every stage, one "\n  - stage: ..." line each
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            sb.append("\n  - ").append(stageLabel(stage)).append(": ").append(getHistogram(stage).getSummary());
+        }
+        return sb.toString();
+    }
+
+    private String stageLabel(Stage stage) {
+        return stage == Stage.DEPTH ? stage.label + "_" + depthTarget : stage.label;
+    }
+}
@@ -0,0 +1,103 @@
+package com.chessgpt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary analysis frame encoder for clients that negotiate the "chessgpt.binary.v1" subprotocol
+ * One instance per connection; it owns the connection's position ids, and a redefined id
+ * replaces the FEN the client had for it.
+ *
+ * POSITION frame (sent once before the first analysis of a FEN):
+ *   byte 0x01 | varint position id | varint FEN length | FEN bytes
+ * ANALYSIS frame:
+ *   byte 0x02 | varint position id | varint line count | per line:
+ *   varint multipv | byte score type (1 cp, 2 mate) | zigzag varint score (White's view)
+ *   | varint depth | varint nodes | varint move count | 16-bit moves (see MoveCodec)
+ */
+public class BinaryAnalysisCodec {
+
+    public static final String SUBPROTOCOL = "chessgpt.binary.v1";
+
+    public static final byte FRAME_POSITION = 0x01;
+    public static final byte FRAME_ANALYSIS = 0x02;
+
+    private static final int MAX_POSITIONS = 256;
+    private static final int MAX_PV_MOVES = 64;
+
+    // FEN -> position id in access order; the least recently used id is reused when full
+    private final LinkedHashMap<String, Integer> positionIds = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Reused between frames; WebSocket send copies the payload into its own frame
+    private final ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+    private final short[] moves = new short[MAX_PV_MOVES];
+
+    /**
+     * Encode a POSITION frame if the FEN has no id on this connection yet, otherwise return null
+     */
+    public synchronized ByteBuffer encodePositionIfNew(String fen) {
+        if (positionIds.containsKey(fen)) {
+            return null;
+        }
+        int id = positionIds.size();
+        if (id >= MAX_POSITIONS) {
+            Iterator<Map.Entry<String, Integer>> eldest = positionIds.entrySet().iterator();
+            id = eldest.next().getValue();
+            eldest.remove();
+        }
+        positionIds.put(fen, id);
+
+        byte[] fenBytes = fen.getBytes(StandardCharsets.US_ASCII);
+        buffer.clear();
+        buffer.put(FRAME_POSITION);
+        putVarint(buffer, id);
+        putVarint(buffer, fenBytes.length);
+        buffer.put(fenBytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encode an ANALYSIS frame; the FEN must have been defined with encodePositionIfNew
+     */
+    public synchronized ByteBuffer encodeAnalysis(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        Integer id = positionIds.get(fen);
+        buffer.clear();
+        buffer.put(FRAME_ANALYSIS);
+        putVarint(buffer, id != null ? id : 0);
+        putVarint(buffer, lines.size());
+
+        for (Map.Entry<String, ChessEngine.AnalysisLine> e : lines.entrySet()) {
+            ChessEngine.AnalysisLine line = e.getValue();
+            boolean mate = line.score.startsWith("#");
+            putVarint(buffer, Integer.parseInt(e.getKey()));
+            buffer.put((byte) (mate ? UciInfo.SCORE_MATE : UciInfo.SCORE_CP));
+            putVarint(buffer, zigzag(EngineProcess.parseScore(line.score)));
+            putVarint(buffer, line.depth);
+            putVarint(buffer, line.nodes);
+
+            int moveCount = MoveCodec.packAll(line.uciMoves, moves);
+            putVarint(buffer, moveCount);
+            for (int i = 0; i < moveCount; i++) {
+                buffer.putShort(moves[i]);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static void putVarint(ByteBuffer buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    static long zigzag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+}
@@ -0,0 +1,657 @@
+package com.chessgpt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal Chess Board
+ * FEN parsing and output, legal move generation and SAN/UCI move conversion,
+ * enough for the server to replay games itself. Squares are indexed a1 = 0 .. h8 = 63.
+ */
+public class Board {
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final char EMPTY = '.';
+    private static final int WHITE_KINGSIDE = 1;
+    private static final int WHITE_QUEENSIDE = 2;
+    private static final int BLACK_KINGSIDE = 4;
+    private static final int BLACK_QUEENSIDE = 8;
+
+    private static final int[][] KNIGHT_STEPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_STEPS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final char[] PROMOTIONS = {'q', 'r', 'b', 'n'};
+
+    private final char[] squares = new char[64];
+    private boolean whiteToMove = true;
+    private int castling = 0;
+    private int epSquare = -1;
+    private int halfmoveClock = 0;
+    private int fullmoveNumber = 1;
+
+    private Board() {
+    }
+
+    /**
+     * Parse a FEN; missing move counters default to "0 1"
+     */
+    public static Board fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        Board board = new Board();
+        java.util.Arrays.fill(board.squares, EMPTY);
+
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else if ("PNBRQKpnbrqk".indexOf(c) >= 0 && rank >= 0 && file < 8) {
+                board.squares[rank * 8 + file] = c;
+                file++;
+            } else {
+                throw new IllegalArgumentException("Invalid FEN: " + fen);
+            }
+        }
+        if (rank != 0) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        board.whiteToMove = "w".equals(fields[1]);
+        for (char c : fields[2].toCharArray()) {
+            switch (c) {
+                case 'K': board.castling |= WHITE_KINGSIDE; break;
+                case 'Q': board.castling |= WHITE_QUEENSIDE; break;
+                case 'k': board.castling |= BLACK_KINGSIDE; break;
+                case 'q': board.castling |= BLACK_QUEENSIDE; break;
+                default: break;
+            }
+        }
+        board.epSquare = "-".equals(fields[3]) ? -1 : parseSquare(fields[3], 0);
+        if (fields.length >= 6) {
+            try {
+                board.halfmoveClock = Integer.parseInt(fields[4]);
+                board.fullmoveNumber = Integer.parseInt(fields[5]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid FEN: " + fen);
+            }
+        }
+        return board;
+    }
+
+    public static Board startPosition() {
+        return fromFen(START_FEN);
+    }
+
+    public Board copy() {
+        Board board = new Board();
+        System.arraycopy(squares, 0, board.squares, 0, 64);
+        board.whiteToMove = whiteToMove;
+        board.castling = castling;
+        board.epSquare = epSquare;
+        board.halfmoveClock = halfmoveClock;
+        board.fullmoveNumber = fullmoveNumber;
+        return board;
+    }
+
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    /**
+     * Same pieces, side to move, castling rights and capturable en passant square; move counters are ignored
+     */
+    public boolean samePosition(Board other) {
+        return whiteToMove == other.whiteToMove
+            && castling == other.castling
+            && (isEnPassantCapturable() ? epSquare : -1) == (other.isEnPassantCapturable() ? other.epSquare : -1)
+            && java.util.Arrays.equals(squares, other.squares);
+    }
+
+    /**
+     * Lower bound on the plies from this position to the target, from checks that need no move generation:
+     * castling rights are never regained, a ply captures at most one piece and changes at most four squares
+     * (castling), and the side to move alternates. Integer.MAX_VALUE if the target cannot follow at all.
+     */
+    public int minPliesTo(Board target) {
+        if ((target.castling & ~castling) != 0) {
+            return Integer.MAX_VALUE;
+        }
+        int pieces = 0;
+        int targetPieces = 0;
+        int changed = 0;
+        for (int i = 0; i < 64; i++) {
+            if (squares[i] != EMPTY) {
+                pieces++;
+            }
+            if (target.squares[i] != EMPTY) {
+                targetPieces++;
+            }
+            if (squares[i] != target.squares[i]) {
+                changed++;
+            }
+        }
+        if (targetPieces > pieces) {
+            return Integer.MAX_VALUE;
+        }
+        int plies = Math.max(pieces - targetPieces, (changed + 3) / 4);
+        if (plies == 0 && whiteToMove != target.whiteToMove) {
+            plies = 1;
+        }
+        return plies;
+    }
+
+    /**
+     * Polyglot book key:XOR of the Random64 numbers for every piece (64 * kind + square, kinds in
+     * "pPnNbBrRqQkK" order), castling rights (768..771), a capturable en passant file (772..779)
+     * and white to move (780)
+     */
+    long polyglotKey(long[] random64) {
+        long key = 0;
+        for (int square = 0; square < 64; square++) {
+            char piece = squares[square];
+            if (piece != EMPTY) {
+                key ^= random64[64 * "pPnNbBrRqQkK".indexOf(piece) + square];
+            }
+        }
+        if ((castling & WHITE_KINGSIDE) != 0) {
+            key ^= random64[768];
+        }
+        if ((castling & WHITE_QUEENSIDE) != 0) {
+            key ^= random64[769];
+        }
+        if ((castling & BLACK_KINGSIDE) != 0) {
+            key ^= random64[770];
+        }
+        if ((castling & BLACK_QUEENSIDE) != 0) {
+            key ^= random64[771];
+        }
+        if (isEnPassantCapturable()) {
+            key ^= random64[772 + (epSquare & 7)];
+        }
+        if (whiteToMove) {
+            key ^= random64[780];
+        }
+        return key;
+    }
+
+    /**
+     * Write the position as FEN; the en passant square is only given when a capture is possible
+     */
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                char piece = squares[rank * 8 + file];
+                if (piece == EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(piece);
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (rank > 0) {
+                sb.append('/');
+            }
+        }
+        sb.append(whiteToMove ? " w " : " b ");
+        int length = sb.length();
+        if ((castling & WHITE_KINGSIDE) != 0) sb.append('K');
+        if ((castling & WHITE_QUEENSIDE) != 0) sb.append('Q');
+        if ((castling & BLACK_KINGSIDE) != 0) sb.append('k');
+        if ((castling & BLACK_QUEENSIDE) != 0) sb.append('q');
+        if (sb.length() == length) {
+            sb.append('-');
+        }
+        sb.append(' ').append(isEnPassantCapturable() ? squareName(epSquare) : "-");
+        sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return sb.toString();
+    }
+
+    /**
+     * All legal moves in UCI notation
+     */
+    public List<String> legalMoves() {
+        List<int[]> pseudo = new ArrayList<>();
+        generatePseudoLegal(pseudo);
+        List<String> legal = new ArrayList<>(pseudo.size());
+        for (int[] move : pseudo) {
+            if (isLegal(move)) {
+                legal.add(toUci(move));
+            }
+        }
+        return legal;
+    }
+
+    public boolean isInCheck() {
+        int king = findKing(whiteToMove);
+        return king >= 0 && isAttacked(king, !whiteToMove);
+    }
+
+    public boolean isCheckmate() {
+        return isInCheck() && legalMoves().isEmpty();
+    }
+
+    /**
+     * Check if the side to move has no legal move (checkmate or stalemate)
+     */
+    public boolean isGameOver() {
+        return legalMoves().isEmpty();
+    }
+
+    /**
+     * Play a move given in SAN ("Nf3", "exd5", "O-O", "e8=Q+") or UCI ("g1f3") and return its UCI form
+     */
+    public String play(String move) {
+        String uci = resolve(move);
+        if (uci == null) {
+            throw new IllegalArgumentException("Illegal move " + move + " in " + toFen());
+        }
+        apply(uci);
+        return uci;
+    }
+
+    /**
+     * Convert a legal UCI move to SAN, including the check or mate suffix
+     */
+    public String toSan(String uci) {
+        StringBuilder sb = new StringBuilder(baseSan(parseUci(uci)));
+        Board after = copy();
+        after.apply(uci);
+        if (after.isInCheck()) {
+            sb.append(after.legalMoves().isEmpty() ? '#' : '+');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Find the legal UCI move matching a SAN or UCI string, or null
+     */
+    public String resolve(String move) {
+        String wanted = normalizeSan(move);
+        List<String> legal = legalMoves();
+        for (String uci : legal) {
+            if (uci.equalsIgnoreCase(move)) {
+                return uci;
+            }
+        }
+        for (String uci : legal) {
+            if (normalizeSan(baseSan(parseUci(uci))).equals(wanted)) {
+                return uci;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * SAN of a move without the check or mate suffix
+     */
+    private String baseSan(int[] move) {
+        char piece = squares[move[0]];
+        char type = Character.toUpperCase(piece);
+        boolean capture = squares[move[1]] != EMPTY || (type == 'P' && move[1] == epSquare);
+        StringBuilder sb = new StringBuilder(8);
+
+        if (type == 'K' && Math.abs((move[1] & 7) - (move[0] & 7)) == 2) {
+            sb.append((move[1] & 7) == 6 ? "O-O" : "O-O-O");
+        } else if (type == 'P') {
+            if (capture) {
+                sb.append((char) ('a' + (move[0] & 7))).append('x');
+            }
+            sb.append(squareName(move[1]));
+            if (move[2] != 0) {
+                sb.append('=').append(Character.toUpperCase((char) move[2]));
+            }
+        } else {
+            sb.append(type).append(disambiguation(move, piece));
+            if (capture) {
+                sb.append('x');
+            }
+            sb.append(squareName(move[1]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Apply a UCI move without legality checks
+     */
+    public void apply(String uci) {
+        int[] move = parseUci(uci);
+        int from = move[0];
+        int to = move[1];
+        char piece = squares[from];
+        char type = Character.toUpperCase(piece);
+        boolean capture = squares[to] != EMPTY;
+
+        // En passant removes the pawn behind the target square
+        if (type == 'P' && to == epSquare) {
+            squares[whiteToMove ? to - 8 : to + 8] = EMPTY;
+            capture = true;
+        }
+
+        // Castling moves the rook too
+        if (type == 'K' && Math.abs((to & 7) - (from & 7)) == 2) {
+            boolean kingside = (to & 7) == 6;
+            int rookFrom = kingside ? from + 3 : from - 4;
+            int rookTo = kingside ? from + 1 : from - 1;
+            squares[rookTo] = squares[rookFrom];
+            squares[rookFrom] = EMPTY;
+        }
+
+        squares[to] = move[2] != 0
+            ? (whiteToMove ? Character.toUpperCase((char) move[2]) : (char) move[2])
+            : piece;
+        squares[from] = EMPTY;
+
+        castling &= ~castlingLostBy(from) & ~castlingLostBy(to);
+        epSquare = type == 'P' && Math.abs(to - from) == 16 ? (from + to) / 2 : -1;
+        halfmoveClock = type == 'P' || capture ? 0 : halfmoveClock + 1;
+        if (!whiteToMove) {
+            fullmoveNumber++;
+        }
+        whiteToMove = !whiteToMove;
+    }
+
+    // ============= Move Generation =============
+
+    private void generatePseudoLegal(List<int[]> moves) {
+        for (int from = 0; from < 64; from++) {
+            char piece = squares[from];
+            if (piece == EMPTY || Character.isUpperCase(piece) != whiteToMove) {
+                continue;
+            }
+            switch (Character.toUpperCase(piece)) {
+                case 'P':
+                    generatePawnMoves(from, moves);
+                    break;
+                case 'N':
+                    generateSteps(from, KNIGHT_STEPS, moves);
+                    break;
+                case 'B':
+                    generateSlides(from, BISHOP_DIRECTIONS, moves);
+                    break;
+                case 'R':
+                    generateSlides(from, ROOK_DIRECTIONS, moves);
+                    break;
+                case 'Q':
+                    generateSlides(from, BISHOP_DIRECTIONS, moves);
+                    generateSlides(from, ROOK_DIRECTIONS, moves);
+                    break;
+                case 'K':
+                    generateSteps(from, KING_STEPS, moves);
+                    generateCastling(from, moves);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void generatePawnMoves(int from, List<int[]> moves) {
+        int forward = whiteToMove ? 8 : -8;
+        int startRank = whiteToMove ? 1 : 6;
+        int lastRank = whiteToMove ? 7 : 0;
+        int file = from & 7;
+
+        int one = from + forward;
+        if (one >= 0 && one < 64 && squares[one] == EMPTY) {
+            addPawnMove(from, one, lastRank, moves);
+            int two = one + forward;
+            if ((from >> 3) == startRank && squares[two] == EMPTY) {
+                moves.add(new int[] {from, two, 0});
+            }
+        }
+        for (int df = -1; df <= 1; df += 2) {
+            if (file + df < 0 || file + df > 7) {
+                continue;
+            }
+            int to = one + df;
+            if (to < 0 || to >= 64) {
+                continue;
+            }
+            if (isEnemy(squares[to]) || to == epSquare) {
+                addPawnMove(from, to, lastRank, moves);
+            }
+        }
+    }
+
+    private void addPawnMove(int from, int to, int lastRank, List<int[]> moves) {
+        if ((to >> 3) == lastRank) {
+            for (char promotion : PROMOTIONS) {
+                moves.add(new int[] {from, to, promotion});
+            }
+        } else {
+            moves.add(new int[] {from, to, 0});
+        }
+    }
+
+    private void generateSteps(int from, int[][] steps, List<int[]> moves) {
+        int file = from & 7;
+        int rank = from >> 3;
+        for (int[] step : steps) {
+            int f = file + step[0];
+            int r = rank + step[1];
+            if (f < 0 || f > 7 || r < 0 || r > 7) {
+                continue;
+            }
+            int to = r * 8 + f;
+            if (squares[to] == EMPTY || isEnemy(squares[to])) {
+                moves.add(new int[] {from, to, 0});
+            }
+        }
+    }
+
+    private void generateSlides(int from, int[][] directions, List<int[]> moves) {
+        for (int[] direction : directions) {
+            int f = (from & 7) + direction[0];
+            int r = (from >> 3) + direction[1];
+            while (f >= 0 && f <= 7 && r >= 0 && r <= 7) {
+                int to = r * 8 + f;
+                if (squares[to] == EMPTY) {
+                    moves.add(new int[] {from, to, 0});
+                } else {
+                    if (isEnemy(squares[to])) {
+                        moves.add(new int[] {from, to, 0});
+                    }
+                    break;
+                }
+                f += direction[0];
+                r += direction[1];
+            }
+        }
+    }
+
+    private void generateCastling(int from, List<int[]> moves) {
+        int home = whiteToMove ? 4 : 60;
+        if (from != home || isAttacked(home, !whiteToMove)) {
+            return;
+        }
+        int kingside = whiteToMove ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = whiteToMove ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        if ((castling & kingside) != 0
+                && squares[home + 1] == EMPTY && squares[home + 2] == EMPTY
+                && !isAttacked(home + 1, !whiteToMove)) {
+            moves.add(new int[] {home, home + 2, 0});
+        }
+        if ((castling & queenside) != 0
+                && squares[home - 1] == EMPTY && squares[home - 2] == EMPTY && squares[home - 3] == EMPTY
+                && !isAttacked(home - 1, !whiteToMove)) {
+            moves.add(new int[] {home, home - 2, 0});
+        }
+    }
+
+    private boolean isLegal(int[] move) {
+        Board after = copy();
+        after.apply(toUci(move));
+        int king = after.findKing(whiteToMove);
+        return king >= 0 && !after.isAttacked(king, !whiteToMove);
+    }
+
+    /**
+     * Check if a square is attacked by the given side
+     */
+    private boolean isAttacked(int square, boolean byWhite) {
+        int file = square & 7;
+        int rank = square >> 3;
+
+        // Pawns attack diagonally forward, so look one rank behind the square
+        int pawnRank = byWhite ? rank - 1 : rank + 1;
+        char pawn = byWhite ? 'P' : 'p';
+        if (pawnRank >= 0 && pawnRank <= 7) {
+            if (file > 0 && squares[pawnRank * 8 + file - 1] == pawn) return true;
+            if (file < 7 && squares[pawnRank * 8 + file + 1] == pawn) return true;
+        }
+        if (attackedByStep(file, rank, KNIGHT_STEPS, byWhite ? 'N' : 'n')) return true;
+        if (attackedByStep(file, rank, KING_STEPS, byWhite ? 'K' : 'k')) return true;
+        if (attackedBySlide(file, rank, ROOK_DIRECTIONS, byWhite ? 'R' : 'r', byWhite ? 'Q' : 'q')) return true;
+        return attackedBySlide(file, rank, BISHOP_DIRECTIONS, byWhite ? 'B' : 'b', byWhite ? 'Q' : 'q');
+    }
+
+    private boolean attackedByStep(int file, int rank, int[][] steps, char attacker) {
+        for (int[] step : steps) {
+            int f = file + step[0];
+            int r = rank + step[1];
+            if (f >= 0 && f <= 7 && r >= 0 && r <= 7 && squares[r * 8 + f] == attacker) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean attackedBySlide(int file, int rank, int[][] directions, char slider, char queen) {
+        for (int[] direction : directions) {
+            int f = file + direction[0];
+            int r = rank + direction[1];
+            while (f >= 0 && f <= 7 && r >= 0 && r <= 7) {
+                char piece = squares[r * 8 + f];
+                if (piece != EMPTY) {
+                    if (piece == slider || piece == queen) {
+                        return true;
+                    }
+                    break;
+                }
+                f += direction[0];
+                r += direction[1];
+            }
+        }
+        return false;
+    }
+
+    // ============= Helpers =============
+
+    private boolean isEnemy(char piece) {
+        return piece != EMPTY && Character.isUpperCase(piece) != whiteToMove;
+    }
+
+    private int findKing(boolean white) {
+        char king = white ? 'K' : 'k';
+        for (int i = 0; i < 64; i++) {
+            if (squares[i] == king) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isEnPassantCapturable() {
+        if (epSquare < 0) {
+            return false;
+        }
+        char pawn = whiteToMove ? 'P' : 'p';
+        int behind = whiteToMove ? epSquare - 8 : epSquare + 8;
+        int file = epSquare & 7;
+        return (file > 0 && squares[behind - 1] == pawn) || (file < 7 && squares[behind + 1] == pawn);
+    }
+
+    private static int castlingLostBy(int square) {
+        switch (square) {
+            case 4: return WHITE_KINGSIDE | WHITE_QUEENSIDE;
+            case 7: return WHITE_KINGSIDE;
+            case 0: return WHITE_QUEENSIDE;
+            case 60: return BLACK_KINGSIDE | BLACK_QUEENSIDE;
+            case 63: return BLACK_KINGSIDE;
+            case 56: return BLACK_QUEENSIDE;
+            default: return 0;
+        }
+    }
+
+    private String disambiguation(int[] move, char piece) {
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        List<int[]> pseudo = new ArrayList<>();
+        generatePseudoLegal(pseudo);
+        for (int[] other : pseudo) {
+            if (other[1] != move[1] || other[0] == move[0] || squares[other[0]] != piece || !isLegal(other)) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= (other[0] & 7) == (move[0] & 7);
+            sameRank |= (other[0] >> 3) == (move[0] >> 3);
+        }
+        if (!ambiguous) {
+            return "";
+        }
+        String square = squareName(move[0]);
+        if (!sameFile) {
+            return square.substring(0, 1);
+        }
+        return sameRank ? square : square.substring(1);
+    }
+
+    private static String normalizeSan(String san) {
+        StringBuilder sb = new StringBuilder(san.length());
+        for (int i = 0; i < san.length(); i++) {
+            char c = san.charAt(i);
+            if (c == '0') {
+                sb.append('O');
+            } else if ("+#!?=".indexOf(c) < 0) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int[] parseUci(String uci) {
+        if (uci.length() < 4) {
+            throw new IllegalArgumentException("Invalid UCI move: " + uci);
+        }
+        int from = parseSquare(uci, 0);
+        int to = parseSquare(uci, 2);
+        int promotion = uci.length() > 4 ? Character.toLowerCase(uci.charAt(4)) : 0;
+        return new int[] {from, to, promotion};
+    }
+
+    private static int parseSquare(String text, int offset) {
+        char file = text.charAt(offset);
+        char rank = text.charAt(offset + 1);
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            throw new IllegalArgumentException("Invalid square: " + text.substring(offset, offset + 2));
+        }
+        return (rank - '1') * 8 + (file - 'a');
+    }
+
+    private static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('1' + (square >> 3));
+    }
+
+    private static String toUci(int[] move) {
+        String uci = squareName(move[0]) + squareName(move[1]);
+        return move[2] != 0 ? uci + (char) move[2] : uci;
+    }
+}
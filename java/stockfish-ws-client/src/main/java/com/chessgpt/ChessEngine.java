@@ -1,297 +1,1304 @@
 package com.chessgpt;
 
 import java.io.*;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Chess Engine Communication Manager
- * Handles communication with Polyglot/Stockfish chess engine
+ * Handles communication with a pool of Polyglot/Stockfish chess engine processes
  */
-public class ChessEngine {
-    
-    private static final Pattern INFO_PATTERN = Pattern.compile(
-        "info.*?depth (\\d+).*?seldepth (\\d+).*?multipv (\\d+).*?score (cp|mate) (-?\\d+).*?nodes (\\d+).*?pv (.+)"
-    );
-    
+public class ChessEngine implements EngineProcess.EngineProcessListener {
+
+    private static final String DEFAULT_ENGINE_COMMAND = "polyglot";
+    private static final int DEFAULT_MULTI_PV = 4;
+    private static final int DEFAULT_MIN_IDLE = 1;
+    private static final int DEFAULT_STANDBY = 1;
+    // A position that kills this many engines in a row is not retried again
+    private static final int MAX_RESUMES = 3;
+    private static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+    private static final long RECYCLE_INTERVAL_SECONDS = 30;
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final int DEFAULT_STORE_MIN_DEPTH = 16;
+    private static final int STORE_INITIAL_SLOTS = 1 << 16;
+    private static final int STORE_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long DEFAULT_STORE_SYNC_SECONDS = 5;
+    private static final long DEFAULT_PUBLISH_INTERVAL_MILLIS = 250;
+    private static final int DEFAULT_PUBLISH_SCORE_THRESHOLD = 30;
+    private static final long BATCH_PROGRESS_INTERVAL_MILLIS = 500;
+    private static final long DEFAULT_MAX_WALL_TIME_SECONDS = 300;
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+    private static final int DEFAULT_POSITION_MAX_DISTANCE = 2;
+
+    // Analyze requests by how they were answered; rate() of the sum is the request rate
+    private static final String ANALYZE_METRIC = "chessgpt_analyze_requests_total";
+    private static final String ANALYZE_HELP = "Analyze requests by outcome: searched, debounced, cached, book or busy";
+    private static final Metrics.Counter ANALYZE_SEARCHED = Metrics.counter(ANALYZE_METRIC, ANALYZE_HELP, "result", "searched");
+    private static final Metrics.Counter ANALYZE_DEBOUNCED = Metrics.counter(ANALYZE_METRIC, ANALYZE_HELP, "result", "debounced");
+    private static final Metrics.Counter ANALYZE_CACHED = Metrics.counter(ANALYZE_METRIC, ANALYZE_HELP, "result", "cached");
+    private static final Metrics.Counter ANALYZE_BUSY = Metrics.counter(ANALYZE_METRIC, ANALYZE_HELP, "result", "busy");
+    private static final Metrics.Counter ANALYZE_BOOK = Metrics.counter(ANALYZE_METRIC, ANALYZE_HELP, "result", "book");
+
     // Engine process management
-    private Process engineProcess;
-    private PrintWriter engineWriter;
-    private boolean isInitialized = false;
-    
-    // Analysis state
-    private String currentFen = "startpos";
-    private Map<String, AnalysisLine> analysisLines = new ConcurrentHashMap<>();
+    private EnginePool enginePool;
+    private EngineSupervisor supervisor;
+    private volatile boolean isInitialized = false;
+    private final CompletableFuture<Void> firstReady = new CompletableFuture<>();
+
+    // Per-session analysis state
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final Map<EngineProcess, SessionState> sessionsByProcess = new ConcurrentHashMap<>();
+    private final Map<EngineProcess, AnalysisBatch> batchesByProcess = new ConcurrentHashMap<>();
+    private final Map<EngineProcess, GameAnalysis> gamesByProcess = new ConcurrentHashMap<>();
+
+    // Shared analysis results
+    private final AnalysisCache analysisCache =
+        new AnalysisCache(Integer.getInteger("chessgpt.cache.size", DEFAULT_CACHE_SIZE));
+    private AnalysisStore analysisStore;
+    private final int storeMinDepth = Integer.getInteger("chessgpt.store.minDepth", DEFAULT_STORE_MIN_DEPTH);
+    private OpeningBook openingBook;
+    // In book the engine only searches when a process is free; false answers book positions from the book alone
+    private final boolean searchInBook = Boolean.parseBoolean(System.getProperty("chessgpt.book.searchInBook", "true"));
+    private final AnalysisPublisher.Counters publisherCounters = new AnalysisPublisher.Counters();
+    private final AnalyzeLatency latency = new AnalyzeLatency();
+    // Sends frames off the engine parser threads; a session is queued at most once, see queueAnalysis
+    private final PipelineStage.Stats publisherStats = PipelineStage.stats("publisher");
+    private final PipelineStage<SessionState> publisherStage =
+        new PipelineStage<>("analysis-publisher", Integer.MAX_VALUE, publisherStats, this::publishLatest);
+    private final long publishIntervalMillis =
+        Long.getLong("chessgpt.publish.intervalMillis", DEFAULT_PUBLISH_INTERVAL_MILLIS);
+    private final int publishScoreThreshold =
+        Integer.getInteger("chessgpt.publish.scoreThreshold", DEFAULT_PUBLISH_SCORE_THRESHOLD);
+
+    // Analyze requests closer together than this are a burst; only the last one is searched
+    private final long debounceMillis = Long.getLong("chessgpt.analyze.debounceMillis", DEFAULT_DEBOUNCE_MILLIS);
+    private final int positionMaxDistance =
+        Integer.getInteger("chessgpt.position.maxDistance", DEFAULT_POSITION_MAX_DISTANCE);
+
+    // Server-wide cap on the wall time of any search, 0 disables it
+    private final long maxWallTimeMillis = TimeUnit.SECONDS.toMillis(
+        Long.getLong("chessgpt.search.maxWallTimeSeconds", DEFAULT_MAX_WALL_TIME_SECONDS));
+    private final Map<EngineProcess, ScheduledFuture<?>> searchTimeouts = new ConcurrentHashMap<>();
+    private final java.util.Set<EngineProcess> timedOut = ConcurrentHashMap.newKeySet();
+
     private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private ScheduledFuture<?> analysisTimeout;
-    
+    private ScheduledFuture<?> recycleTask;
+
     // Event listeners
     private ChessEngineListener listener;
-    private StatusWindow statusWindow;
-    
+    private volatile StatusWindow statusWindow;
+
     public ChessEngine(ChessEngineListener listener, StatusWindow statusWindow) {
         this.listener = listener;
         this.statusWindow = statusWindow;
     }
-    
+
     /**
      * Interface for receiving chess engine events
      */
     public interface ChessEngineListener {
         void onEngineReady();
         void onEngineError(String error);
-        void onAnalysisUpdate(String fen, Map<String, AnalysisLine> lines);
+        void onAnalysisUpdate(String sessionId, String fen, Map<String, AnalysisLine> lines);
+        void onAnalysisComplete(String sessionId, String fen, String bestMove, Map<String, AnalysisLine> lines, boolean timedOut);
+        void onBookMoves(String sessionId, String fen, List<OpeningBook.BookMove> moves);
+        void onBatchResult(String sessionId, String batchId, int index, String fen, String bestMove, Map<String, AnalysisLine> lines);
+        void onBatchProgress(String sessionId, String batchId, int completed, int total, int running);
+        void onBatchComplete(String sessionId, String batchId, int completed, int total, boolean cancelled);
+        void onGamePly(String sessionId, String gameId, GameAnalysis.PlyResult result, int completed, int total);
+        void onGameComplete(String sessionId, String gameId, GameAnalysis.Summary summary, boolean cancelled);
+    }
+
+    /**
+     * Analysis state of one client session
+     */
+    private class SessionState {
+        final String sessionId;
+        final AnalysisPublisher publisher;
+        EngineProcess process;
+        volatile String currentFen = "startpos";
+        SearchLimits limits = SearchLimits.INFINITE;
+        int resumes = 0;
+        final PositionTracker positions = new PositionTracker(positionMaxDistance);
+        long lastAnalyzeNanos = 0;
+        ScheduledFuture<?> debouncedSearch;
+        volatile AnalyzeLatency.Trace trace;
+        volatile int cachedDepth = 0;
+        volatile int storedDepth = 0;
+        final Map<String, AnalysisBatch> batches = new ConcurrentHashMap<>();
+        final Map<String, GameAnalysis> games = new ConcurrentHashMap<>();
+        // Latest frame waiting for the publisher stage; a newer frame replaces it
+        final AtomicReference<PendingFrame> nextFrame = new AtomicReference<>();
+
+        SessionState(String sessionId) {
+            this.sessionId = sessionId;
+            this.publisher = new AnalysisPublisher(publishIntervalMillis, publishScoreThreshold, scheduler,
+                publisherCounters, (fen, lines) -> queueAnalysis(this, fen, lines));
+        }
     }
-    
+
     /**
-     * Start the chess engine process
+     * Best move and lines of an analyze request answered without a search
+     */
+    private static final class Answer {
+        static final Answer BUSY = new Answer(null, Collections.emptyMap());
+
+        final String bestMove;
+        final Map<String, AnalysisLine> lines;
+
+        Answer(String bestMove, Map<String, AnalysisLine> lines) {
+            this.bestMove = bestMove;
+            this.lines = lines;
+        }
+    }
+
+    private static final class PendingFrame {
+        final String fen;
+        final Map<String, AnalysisLine> lines;
+
+        PendingFrame(String fen, Map<String, AnalysisLine> lines) {
+            this.fen = fen;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Start the chess engine pool.
+     * Pool size comes from -Dchessgpt.engine.poolSize and defaults to the number of cores.
      */
     public void start() throws IOException {
         try {
-            System.out.println("🎯 Starting chess engine (Polyglot)...");
-            
-            ProcessBuilder pb = new ProcessBuilder("polyglot");
-            engineProcess = pb.start();
-            
-            engineWriter = new PrintWriter(new OutputStreamWriter(engineProcess.getOutputStream()), true);
-            
-            // Start engine output readers
-            Thread outputReader = new Thread(this::readEngineOutput);
-            outputReader.setDaemon(true);
-            outputReader.start();
-            
-            Thread errorReader = new Thread(this::readEngineErrors);
-            errorReader.setDaemon(true);
-            errorReader.start();
-            
-            System.out.println("✅ Chess engine process started successfully");
-            
-            // Initialize engine
-            sendCommand("uci");
-            sendCommand("setoption name MultiPV value 4");
-            sendCommand("isready");
-            
+            Log.info("🎯 Starting chess engine (Polyglot)...");
+
+            int poolSize = Integer.getInteger("chessgpt.engine.poolSize", Runtime.getRuntime().availableProcessors());
+            int minIdle = Integer.getInteger("chessgpt.engine.minIdle", DEFAULT_MIN_IDLE);
+            int standby = Integer.getInteger("chessgpt.engine.standby", DEFAULT_STANDBY);
+            long idleTimeoutSeconds = Long.getLong("chessgpt.engine.idleTimeoutSeconds", DEFAULT_IDLE_TIMEOUT_SECONDS);
+            String command = System.getProperty("chessgpt.engine.command", DEFAULT_ENGINE_COMMAND);
+
+            publisherStage.start();
+
+            String[] commandLine = command.trim().split("\\s+");
+            if (FakeUciEngine.COMMAND_ALIAS.equals(command.trim())) {
+                Log.info("🧪 Using the fake UCI engine");
+                commandLine = FakeUciEngine.command();
+            }
+
+            enginePool = new EnginePool(commandLine, poolSize, minIdle, standby,
+                TimeUnit.SECONDS.toMillis(idleTimeoutSeconds), DEFAULT_MULTI_PV, this);
+            enginePool.start();
+            supervisor = new EngineSupervisor(enginePool, scheduler);
+            supervisor.start();
+            registerMetrics();
+
+            openAnalysisStore();
+            openOpeningBook();
+
+            recycleTask = scheduler.scheduleWithFixedDelay(enginePool::recycleIdle,
+                RECYCLE_INTERVAL_SECONDS, RECYCLE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+            Log.info("✅ Chess engine process started successfully");
+
         } catch (IOException e) {
-            System.err.println("❌ Failed to start chess engine: " + e.getMessage());
+            Log.error("❌ Failed to start chess engine: " + e.getMessage());
             if (statusWindow != null) {
                 statusWindow.updateEngineStatus(false);
             }
             throw e;
         }
     }
-    
+
+    /**
+     * Export searches, waiting batch positions, cache and publisher figures; read at scrape time
+     */
+    private void registerMetrics() {
+        Metrics.gauge("chessgpt_active_searches", "Sessions, batches and games holding an engine process",
+            this::getActiveSearchCount);
+        Metrics.gauge("chessgpt_analysis_sessions", "Sessions known to the engine", sessions::size);
+        Metrics.gauge("chessgpt_batch_pending_positions", "Batch positions waiting for an engine process", () -> {
+            int pending = 0;
+            for (SessionState session : sessions.values()) {
+                for (AnalysisBatch batch : session.batches.values()) {
+                    pending += batch.getPendingCount();
+                }
+            }
+            return pending;
+        });
+        Metrics.register("chessgpt_analysis_cache_lookups_total", "Analysis cache lookups by result",
+            Metrics.Type.COUNTER, samples -> {
+                samples.add(analysisCache.getHits(), "result", "hit");
+                samples.add(analysisCache.getMisses(), "result", "miss");
+            });
+        Metrics.gauge("chessgpt_analysis_cache_entries", "Positions in the analysis cache", analysisCache::getSize);
+        Metrics.register("chessgpt_publisher_frames_total", "Analysis frames by publisher decision",
+            Metrics.Type.COUNTER, samples -> {
+                samples.add(publisherCounters.getFramesSent(), "result", "sent");
+                samples.add(publisherCounters.getFramesSuppressed(), "result", "suppressed");
+            });
+        latency.registerMetrics();
+        PipelineStage.registerMetrics();
+    }
+
+    /**
+     * Start an unbounded analysis of a position for a session, stopped by the server-wide wall time cap
+     */
+    public boolean analyze(String sessionId, String fen) {
+        return analyze(sessionId, fen, SearchLimits.INFINITE);
+    }
+
+    /**
+     * Start analyzing a position for a session within the given limits.
+     * Cached lines are sent immediately; engine output is only published once it reaches the cached depth.
+     * When the search ends the final best move is reported and the process goes back to the pool;
+     * while it runs, the session keeps its lease so the engine hash stays warm between positions.
+     * A position a few moves away from the previous one continues the same move list, and a burst of
+     * requests (e.g. stepping through a game) only searches the position the user settles on.
+     * Returns false if no engine capacity is available for the session.
+     */
+    public boolean analyze(String sessionId, String fen, SearchLimits limits) {
+        return analyze(sessionId, fen, limits, System.nanoTime());
+    }
+
+    /**
+     * Start analyzing a position for a session; receivedAtNanos (System.nanoTime()) is when the request
+     * arrived and starts the end-to-end latency measurement
+     */
+    public boolean analyze(String sessionId, String fen, SearchLimits limits, long receivedAtNanos) {
+        SessionState session = sessions.computeIfAbsent(sessionId, SessionState::new);
+        SearchLimits capped = limits.withWallTimeCap(maxWallTimeMillis);
+
+        // Book moves go out before anything else, and like every listener call outside the session lock
+        List<OpeningBook.BookMove> bookMoves = openingBook != null ? openingBook.lookup(fen) : null;
+        if (bookMoves != null && listener != null) {
+            listener.onBookMoves(sessionId, fen, bookMoves);
+        }
+
+        Answer answer;
+        synchronized (session) {
+            answer = beginAnalysis(session, fen, capped, receivedAtNanos, bookMoves);
+        }
+        if (answer == Answer.BUSY) {
+            return false;
+        }
+        // Like a finished search, the answer goes out after the last frame and outside the session lock
+        if (answer != null) {
+            publishLatest(session);
+            if (listener != null) {
+                listener.onAnalysisComplete(sessionId, fen, answer.bestMove, answer.lines, false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Answer an analyze request from the cache or the book, or start its search; called holding the session lock.
+     * Returns the answer to report, Answer.BUSY without engine capacity, or null once the search is underway.
+     */
+    private Answer beginAnalysis(SessionState session, String fen, SearchLimits capped, long receivedAtNanos,
+                                 List<OpeningBook.BookMove> bookMoves) {
+        session.trace = latency.start(fen, receivedAtNanos);
+        long now = System.nanoTime();
+        boolean burst = debounceMillis > 0 && session.lastAnalyzeNanos != 0
+            && now - session.lastAnalyzeNanos < TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        session.lastAnalyzeNanos = now;
+        cancelDebouncedSearch(session);
+        session.currentFen = fen;
+        session.limits = capped;
+        session.resumes = 0;
+
+        AnalysisCache.Entry cached = lookupAnalysis(fen);
+        session.cachedDepth = cached != null ? cached.depth : 0;
+        session.storedDepth = session.cachedDepth;
+        if (cached != null) {
+            if (Log.isDebugEnabled()) {
+                Log.debug("💾 Cache hit at depth " + cached.depth + " for position: " + fen);
+            }
+            session.publisher.publishNow(fen, cached.lines);
+
+            // The cache already answers a depth-limited request
+            if (capped.isSatisfiedBy(cached.depth)) {
+                ANALYZE_CACHED.inc();
+                releaseSessionProcess(session);
+                AnalysisLine best = cached.lines.get("1");
+                return new Answer(best != null ? firstMove(best.uciMoves) : null, cached.lines);
+            }
+        }
+        if (bookMoves != null && !searchInBook) {
+            return answerFromBook(session, bookMoves, cached);
+        }
+
+        if (session.process == null || !session.process.isAlive()) {
+            if (session.process != null) {
+                sessionsByProcess.remove(session.process);
+            }
+            session.process = leaseProcess(session);
+            if (session.process == null) {
+                // Book positions search at lower priority: the book answer stands when no process is free
+                if (bookMoves != null) {
+                    return answerFromBook(session, bookMoves, cached);
+                }
+                ANALYZE_BUSY.inc();
+                return Answer.BUSY;
+            }
+            sessionsByProcess.put(session.process, session);
+            session.positions.reset();
+        }
+
+        if (burst) {
+            // Stop the superseded search now and search this position once the burst settles
+            EngineProcess process = session.process;
+            cancelSearchTimeout(process);
+            process.stop();
+            if (cached == null) {
+                resetPublisher(session);
+            }
+            session.debouncedSearch = scheduler.schedule(() -> startDebouncedSearch(session, process, fen, capped),
+                debounceMillis, TimeUnit.MILLISECONDS);
+            ANALYZE_DEBOUNCED.inc();
+            return null;
+        }
+        ANALYZE_SEARCHED.inc();
+        startSearch(session.process, session.positions.positionCommand(fen), fen, capped);
+        session.trace.record(AnalyzeLatency.Stage.COMMAND);
+        return null;
+    }
+
+    /**
+     * Start the search of the last position of a burst, unless a newer request or a stop replaced it
+     */
+    private void startDebouncedSearch(SessionState session, EngineProcess process, String fen, SearchLimits limits) {
+        synchronized (session) {
+            if (session.debouncedSearch == null || session.process != process || !fen.equals(session.currentFen)) {
+                return;
+            }
+            session.debouncedSearch = null;
+            if (Log.isDebugEnabled()) {
+                Log.debug("⏳ Burst settled for " + session.sessionId + ", searching: " + fen);
+            }
+            startSearch(process, session.positions.positionCommand(fen), fen, limits);
+            session.trace.record(AnalyzeLatency.Stage.COMMAND);
+        }
+    }
+
+    private void cancelDebouncedSearch(SessionState session) {
+        if (session.debouncedSearch != null) {
+            session.debouncedSearch.cancel(false);
+            session.debouncedSearch = null;
+        }
+    }
+
+    /**
+     * Analyze a list of positions with a fixed budget, reporting each result as soon as it completes.
+     * Positions are spread over the session's share of the pool and cached results are answered directly;
+     * when no process is free the batch waits for capacity.
+     * A batch with the same id replaces the running one.
+     */
+    public void analyzeBatch(String sessionId, String batchId, List<String> fens, SearchLimits limits) {
+        SessionState session = sessions.computeIfAbsent(sessionId, SessionState::new);
+        AnalysisBatch batch = new AnalysisBatch(batchId, sessionId, fens, limits.withWallTimeCap(maxWallTimeMillis));
+        AnalysisBatch previous = session.batches.put(batchId, batch);
+        if (previous != null) {
+            cancelBatch(previous);
+        }
+
+        Log.info("📦 Batch " + batchId + " for " + sessionId + ": " + fens.size() + " positions (" + limits + ")");
+        scheduleBatch(session, batch);
+        if (!batch.isFinished()) {
+            reportProgress(batch, true);
+        }
+        if (batch.getRunningCount() == 0 && batch.hasPending()) {
+            Log.info("⏳ Batch " + batchId + " is waiting for a free engine process");
+        }
+    }
+
+    /**
+     * Cancel a batch of a session, or every batch of the session when batchId is null
+     */
+    public void cancelBatch(String sessionId, String batchId) {
+        SessionState session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        for (AnalysisBatch batch : session.batches.values()) {
+            if (batchId == null || batchId.equals(batch.getId())) {
+                cancelBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Analyze every ply of a game in order on one engine process.
+     * Positions are sent as "position startpos moves ..." so the engine hash carries over between plies;
+     * each ply is reported as soon as it is evaluated, followed by a summary of the game.
+     * A game with the same id replaces the running one.
+     * Returns false if no engine capacity is available for the session.
+     */
+    public boolean analyzeGame(String sessionId, String gameId, GameRecord game, SearchLimits limits) {
+        SessionState session = sessions.computeIfAbsent(sessionId, SessionState::new);
+        GameAnalysis analysis = new GameAnalysis(gameId, sessionId, game, limits.withWallTimeCap(maxWallTimeMillis));
+        GameAnalysis previous = session.games.put(gameId, analysis);
+        if (previous != null) {
+            cancelGame(previous);
+        }
+
+        EngineProcess process = acquireWithinShare(session);
+        if (process == null) {
+            session.games.remove(gameId, analysis);
+            return false;
+        }
+        gamesByProcess.put(process, analysis);
+        analysis.setProcess(process);
+
+        Log.info("♟️ Game " + gameId + " for " + sessionId + ": " + game.getPlyCount() + " plies (" + limits + ")");
+        advanceGame(analysis);
+        return true;
+    }
+
     /**
-     * Send a command to the chess engine
+     * Cancel a game analysis of a session, or every game of the session when gameId is null
      */
-    public void sendCommand(String command) {
-        System.out.println("🎯 Sending to engine: " + command);
-        if (engineWriter != null) {
-            engineWriter.println(command);
+    public void cancelGame(String sessionId, String gameId) {
+        SessionState session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        for (GameAnalysis analysis : session.games.values()) {
+            if (gameId == null || gameId.equals(analysis.getId())) {
+                cancelGame(analysis);
+            }
         }
     }
-    
+
     /**
-     * Start analyzing a position
+     * Answer an analyze request with the top book move, plus cached lines if there are any
      */
-    public void analyze(String fen) {
-        stopAnalysis();
-        currentFen = fen;
-        System.out.println("🔍 Starting analysis for position: " + currentFen);
-        sendCommand("position fen " + currentFen);
-        sendCommand("go infinite");
+    private Answer answerFromBook(SessionState session, List<OpeningBook.BookMove> bookMoves,
+                                  AnalysisCache.Entry cached) {
+        ANALYZE_BOOK.inc();
+        releaseSessionProcess(session);
+        return new Answer(bookMoves.get(0).move, cached != null ? cached.lines : Collections.emptyMap());
     }
-    
+
     /**
-     * Stop current analysis
+     * Stop a session's analysis and return its engine process to the pool
      */
-    public void stopAnalysis() {
-        if (analysisTimeout != null) {
-            analysisTimeout.cancel(false);
+    public void stopAnalysis(String sessionId) {
+        SessionState session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        synchronized (session) {
+            cancelDebouncedSearch(session);
+            resetPublisher(session);
+            releaseSessionProcess(session);
         }
-        sendCommand("stop");
     }
-    
+
+    /**
+     * Return the process of a session's interactive analysis to the pool
+     */
+    private void releaseSessionProcess(SessionState session) {
+        EngineProcess process;
+        synchronized (session) {
+            process = session.process;
+            if (process == null) {
+                return;
+            }
+            sessionsByProcess.remove(process);
+            session.process = null;
+        }
+        cancelSearchTimeout(process);
+        enginePool.release(process);
+        scheduleWaitingBatches();
+    }
+
+    /**
+     * Stop analysis and forget all state of a session
+     */
+    public void closeSession(String sessionId) {
+        cancelBatch(sessionId, null);
+        cancelGame(sessionId, null);
+        stopAnalysis(sessionId);
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * Block until the first engine process answered "readyok"
+     */
+    public void awaitReady(long timeoutMillis) throws Exception {
+        try {
+            firstReady.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        } catch (TimeoutException e) {
+            throw new TimeoutException("No engine process answered readyok within " + timeoutMillis + "ms");
+        }
+    }
+
+    /**
+     * Attach the status window once it is built; the current engine status is shown right away
+     */
+    public void setStatusWindow(StatusWindow statusWindow) {
+        this.statusWindow = statusWindow;
+        if (statusWindow != null) {
+            statusWindow.updateEngineStatus(isReady());
+        }
+    }
+
     /**
      * Check if engine is ready for commands
      */
     public boolean isReady() {
-        return isInitialized && engineProcess != null && engineProcess.isAlive();
+        return isInitialized && enginePool != null && enginePool.hasReadyProcess();
     }
-    
+
     /**
-     * Get current analysis lines
+     * Get current analysis lines of a session
      */
-    public Map<String, AnalysisLine> getAnalysisLines() {
-        return new ConcurrentHashMap<>(analysisLines);
+    public Map<String, AnalysisLine> getAnalysisLines(String sessionId) {
+        SessionState session = sessions.get(sessionId);
+        EngineProcess process = session != null ? session.process : null;
+        if (process == null) {
+            return new ConcurrentHashMap<>();
+        }
+        return process.getAnalysisLines();
     }
-    
+
     /**
-     * Get current FEN being analyzed
+     * Get the FEN a session is analyzing
      */
-    public String getCurrentFen() {
-        return currentFen;
+    public String getCurrentFen(String sessionId) {
+        SessionState session = sessions.get(sessionId);
+        return session != null ? session.currentFen : null;
     }
-    
+
+    /**
+     * Number of sessions currently holding an engine process
+     */
+    public int getActiveSearchCount() {
+        return sessionsByProcess.size() + batchesByProcess.size() + gamesByProcess.size();
+    }
+
+    /**
+     * Get the position analysis cache
+     */
+    public AnalysisCache getAnalysisCache() {
+        return analysisCache;
+    }
+
+    /**
+     * Get frame counters of all session publishers
+     */
+    public AnalysisPublisher.Counters getPublisherCounters() {
+        return publisherCounters;
+    }
+
+    /**
+     * Get end-to-end analyze latency histograms
+     */
+    public AnalyzeLatency getLatency() {
+        return latency;
+    }
+
+    /**
+     * Get engine pool utilisation summary
+     */
+    public String getPoolStats() {
+        return enginePool != null ? enginePool.getStats() : "pool not started";
+    }
+
     /**
      * Shutdown the chess engine
      */
     public void shutdown() {
-        System.out.println("🎯 Stopping chess engine...");
-        
+        Log.info("🎯 Stopping chess engine...");
+
         // Stop any ongoing analysis
-        stopAnalysis();
-        
-        // Stop engine process
-        if (engineProcess != null && engineProcess.isAlive()) {
-            engineProcess.destroy();
-            try {
-                if (!engineProcess.waitFor(3, java.util.concurrent.TimeUnit.SECONDS)) {
-                    System.out.println("⚠️  Force killing chess engine...");
-                    engineProcess.destroyForcibly();
-                }
-                System.out.println("✅ Chess engine stopped");
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("❌ Interrupted while stopping chess engine");
-            }
+        for (String sessionId : sessions.keySet()) {
+            closeSession(sessionId);
+        }
+        publisherStage.stop();
+
+        if (supervisor != null) {
+            supervisor.stop();
+            Log.info("📊 Engine supervisor stats: " + supervisor.getStats());
         }
-        
+
+        // Stop engine processes
+        if (enginePool != null) {
+            Log.info("📊 Engine pool stats: " + enginePool.getStats());
+            Log.info("📊 Analysis cache stats: " + analysisCache.getStats());
+            Log.info("📊 Analysis publisher stats: " + publisherCounters.getStats());
+            Log.info("📊 Search switch stats: " + enginePool.getSwitchCounters().getStats());
+            Log.info("📊 Analyze latency:" + latency.getSummary());
+            Log.info("📊 Pipeline stages:" + PipelineStage.getSummaries());
+            enginePool.shutdown();
+        }
+
+        // Flush and unmap the persistent store
+        if (analysisStore != null) {
+            analysisStore.close();
+        }
+        if (openingBook != null) {
+            openingBook.close();
+        }
+
         // Shutdown scheduler
         if (scheduler != null) {
-            System.out.println("⏰ Stopping engine scheduler...");
+            Log.info("⏰ Stopping engine scheduler...");
+            if (recycleTask != null) {
+                recycleTask.cancel(false);
+            }
             scheduler.shutdown();
             try {
                 if (!scheduler.awaitTermination(2, java.util.concurrent.TimeUnit.SECONDS)) {
                     scheduler.shutdownNow();
                 }
-                System.out.println("✅ Engine scheduler stopped");
+                Log.info("✅ Engine scheduler stopped");
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 scheduler.shutdownNow();
             }
         }
     }
-    
-    private void readEngineOutput() {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(engineProcess.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                System.out.println("🎯 Engine output: " + line);
-                processEngineOutput(line);
-            }
+
+    /**
+     * Open the persistent analysis store when enabled with -Dchessgpt.store.enabled=true.
+     * It lives in -Dchessgpt.store.dir (default ~/.chessgpt/analysis-store) and takes about 1 MB of index,
+     * doubling as it fills, plus data-NNNNN.seg files of 64 MB each, the first created on open (sparse
+     * where the file system supports it). Records are forced to disk every -Dchessgpt.store.syncSeconds
+     * and on shutdown; a power loss loses at most that window.
+     */
+    private void openAnalysisStore() {
+        if (!Boolean.parseBoolean(System.getProperty("chessgpt.store.enabled", "false"))) {
+            return;
+        }
+        File directory = new File(System.getProperty("chessgpt.store.dir",
+            System.getProperty("user.home") + File.separator + ".chessgpt" + File.separator + "analysis-store"));
+        try {
+            long syncSeconds = Long.getLong("chessgpt.store.syncSeconds", DEFAULT_STORE_SYNC_SECONDS);
+            AnalysisStore store = new AnalysisStore(directory, STORE_INITIAL_SLOTS, STORE_SEGMENT_SIZE,
+                TimeUnit.SECONDS.toMillis(syncSeconds));
+            store.open();
+            analysisStore = store;
         } catch (IOException e) {
-            System.err.println("❌ Error reading engine output: " + e.getMessage());
-            if (statusWindow != null) {
-                statusWindow.updateEngineStatus(false);
+            Log.warn("⚠️  Analysis store unavailable, continuing without it: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Map the Polyglot book given by -Dchessgpt.book.path; without a path there is no book
+     */
+    private void openOpeningBook() {
+        String path = System.getProperty("chessgpt.book.path");
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        try {
+            OpeningBook book = OpeningBook.open(new File(path));
+            Metrics.register("chessgpt_book_lookups_total", "Opening book lookups by result",
+                Metrics.Type.COUNTER, samples -> {
+                    samples.add(book.getHits(), "result", "hit");
+                    samples.add(book.getLookups() - book.getHits(), "result", "miss");
+                });
+            openingBook = book;
+            Log.info("📖 Opening book opened: " + path + " (" + book.getEntryCount() + " entries, "
+                + (searchInBook ? "engine searches book positions when a process is free" : "engine skips book positions") + ")");
+        } catch (IOException e) {
+            Log.warn("⚠️  Opening book unavailable, continuing without it: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start a search and, if it has a wall time, schedule the stop that enforces it
+     */
+    private void startSearch(EngineProcess process, String positionCommand, String fen, SearchLimits limits) {
+        cancelSearchTimeout(process);
+        process.search(positionCommand, fen, limits);
+
+        long wallTime = limits.getMaxWallTimeMillis();
+        if (wallTime > 0) {
+            long generation = process.getGeneration();
+            searchTimeouts.put(process, scheduler.schedule(() -> {
+                if (process.getGeneration() == generation && process.isSearching()) {
+                    Log.info("⏰ [engine-" + process.getId() + "] Wall time of " + wallTime + "ms reached, stopping search");
+                    timedOut.add(process);
+                    process.stop();
+                }
+            }, wallTime, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void cancelSearchTimeout(EngineProcess process) {
+        ScheduledFuture<?> timeout = searchTimeouts.remove(process);
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        timedOut.remove(process);
+    }
+
+    /**
+     * Find analysis of a position in the cache, falling back to the persistent store
+     */
+    private AnalysisCache.Entry lookupAnalysis(String fen) {
+        AnalysisCache.Entry cached = analysisCache.get(fen);
+        if (cached == null && analysisStore != null) {
+            Map<String, AnalysisLine> stored = analysisStore.get(fen);
+            if (stored != null) {
+                analysisCache.put(fen, stored);
+                cached = new AnalysisCache.Entry(AnalysisCache.completedDepth(stored), stored);
             }
+        }
+        return cached;
+    }
+
+    /**
+     * Lease a process for a session, limited to its fair share of the pool
+     */
+    private EngineProcess leaseProcess(SessionState session) {
+        try {
+            if (leasesHeldBy(session) >= fairShare()) {
+                Log.warn("❌ Session " + session.sessionId + " reached its fair share of engine processes");
+                return null;
+            }
+            EngineProcess process = enginePool.acquire();
+            if (process == null) {
+                Log.warn("❌ All " + enginePool.getMaxSize() + " engine processes are busy");
+            }
+            return process;
+        } catch (IOException e) {
+            Log.error("❌ Failed to start chess engine: " + e.getMessage());
             if (listener != null) {
-                listener.onEngineError("Error reading engine output: " + e.getMessage());
+                listener.onEngineError("Failed to start chess engine: " + e.getMessage());
             }
+            return null;
         }
-        
-        System.err.println("❌ Chess engine process terminated");
-        if (statusWindow != null) {
-            statusWindow.updateEngineStatus(false);
+    }
+
+    /**
+     * Engine processes each session may hold when capacity is split evenly
+     */
+    private int fairShare() {
+        int activeSessions = Math.max(1, sessions.size());
+        return Math.max(1, enginePool.getMaxSize() / activeSessions);
+    }
+
+    private int leasesHeldBy(SessionState session) {
+        int count = 0;
+        for (SessionState owner : sessionsByProcess.values()) {
+            if (owner == session) {
+                count++;
+            }
         }
+        for (AnalysisBatch batch : batchesByProcess.values()) {
+            if (batch.getSessionId().equals(session.sessionId)) {
+                count++;
+            }
+        }
+        for (GameAnalysis analysis : gamesByProcess.values()) {
+            if (analysis.getSessionId().equals(session.sessionId)) {
+                count++;
+            }
+        }
+        return count;
     }
-    
-    private void readEngineErrors() {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(engineProcess.getErrorStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                System.err.println("🎯 Engine error: " + line);
-                if (listener != null) {
-                    listener.onEngineError(line);
+
+    // ============= Batch Scheduling =============
+
+    /**
+     * Start pending positions of a batch on as many processes as the session's fair share allows
+     */
+    private void scheduleBatch(SessionState session, AnalysisBatch batch) {
+        while (true) {
+            int index = nextUncachedPosition(batch);
+            if (index < 0) {
+                break;
+            }
+            EngineProcess process = acquireWithinShare(session);
+            if (process == null) {
+                batch.requeue(index);
+                break;
+            }
+            batchesByProcess.put(process, batch);
+            if (!batch.start(process, index)) {
+                batchesByProcess.remove(process);
+                enginePool.release(process);
+                break;
+            }
+            startSearch(process, "position fen " + batch.getFen(index), batch.getFen(index), batch.getLimits());
+        }
+        finishIfDone(batch);
+    }
+
+    /**
+     * Give every batch waiting for capacity a chance to use freed processes
+     */
+    private void scheduleWaitingBatches() {
+        for (SessionState session : sessions.values()) {
+            for (AnalysisBatch batch : session.batches.values()) {
+                if (batch.hasPending()) {
+                    scheduleBatch(session, batch);
                 }
             }
+        }
+    }
+
+    /**
+     * Take the next batch position that needs an engine, answering cached positions on the way.
+     * Returns -1 when nothing is left to search.
+     */
+    private int nextUncachedPosition(AnalysisBatch batch) {
+        int index;
+        while ((index = batch.pollPending()) >= 0) {
+            String fen = batch.getFen(index);
+            AnalysisCache.Entry cached = lookupAnalysis(fen);
+            if (cached == null || !batch.getLimits().isSatisfiedBy(cached.depth)) {
+                return index;
+            }
+            AnalysisLine best = cached.lines.get("1");
+            String bestMove = best != null ? firstMove(best.uciMoves) : null;
+            completePosition(batch, index, fen, bestMove, cached.lines);
+        }
+        return -1;
+    }
+
+    /**
+     * Lease a process for a batch or game without exceeding the session's fair share
+     */
+    private EngineProcess acquireWithinShare(SessionState session) {
+        if (leasesHeldBy(session) >= fairShare()) {
+            return null;
+        }
+        try {
+            return enginePool.acquire();
         } catch (IOException e) {
-            System.err.println("❌ Error reading engine errors: " + e.getMessage());
+            Log.error("❌ Failed to start chess engine: " + e.getMessage());
+            if (listener != null) {
+                listener.onEngineError("Failed to start chess engine: " + e.getMessage());
+            }
+            return null;
         }
     }
-    
-    private void processEngineOutput(String line) {
-        // Handle UCI initialization responses
-        if ("uciok".equals(line.trim())) {
-            System.out.println("✅ Chess engine UCI initialized");
-            if (statusWindow != null) {
-                statusWindow.updateEngineStatus(true);
+
+    private void completePosition(AnalysisBatch batch, int index, String fen, String bestMove,
+                                  Map<String, AnalysisLine> lines) {
+        batch.complete();
+        if (listener != null) {
+            listener.onBatchResult(batch.getSessionId(), batch.getId(), index, fen, bestMove, lines);
+        }
+        reportProgress(batch, false);
+    }
+
+    private void reportProgress(AnalysisBatch batch, boolean force) {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(BATCH_PROGRESS_INTERVAL_MILLIS);
+        if (listener != null && (batch.shouldReportProgress(intervalNanos) || force)) {
+            listener.onBatchProgress(batch.getSessionId(), batch.getId(),
+                batch.getCompleted(), batch.getTotal(), batch.getRunningCount());
+        }
+    }
+
+    private void finishIfDone(AnalysisBatch batch) {
+        if (!batch.markFinishedIfDone()) {
+            return;
+        }
+        SessionState session = sessions.get(batch.getSessionId());
+        if (session != null) {
+            session.batches.remove(batch.getId(), batch);
+        }
+        Log.info("✅ Batch " + batch.getId() + " complete: " + batch.getTotal() + " positions");
+        if (listener != null) {
+            listener.onBatchComplete(batch.getSessionId(), batch.getId(), batch.getCompleted(), batch.getTotal(), false);
+        }
+    }
+
+    private void cancelBatch(AnalysisBatch batch) {
+        List<EngineProcess> processes = batch.cancel();
+        SessionState session = sessions.get(batch.getSessionId());
+        if (session != null) {
+            session.batches.remove(batch.getId(), batch);
+        }
+        for (EngineProcess process : processes) {
+            batchesByProcess.remove(process);
+            enginePool.release(process);
+        }
+        if (batch.isCancelled()) {
+            Log.info("⏹️ Batch " + batch.getId() + " cancelled after " + batch.getCompleted() + "/" + batch.getTotal() + " positions");
+            if (listener != null) {
+                listener.onBatchComplete(batch.getSessionId(), batch.getId(), batch.getCompleted(), batch.getTotal(), true);
+            }
+        }
+        if (!processes.isEmpty()) {
+            scheduleWaitingBatches();
+        }
+    }
+
+    // ============= Game Analysis =============
+
+    /**
+     * Search the next ply of a game, answering finished and cached positions without the engine
+     */
+    private void advanceGame(GameAnalysis analysis) {
+        GameRecord game = analysis.getGame();
+        int ply;
+        while ((ply = analysis.beginNextPly()) >= 0) {
+            String fen = game.getFen(ply);
+
+            Board board = Board.fromFen(fen);
+            if (board.isGameOver()) {
+                recordGamePly(analysis, ply, board.isInCheck() ? "#0" : "0.00", null, new ConcurrentHashMap<>());
+                continue;
+            }
+
+            AnalysisCache.Entry cached = lookupAnalysis(fen);
+            if (cached != null && analysis.getLimits().isSatisfiedBy(cached.depth)) {
+                AnalysisLine best = cached.lines.get("1");
+                recordGamePly(analysis, ply, best != null ? best.score : null,
+                    best != null ? firstMove(best.uciMoves) : null, cached.lines);
+                continue;
             }
-        } else if ("readyok".equals(line.trim())) {
-            System.out.println("✅ Chess engine ready for commands");
+
+            EngineProcess process = analysis.getProcess();
+            if (process != null) {
+                startSearch(process, game.getPositionCommand(ply), fen, analysis.getLimits());
+            }
+            return;
+        }
+        finishGame(analysis);
+    }
+
+    private void recordGamePly(GameAnalysis analysis, int ply, String score, String bestMove,
+                               Map<String, AnalysisLine> lines) {
+        GameAnalysis.PlyResult result = analysis.record(ply, score, bestMove, lines);
+        if (result != null && listener != null) {
+            listener.onGamePly(analysis.getSessionId(), analysis.getId(), result,
+                analysis.getCompleted(), analysis.getTotal());
+        }
+    }
+
+    private void finishGame(GameAnalysis analysis) {
+        if (!analysis.markFinishedIfDone()) {
+            return;
+        }
+        EngineProcess process = analysis.getProcess();
+        analysis.setProcess(null);
+        if (process != null) {
+            gamesByProcess.remove(process);
+            enginePool.release(process);
+        }
+        SessionState session = sessions.get(analysis.getSessionId());
+        if (session != null) {
+            session.games.remove(analysis.getId(), analysis);
+        }
+
+        GameAnalysis.Summary summary = analysis.getSummary();
+        Log.info("✅ Game " + analysis.getId() + " analyzed: " + summary.plies + " plies, blunders white="
+            + summary.white.blunders + " black=" + summary.black.blunders);
+        if (listener != null) {
+            listener.onGameComplete(analysis.getSessionId(), analysis.getId(), summary, false);
+        }
+        if (process != null) {
+            scheduleWaitingBatches();
+        }
+    }
+
+    private void cancelGame(GameAnalysis analysis) {
+        EngineProcess process = analysis.cancel();
+        SessionState session = sessions.get(analysis.getSessionId());
+        if (session != null) {
+            session.games.remove(analysis.getId(), analysis);
+        }
+        if (process != null) {
+            gamesByProcess.remove(process);
+            enginePool.release(process);
+        }
+        if (analysis.isCancelled()) {
+            Log.info("⏹️ Game " + analysis.getId() + " cancelled after " + analysis.getCompleted() + "/" + analysis.getTotal() + " positions");
+            if (listener != null) {
+                listener.onGameComplete(analysis.getSessionId(), analysis.getId(), analysis.getSummary(), true);
+            }
+        }
+        if (process != null) {
+            scheduleWaitingBatches();
+        }
+    }
+
+    /**
+     * Restart a session's search on a new process after its engine died
+     */
+    private void resumeSession(SessionState session, EngineProcess dead) {
+        synchronized (session) {
+            if (session.process != dead) {
+                return;
+            }
+            session.process = null;
+            cancelSearchTimeout(dead);
+            cancelDebouncedSearch(session);
+            session.positions.reset();
+
+            if (++session.resumes > MAX_RESUMES) {
+                Log.warn("⚠️  Not resuming analysis for " + session.sessionId + ": " + MAX_RESUMES
+                    + " engines died on position " + session.currentFen);
+                if (listener != null) {
+                    listener.onEngineError("Engine processes keep dying on position " + session.currentFen);
+                }
+                return;
+            }
+            EngineProcess replacement = leaseProcess(session);
+            if (replacement == null) {
+                Log.warn("⚠️  Could not resume analysis for " + session.sessionId + ": no engine process available");
+                if (listener != null) {
+                    listener.onEngineError("Engine process " + dead.getId() + " died and no replacement is available");
+                }
+                return;
+            }
+            session.process = replacement;
+            sessionsByProcess.put(replacement, session);
+            Log.info("🔁 Resuming analysis for " + session.sessionId + " on engine-" + replacement.getId()
+                + " (engine-" + dead.getId() + " died)");
+            startSearch(replacement, session.positions.positionCommand(session.currentFen), session.currentFen,
+                session.limits);
+        }
+    }
+
+    private static String firstMove(String uciMoves) {
+        int space = uciMoves.indexOf(' ');
+        return space < 0 ? uciMoves : uciMoves.substring(0, space);
+    }
+
+    // ============= Engine Process Listener Implementation =============
+
+    @Override
+    public void onProcessReady(EngineProcess process) {
+        if (statusWindow != null) {
+            statusWindow.updateEngineStatus(true);
+        }
+        if (!isInitialized) {
             isInitialized = true;
+            firstReady.complete(null);
             if (listener != null) {
                 listener.onEngineReady();
             }
         }
-        // Handle analysis output
-        else if (line.startsWith("info") && line.contains("multipv")) {
-            processAnalysisLine(line);
-        }
-    }
-    
-    private void processAnalysisLine(String line) {
-        Matcher matcher = INFO_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String depth = matcher.group(1);
-            String seldepth = matcher.group(2);
-            String pvNum = matcher.group(3);
-            String scoreType = matcher.group(4);
-            String scoreValue = matcher.group(5);
-            String nodes = matcher.group(6);
-            String moves = matcher.group(7);
-            
-            int depthValue = Integer.parseInt(depth);
-            
-            // Clear old lines when receiving first line with depth 1
-            if (depthValue == 1 && pvNum.equals("1")) {
-                analysisLines.clear();
-                System.out.println("🧹 Cleared previous analysis lines (new analysis started with depth 1)");
-            }
-            
-            String[] moveList = moves.trim().split(" ");
-            
-            // Determine whose turn it is from FEN
-            String[] fenParts = currentFen.split(" ");
-            boolean isWhiteToMove = fenParts.length > 1 && "w".equals(fenParts[1]);
-            
-            // Format score based on evaluation type
-            String score;
-            if ("mate".equals(scoreType)) {
-                int mateValue = Integer.parseInt(scoreValue);
-                if (!isWhiteToMove) {
-                    mateValue = -mateValue;
-                }
-                score = "#" + mateValue;
+    }
+
+    @Override
+    public void onProcessError(EngineProcess process, String error) {
+        if (listener != null) {
+            listener.onEngineError(error);
+        }
+    }
+
+    @Override
+    public void onProcessTerminated(EngineProcess process) {
+        // Resume an interrupted interactive search on a standby process
+        SessionState interrupted = sessionsByProcess.remove(process);
+        if (interrupted != null) {
+            resumeSession(interrupted, process);
+        }
+
+        // Continue an interrupted game on a new process from the ply it was searching
+        GameAnalysis analysis = gamesByProcess.remove(process);
+        if (analysis != null) {
+            SessionState owner = sessions.get(analysis.getSessionId());
+            EngineProcess replacement = owner != null ? acquireWithinShare(owner) : null;
+            if (replacement != null && !analysis.isCancelled()) {
+                gamesByProcess.put(replacement, analysis);
+                analysis.setProcess(replacement);
+                advanceGame(analysis);
             } else {
-                double numericScore = Integer.parseInt(scoreValue) / 100.0;
-                if (!isWhiteToMove) {
-                    numericScore = -numericScore;
+                if (replacement != null) {
+                    enginePool.release(replacement);
                 }
-                score = String.format("%.2f", numericScore);
-            }
-            
-            // Create analysis line
-            AnalysisLine analysisLine = new AnalysisLine();
-            analysisLine.score = score;
-            analysisLine.depth = depthValue;
-            analysisLine.nodes = Long.parseLong(nodes);
-            analysisLine.uciMoves = String.join(" ", moveList);
-            analysisLine.fen = currentFen;
-            
-            analysisLines.put(pvNum, analysisLine);
-            
-            // Notify listener about analysis update
-            if (listener != null) {
-                listener.onAnalysisUpdate(currentFen, getAnalysisLines());
+                analysis.setProcess(null);
+                cancelGame(analysis);
+            }
+        }
+
+        // Hand the interrupted batch position to another process
+        AnalysisBatch batch = batchesByProcess.remove(process);
+        if (batch != null) {
+            int index = batch.detach(process);
+            if (index >= 0) {
+                batch.requeue(index);
+            }
+            SessionState session = sessions.get(batch.getSessionId());
+            if (session != null) {
+                scheduleBatch(session, batch);
+            }
+        }
+        if (!isInitialized && enginePool != null && enginePool.getSize() == 0) {
+            firstReady.completeExceptionally(new IOException("Engine process exited before answering readyok"));
+        }
+        if (statusWindow != null && enginePool != null) {
+            statusWindow.updateEngineStatus(enginePool.hasReadyProcess());
+        }
+    }
+
+    @Override
+    public void onAnalysisUpdate(EngineProcess process, String fen, Map<String, AnalysisLine> lines) {
+        // Route output to the session holding the process
+        SessionState session = sessionsByProcess.get(process);
+        if (session == null) {
+            return;
+        }
+        // Output of a search superseded by a newer request
+        if (!fen.equals(session.currentFen)) {
+            return;
+        }
+        int depth = AnalysisCache.completedDepth(lines);
+        AnalyzeLatency.Trace trace = session.trace;
+        if (trace != null && fen.equals(trace.getFen())) {
+            trace.record(AnalyzeLatency.Stage.FIRST_INFO);
+            trace.recordDepth(depth);
+        }
+
+        // The engine updates these lines in place: cache a copy, and persist it in the background,
+        // once per completed depth
+        if (depth > session.storedDepth) {
+            session.storedDepth = depth;
+            Map<String, AnalysisLine> snapshot = AnalysisLine.snapshot(lines);
+            analysisCache.put(fen, snapshot);
+            if (analysisStore != null && depth >= storeMinDepth) {
+                analysisStore.putAsync(fen, snapshot);
+            }
+        }
+
+        // Cached lines were already sent, skip engine output that is shallower
+        if (depth < session.cachedDepth) {
+            return;
+        }
+        session.publisher.submit(fen, lines);
+    }
+
+    @Override
+    public void onSearchComplete(EngineProcess process, String fen, String bestMove, Map<String, AnalysisLine> lines) {
+        boolean stoppedByTimeout = timedOut.contains(process);
+        cancelSearchTimeout(process);
+
+        // Interactive analysis: publish the final lines, report the best move and free the process
+        SessionState session = sessionsByProcess.get(process);
+        if (session != null) {
+            completeSessionSearch(session, process, fen, bestMove, lines, stoppedByTimeout);
+            return;
+        }
+
+        GameAnalysis analysis = gamesByProcess.get(process);
+        if (analysis != null) {
+            int ply = analysis.getSearchingPly();
+            if (ply < 0) {
+                return;
+            }
+            analysisCache.put(fen, lines);
+            if (analysisStore != null && AnalysisCache.completedDepth(lines) >= storeMinDepth) {
+                analysisStore.putAsync(fen, lines);
+            }
+            AnalysisLine best = lines.get("1");
+            recordGamePly(analysis, ply, best != null ? best.score : null, bestMove, lines);
+            advanceGame(analysis);
+            return;
+        }
+
+        AnalysisBatch batch = batchesByProcess.get(process);
+        if (batch == null) {
+            return;
+        }
+        int index = batch.detach(process);
+        if (index < 0) {
+            return;
+        }
+
+        analysisCache.put(fen, lines);
+        if (analysisStore != null && AnalysisCache.completedDepth(lines) >= storeMinDepth) {
+            analysisStore.putAsync(fen, lines);
+        }
+        completePosition(batch, index, fen, bestMove, lines);
+
+        // Keep the warm process on this batch while it has work, otherwise return it to the pool
+        int next = nextUncachedPosition(batch);
+        if (next >= 0 && batch.start(process, next)) {
+            startSearch(process, "position fen " + batch.getFen(next), batch.getFen(next), batch.getLimits());
+        } else {
+            if (next >= 0) {
+                batch.requeue(next);
+            }
+            batchesByProcess.remove(process);
+            enginePool.release(process);
+            scheduleWaitingBatches();
+        }
+        finishIfDone(batch);
+    }
+
+    private void completeSessionSearch(SessionState session, EngineProcess process, String fen, String bestMove,
+                                       Map<String, AnalysisLine> lines, boolean stoppedByTimeout) {
+        synchronized (session) {
+            if (session.process != process || !fen.equals(session.currentFen)) {
+                return;
             }
+            // The search a burst stopped ends with a bestmove too; for the same position (A, A or A, B, A)
+            // it would pass the check above and release the process the debounced search still needs
+            if (session.debouncedSearch != null) {
+                return;
+            }
+            session.publisher.flushPending();
+            releaseSessionProcess(session);
+        }
+        // The last frame goes out before the best move
+        publishLatest(session);
+        Log.info("🏁 Analysis for " + session.sessionId + " finished" + (stoppedByTimeout ? " (wall time reached)" : "")
+            + ": bestmove " + bestMove);
+        if (listener != null) {
+            listener.onAnalysisComplete(session.sessionId, fen, bestMove, lines, stoppedByTimeout);
         }
     }
-    
+
+    /**
+     * Publisher sink: keep only the latest frame of a session and queue the session if it was not queued yet
+     */
+    private void queueAnalysis(SessionState session, String fen, Map<String, AnalysisLine> lines) {
+        if (session.nextFrame.getAndSet(new PendingFrame(fen, lines)) != null) {
+            publisherStats.recordDropped();
+        } else {
+            publisherStage.offer(session, false);
+        }
+    }
+
+    /**
+     * Send the latest queued frame of a session, if any; runs on the publisher stage and before completion
+     */
+    private void publishLatest(SessionState session) {
+        synchronized (session.nextFrame) {
+            PendingFrame frame = session.nextFrame.getAndSet(null);
+            if (frame != null) {
+                publishAnalysis(session, frame.fen, frame.lines);
+            }
+        }
+    }
+
+    private void resetPublisher(SessionState session) {
+        session.publisher.reset();
+        session.nextFrame.set(null);
+    }
+
+    private void publishAnalysis(SessionState session, String fen, Map<String, AnalysisLine> lines) {
+        if (listener != null) {
+            listener.onAnalysisUpdate(session.sessionId, fen, lines);
+        }
+        AnalyzeLatency.Trace trace = session.trace;
+        if (trace != null && fen.equals(trace.getFen())) {
+            trace.record(AnalyzeLatency.Stage.FIRST_FRAME);
+        }
+    }
+
     /**
      * Represents a single line of chess analysis
      */
@@ -301,5 +1308,29 @@ public class ChessEngine {
         public long nodes;
         public String uciMoves;
         public String fen;
+
+        /**
+         * Copy the line; engine output updates it in place while holding its lock
+         */
+        public synchronized AnalysisLine copy() {
+            AnalysisLine line = new AnalysisLine();
+            line.score = score;
+            line.depth = depth;
+            line.nodes = nodes;
+            line.uciMoves = uciMoves;
+            line.fen = fen;
+            return line;
+        }
+
+        /**
+         * Copy a set of lines that may still be updated
+         */
+        public static Map<String, AnalysisLine> snapshot(Map<String, AnalysisLine> lines) {
+            Map<String, AnalysisLine> copy = new ConcurrentHashMap<>();
+            for (Map.Entry<String, AnalysisLine> entry : lines.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue().copy());
+            }
+            return copy;
+        }
     }
 }
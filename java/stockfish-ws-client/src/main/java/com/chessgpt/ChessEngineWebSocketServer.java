@@ -1,7 +1,11 @@
 package com.chessgpt;
 
 import javax.swing.SwingUtilities;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Chess Engine Application Orchestrator
@@ -12,20 +16,27 @@ public class ChessEngineWebSocketServer
     implements ChessEngine.ChessEngineListener, WebSocketClientManager.WebSocketClientListener, NgrokManager.NgrokManagerListener {
 
     private static final int DEFAULT_PORT = 8080;
+    private static final long DEFAULT_STARTUP_TIMEOUT_SECONDS = 30;
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_SECONDS = 10;
 
     // Component managers
     private ChessEngine chessEngine;
     private WebSocketClientManager clientManager;
     private NgrokManager ngrokManager;
     private ChessWebSocketServer webSocketServer; // Composition instead of inheritance
+    private MetricsServer metricsServer;
 
     // Utilities
-    private StatusWindow statusWindow;
+    private volatile StatusWindow statusWindow;
     private final int port;
 
+    // Lifecycle
+    private LifecycleManager startup;
+    private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
+
     public ChessEngineWebSocketServer(int port) {
         this.port = port;
-        System.out.println("Chess Engine Application initialized on port " + port);
+        Log.info("Chess Engine Application initialized on port " + port);
     }
 
     public ChessEngineWebSocketServer() {
@@ -38,45 +49,69 @@ public class ChessEngineWebSocketServer
     }
 
     /**
-     * Start the complete server (WebSocket + Chess Engine + ngrok)
+     * Start the complete server (WebSocket + Chess Engine + ngrok).
+     * Independent components start concurrently; each phase ends on its real readiness signal.
      */
     public void startServer() {
         try {
-            // Initialize GUI
-            statusWindow = new StatusWindow();
+            long timeoutMillis = TimeUnit.SECONDS.toMillis(
+                Long.getLong("chessgpt.startup.timeoutSeconds", DEFAULT_STARTUP_TIMEOUT_SECONDS));
 
-            // Initialize component managers
-            clientManager = new WebSocketClientManager(this, statusWindow);
-            chessEngine = new ChessEngine(this, statusWindow);
-            ngrokManager = new NgrokManager(port, this, statusWindow);
+            // Initialize component managers; the status window is attached once it is built
+            clientManager = new WebSocketClientManager(this, null);
+            chessEngine = new ChessEngine(this, null);
+            ngrokManager = new NgrokManager(port, this, null);
             
             // Create WebSocket server with client manager
             webSocketServer = new ChessWebSocketServer(port, clientManager);
-            
-            // Start chess engine
-            chessEngine.start();
+            metricsServer = new MetricsServer();
+            metricsServer.addPage("/latency", () -> "Analyze latency:" + chessEngine.getLatency().getSummary() + "\n");
+
+            startup = new LifecycleManager("startup");
+
+            // Initialize GUI
+            CompletableFuture<Void> window = startup.phase("status window", () -> {
+                statusWindow = new StatusWindow();
+                clientManager.setStatusWindow(statusWindow);
+                chessEngine.setStatusWindow(statusWindow);
+                ngrokManager.setStatusWindow(statusWindow);
+            });
+
+            // Start chess engine and wait for the first readyok
+            startup.phase("chess engine", () -> {
+                chessEngine.start();
+                chessEngine.awaitReady(timeoutMillis);
+            });
+
+            // Start WebSocket server and wait until it is bound
+            startup.phase("websocket server", () -> {
+                webSocketServer.start();
+                webSocketServer.awaitStarted(timeoutMillis);
+            });
+
+            // Serve /metrics for Prometheus
+            startup.phase("metrics endpoint", metricsServer::start);
 
-            // Start WebSocket server
-            webSocketServer.start();
+            // Start ngrok tunnel; it reports its progress in the status window
+            startup.phase("ngrok tunnel", ngrokManager::startTunnel, window);
 
-            System.out.println("🚀 Chess Engine Application started successfully");
-            System.out.println("  - WebSocket port: " + port);
-            System.out.println("  - Mode: Single client only");
-            System.out.println("  - Engine: Polyglot/Stockfish");
+            startup.await(timeoutMillis + ngrokManager.getStartTimeoutMillis());
+            startup.report();
 
-            // Start ngrok tunnel
-            ngrokManager.startTunnel();
+            Log.info("🚀 Chess Engine Application started successfully");
+            Log.info("  - WebSocket port: " + port);
+            Log.info("  - Mode: Multi-client sessions");
+            Log.info("  - Engine: Polyglot/Stockfish");
 
             // Setup enhanced shutdown hook
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                System.out.println("\n🚨 Shutdown signal received...");
+                Log.info("🚨 Shutdown signal received...");
                 shutdown();
             }, "ShutdownHook"));
 
             // Also handle Ctrl+C gracefully
-            System.out.println("💡 Press Ctrl+C to stop the server");
-            System.out.println("💡 All ngrok processes will be terminated on exit");
-            System.out.println("");
+            Log.info("💡 Press Ctrl+C to stop the server");
+            Log.info("💡 All ngrok processes will be terminated on exit");
 
             // Keep main thread alive
             while (true) {
@@ -84,8 +119,10 @@ public class ChessEngineWebSocketServer
             }
 
         } catch (Exception e) {
-            System.err.println("❌ Error starting Chess Engine Application: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("❌ Error starting Chess Engine Application: " + e.getMessage(), e);
+            if (startup != null) {
+                startup.report();
+            }
             // Ensure cleanup even if startup fails
             shutdown();
         }
@@ -95,50 +132,138 @@ public class ChessEngineWebSocketServer
 
     @Override
     public void onEngineReady() {
-        System.out.println("🎯 Chess engine ready for analysis requests");
+        Log.info("🎯 Chess engine ready for analysis requests");
     }
 
     @Override
     public void onEngineError(String error) {
-        System.err.println("🚨 Chess engine error: " + error);
+        Log.error("🚨 Chess engine error: " + error);
+    }
+
+    @Override
+    public void onAnalysisUpdate(String sessionId, String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (clientManager != null) {
+            clientManager.broadcastAnalysisToClient(sessionId, fen, lines);
+        }
+    }
+
+    @Override
+    public void onAnalysisComplete(String sessionId, String fen, String bestMove, Map<String, ChessEngine.AnalysisLine> lines,
+                                   boolean timedOut) {
+        if (clientManager != null) {
+            clientManager.sendDone(sessionId, fen, bestMove, lines, timedOut);
+        }
     }
 
     @Override
-    public void onAnalysisUpdate(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+    public void onBookMoves(String sessionId, String fen, List<OpeningBook.BookMove> moves) {
         if (clientManager != null) {
-            clientManager.broadcastAnalysisToClient(fen, lines);
+            clientManager.sendBookMoves(sessionId, fen, moves);
+        }
+    }
+
+    @Override
+    public void onBatchResult(String sessionId, String batchId, int index, String fen, String bestMove,
+                              Map<String, ChessEngine.AnalysisLine> lines) {
+        if (clientManager != null) {
+            clientManager.sendBatchResult(sessionId, batchId, index, fen, bestMove, lines);
+        }
+    }
+
+    @Override
+    public void onBatchProgress(String sessionId, String batchId, int completed, int total, int running) {
+        if (clientManager != null) {
+            clientManager.sendBatchProgress(sessionId, batchId, completed, total, running);
+        }
+    }
+
+    @Override
+    public void onBatchComplete(String sessionId, String batchId, int completed, int total, boolean cancelled) {
+        if (clientManager != null) {
+            clientManager.sendBatchComplete(sessionId, batchId, completed, total, cancelled);
+        }
+    }
+
+    @Override
+    public void onGamePly(String sessionId, String gameId, GameAnalysis.PlyResult result, int completed, int total) {
+        if (clientManager != null) {
+            clientManager.sendGamePly(sessionId, gameId, result, completed, total);
+        }
+    }
+
+    @Override
+    public void onGameComplete(String sessionId, String gameId, GameAnalysis.Summary summary, boolean cancelled) {
+        if (clientManager != null) {
+            clientManager.sendGameComplete(sessionId, gameId, summary, cancelled);
         }
     }
 
     // ============= WebSocket Client Listener Implementation =============
 
     @Override
-    public void onAnalyzeRequest(String fen) {
+    public void onAnalyzeRequest(ClientSession session, String fen, SearchLimits limits) {
         if (chessEngine != null) {
-            chessEngine.analyze(fen);
+            if (!chessEngine.analyze(session.getId(), fen, limits, session.getLastMessageNanos()) && clientManager != null) {
+                clientManager.sendBusyToClient(session, "All engine processes are busy");
+            }
         } else {
-            System.err.println("❌ Chess engine not initialized");
+            Log.error("❌ Chess engine not initialized");
         }
     }
 
     @Override
-    public void onStopRequest() {
+    public void onStopRequest(ClientSession session) {
         if (chessEngine != null) {
-            chessEngine.stopAnalysis();
+            chessEngine.stopAnalysis(session.getId());
         }
         if (clientManager != null) {
-            clientManager.sendResponseToClient("stopped", null);
+            clientManager.sendResponseToClient(session, "stopped", null);
+        }
+    }
+
+    @Override
+    public void onAnalyzeBatchRequest(ClientSession session, String batchId, List<String> fens, SearchLimits limits) {
+        if (chessEngine != null) {
+            chessEngine.analyzeBatch(session.getId(), batchId, fens, limits);
+        } else {
+            Log.error("❌ Chess engine not initialized");
+        }
+    }
+
+    @Override
+    public void onCancelBatchRequest(ClientSession session, String batchId) {
+        if (chessEngine != null) {
+            chessEngine.cancelBatch(session.getId(), batchId);
+        }
+    }
+
+    @Override
+    public void onAnalyzeGameRequest(ClientSession session, String gameId, GameRecord game, SearchLimits limits) {
+        if (chessEngine != null) {
+            if (!chessEngine.analyzeGame(session.getId(), gameId, game, limits) && clientManager != null) {
+                clientManager.sendBusyToClient(session, "All engine processes are busy");
+            }
+        } else {
+            Log.error("❌ Chess engine not initialized");
         }
     }
 
     @Override
-    public void onClientConnected(String clientAddress) {
-        System.out.println("🎯 Client connected: " + clientAddress);
+    public void onCancelGameRequest(ClientSession session, String gameId) {
+        if (chessEngine != null) {
+            chessEngine.cancelGame(session.getId(), gameId);
+        }
+    }
+
+    @Override
+    public void onClientConnected(ClientSession session) {
+        String clientAddress = session.getRemoteAddress();
+        Log.info("🎯 Client connected: " + session);
         
         // Show connection info
         if (ngrokManager != null && ngrokManager.isTunnelActive()) {
             String publicUrl = ngrokManager.getPublicUrl();
-            System.out.println("🌐 Client connected via ngrok tunnel: " + publicUrl);
+            Log.info("🌐 Client connected via ngrok tunnel: " + publicUrl);
             if (statusWindow != null) {
                 statusWindow.addNgrokStatusMessage("🌐 Client connected via ngrok tunnel from " + clientAddress);
             }
@@ -146,50 +271,50 @@ public class ChessEngineWebSocketServer
 
         // Check if chess engine is ready
         if (chessEngine != null && chessEngine.isReady()) {
-            System.out.println("🎯 Chess engine ready for analysis requests");
+            Log.info("🎯 Chess engine ready for analysis requests");
         }
     }
 
     @Override
-    public void onClientDisconnected(String clientAddress) {
-        System.out.println("🧹 Client disconnected: " + clientAddress);
+    public void onClientDisconnected(ClientSession session) {
+        Log.info("🧹 Client disconnected: " + session);
         
-        // Stop any ongoing analysis
+        // Stop the session's analysis and free its engine process
         if (chessEngine != null) {
-            chessEngine.stopAnalysis();
+            chessEngine.closeSession(session.getId());
         }
         
-        System.out.println("🧹 Stopped analysis due to client disconnect");
+        Log.info("🧹 Stopped analysis due to client disconnect");
     }
 
     @Override
     public void onClientError(String error) {
-        System.err.println("🚨 WebSocket client error: " + error);
+        Log.error("🚨 WebSocket client error: " + error);
     }
 
     @Override
     public void onServerStarted() {
-        System.out.println("🚀 WebSocket Server component started successfully");
+        Log.info("🚀 WebSocket Server component started successfully");
     }
 
     // ============= NgrokManager Listener Implementation =============
 
     @Override
     public void onTunnelEstablished(String publicUrl, String wsUrl, String webAppUrl) {
-        System.out.println("🌐 NgrokManager: Tunnel established successfully");
-        System.out.println("  - Public URL: " + publicUrl);
-        System.out.println("  - WebSocket URL: " + wsUrl);
-        System.out.println("  - Web App URL: " + webAppUrl);
+        Log.info("🌐 NgrokManager: Tunnel established successfully");
+        Log.info("  - Public URL: " + publicUrl);
+        Log.info("  - WebSocket URL: " + wsUrl);
+        Log.info("  - Web App URL: " + webAppUrl);
     }
 
     @Override
     public void onTunnelFailed(String errorMessage) {
-        System.err.println("🚨 NgrokManager: Tunnel failed - " + errorMessage);
+        Log.error("🚨 NgrokManager: Tunnel failed - " + errorMessage);
     }
 
     @Override
     public void onTunnelClosed() {
-        System.out.println("🌐 NgrokManager: Tunnel closed");
+        Log.info("🌐 NgrokManager: Tunnel closed");
     }
 
     // ============= Utility Methods =============
@@ -220,46 +345,78 @@ public class ChessEngineWebSocketServer
         return port;
     }
 
+    /**
+     * Phase timings of the last startup, or null before startServer()
+     */
+    public LifecycleManager getStartup() {
+        return startup;
+    }
+
     // ============= Shutdown Management =============
 
+    /**
+     * Stop every component; after clients are disconnected the components stop concurrently
+     */
     public void shutdown() {
-        System.out.println("🛑 Shutting down Chess Engine Application...");
+        if (!shuttingDown.compareAndSet(false, true)) {
+            return;
+        }
+        Log.info("🛑 Shutting down Chess Engine Application...");
 
-        // Disconnect client gracefully
+        // Disconnect clients gracefully
         if (clientManager != null) {
-            clientManager.disconnectClient("Server shutting down");
+            clientManager.disconnectAllClients("Server shutting down");
         }
 
+        LifecycleManager stopping = new LifecycleManager("shutdown");
+
         // Stop WebSocket server
         if (webSocketServer != null) {
-            try {
+            stopping.phase("websocket server", () -> {
                 webSocketServer.stop();
-                System.out.println("✅ WebSocket server stopped");
-            } catch (Exception e) {
-                System.err.println("❌ Error stopping WebSocket server: " + e.getMessage());
-                e.printStackTrace();
-            }
+                Log.info("✅ WebSocket server stopped");
+            });
+        }
+
+        // Stop metrics endpoint
+        if (metricsServer != null) {
+            stopping.phase("metrics endpoint", metricsServer::stop);
         }
 
         // Stop ngrok tunnel
         if (ngrokManager != null) {
-            ngrokManager.stopTunnel();
+            stopping.phase("ngrok tunnel", ngrokManager::stopTunnel);
         }
 
         // Stop chess engine
         if (chessEngine != null) {
-            chessEngine.shutdown();
+            stopping.phase("chess engine", chessEngine::shutdown);
         }
 
         // Close StatusWindow
-        if (statusWindow != null) {
-            SwingUtilities.invokeLater(() -> {
-                statusWindow.setVisible(false);
-                statusWindow.dispose();
+        StatusWindow window = statusWindow;
+        if (window != null) {
+            stopping.phase("status window", () -> {
+                SwingUtilities.invokeLater(() -> {
+                    window.setVisible(false);
+                    window.dispose();
+                });
+                Log.info("✅ Status window closed");
             });
-            System.out.println("✅ Status window closed");
         }
 
-        System.out.println("✅ Chess Engine Application shutdown complete");
+        try {
+            stopping.await(TimeUnit.SECONDS.toMillis(
+                Long.getLong("chessgpt.shutdown.timeoutSeconds", DEFAULT_SHUTDOWN_TIMEOUT_SECONDS)));
+        } catch (Exception e) {
+            Log.error("❌ Shutdown incomplete: " + e.getMessage());
+        }
+        stopping.report();
+
+        if (Log.getDroppedCount() > 0) {
+            Log.warn("⚠️  Log events dropped under load: " + Log.getDroppedCount());
+        }
+        Log.info("✅ Chess Engine Application shutdown complete");
+        Log.flush();
     }
 }
\ No newline at end of file
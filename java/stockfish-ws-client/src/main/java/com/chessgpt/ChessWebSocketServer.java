@@ -1,10 +1,20 @@
 package com.chessgpt;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
 import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
 import org.java_websocket.server.WebSocketServer;
 
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Dedicated WebSocket Server
@@ -13,21 +23,48 @@ import java.net.InetSocketAddress;
 public class ChessWebSocketServer extends WebSocketServer {
     
     private WebSocketClientManager clientManager;
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
     
     public ChessWebSocketServer(int port, WebSocketClientManager clientManager) {
-        super(new InetSocketAddress(port));
+        super(new InetSocketAddress(port), createDrafts());
         this.clientManager = clientManager;
     }
+
+    /**
+     * Accept the binary analysis subprotocol when offered, plain JSON otherwise
+     */
+    private static List<Draft> createDrafts() {
+        List<IProtocol> protocols = List.of(
+            new Protocol(BinaryAnalysisCodec.SUBPROTOCOL),
+            new Protocol("")
+        );
+        return List.of(new Draft_6455(Collections.emptyList(), protocols));
+    }
+    
+    /**
+     * Block until the server is bound and accepting connections
+     */
+    public void awaitStarted(long timeoutMillis) throws Exception {
+        try {
+            started.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        } catch (TimeoutException e) {
+            throw new TimeoutException("WebSocket server did not start within " + timeoutMillis + "ms");
+        }
+    }
     
     @Override
     public void onStart() {
-        System.out.println("🚀 WebSocket Server started successfully");
-        System.out.println("  - Listening on: " + getAddress());
-        System.out.println("  - Single client mode enabled");
+        Log.info("🚀 WebSocket Server started successfully");
+        Log.info("  - Listening on: " + getAddress());
+        Log.info("  - Multi-client sessions enabled");
+        Log.info("  - Subprotocols: JSON, " + BinaryAnalysisCodec.SUBPROTOCOL);
         
         if (clientManager != null) {
             clientManager.onServerStarted();
         }
+        started.complete(null);
     }
     
     @Override
@@ -53,6 +90,10 @@ public class ChessWebSocketServer extends WebSocketServer {
     
     @Override
     public void onError(WebSocket conn, Exception ex) {
+        // Without a connection the error comes from the server itself, e.g. the port is taken
+        if (conn == null && !started.isDone()) {
+            started.completeExceptionally(ex);
+        }
         if (clientManager != null) {
             clientManager.handleError(conn, ex);
         }
@@ -0,0 +1,203 @@
+package com.chessgpt;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client Session
+ * State of one WebSocket connection, attached to the connection
+ */
+public class ClientSession {
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+    private static final Metrics.Counter FRAMES_COALESCED =
+        Metrics.counter("chessgpt_ws_frames_coalesced_total", "Analysis frames to lagging clients replaced by a newer snapshot");
+
+    private final String id;
+    private final WebSocket connection;
+    private final String remoteAddress;
+    private final BinaryAnalysisCodec binaryCodec;
+    private final AnalysisJsonWriter jsonWriter;
+    private final long connectedAtMillis = System.currentTimeMillis();
+
+    // Outgoing traffic, updated on every send
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private volatile long lastMessageNanos = System.nanoTime();
+
+    // Backpressure: newest analysis held back while the send queue is over its limit, guarded by this session
+    private final LongAdder framesCoalesced = new LongAdder();
+    private String heldFen;
+    private Map<String, ChessEngine.AnalysisLine> heldLines;
+    private volatile long backloggedSinceNanos;
+
+    public ClientSession(WebSocket connection, boolean binary) {
+        this.id = "session-" + NEXT_ID.getAndIncrement();
+        this.connection = connection;
+        this.remoteAddress = String.valueOf(connection.getRemoteSocketAddress());
+        this.binaryCodec = binary ? new BinaryAnalysisCodec() : null;
+        this.jsonWriter = binary ? null : new AnalysisJsonWriter();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public WebSocket getConnection() {
+        return connection;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Codec for the binary subprotocol, or null for JSON clients
+     */
+    public BinaryAnalysisCodec getBinaryCodec() {
+        return binaryCodec;
+    }
+
+    /**
+     * Analysis frame writer for JSON clients, or null for binary clients
+     */
+    public AnalysisJsonWriter getJsonWriter() {
+        return jsonWriter;
+    }
+
+    public boolean isOpen() {
+        return connection.isOpen();
+    }
+
+    public long getConnectedAtMillis() {
+        return connectedAtMillis;
+    }
+
+    /**
+     * System.nanoTime() at which the latest message of this session arrived
+     */
+    public long getLastMessageNanos() {
+        return lastMessageNanos;
+    }
+
+    void markMessageReceived(long nanos) {
+        lastMessageNanos = nanos;
+    }
+
+    /**
+     * Count one frame handed to the connection
+     */
+    void recordSent(int bytes) {
+        framesSent.increment();
+        bytesSent.add(bytes);
+    }
+
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * Frames queued on the connection but not yet written to the socket
+     */
+    public int getSendQueueDepth() {
+        return connection instanceof WebSocketImpl ? ((WebSocketImpl) connection).outQueue.size() : 0;
+    }
+
+    /**
+     * Payload bytes queued on the connection but not yet written to the socket
+     */
+    public long getSendQueueBytes() {
+        if (!(connection instanceof WebSocketImpl)) {
+            return 0;
+        }
+        long bytes = 0;
+        for (ByteBuffer frame : ((WebSocketImpl) connection).outQueue) {
+            bytes += frame.remaining();
+        }
+        return bytes;
+    }
+
+    /**
+     * Hold back an analysis snapshot until the send queue drains; a newer snapshot replaces the held one.
+     * Returns true if the session just became backlogged.
+     */
+    synchronized boolean holdAnalysis(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (heldLines != null) {
+            framesCoalesced.increment();
+            FRAMES_COALESCED.inc();
+        }
+        heldFen = fen;
+        heldLines = lines;
+        if (backloggedSinceNanos == 0) {
+            backloggedSinceNanos = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    synchronized String getHeldFen() {
+        return heldFen;
+    }
+
+    /**
+     * Take the held snapshot, or null if there is none
+     */
+    synchronized Map<String, ChessEngine.AnalysisLine> takeHeldAnalysis() {
+        Map<String, ChessEngine.AnalysisLine> lines = heldLines;
+        heldFen = null;
+        heldLines = null;
+        return lines;
+    }
+
+    /**
+     * Drop the held snapshot because a newer one is sent right away
+     */
+    synchronized void discardHeldAnalysis() {
+        if (takeHeldAnalysis() != null) {
+            framesCoalesced.increment();
+            FRAMES_COALESCED.inc();
+        }
+    }
+
+    /**
+     * Leave the backlogged state; returns how long it lasted in nanoseconds, or 0 if the session was not backlogged
+     */
+    synchronized long markDrained() {
+        long since = backloggedSinceNanos;
+        backloggedSinceNanos = 0;
+        return since == 0 ? 0 : System.nanoTime() - since;
+    }
+
+    public boolean isBacklogged() {
+        return backloggedSinceNanos != 0;
+    }
+
+    /**
+     * How long the session has been behind: milliseconds since its send queue went over the limit, 0 when it keeps up
+     */
+    public long getLagMillis() {
+        long since = backloggedSinceNanos;
+        return since == 0 ? 0 : (System.nanoTime() - since) / 1_000_000;
+    }
+
+    /**
+     * Analysis frames replaced by a newer snapshot before they were sent
+     */
+    public long getFramesCoalesced() {
+        return framesCoalesced.sum();
+    }
+
+    @Override
+    public String toString() {
+        return id + " (" + remoteAddress + ")";
+    }
+}
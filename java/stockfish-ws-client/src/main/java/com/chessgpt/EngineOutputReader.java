@@ -0,0 +1,223 @@
+package com.chessgpt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Engine Output Reader
+ * Splits engine stdout into lines inside a reused byte buffer, without a charset decoder.
+ * Lines are sorted by their first bytes: only "uciok", "readyok", "bestmove" and info lines carrying
+ * a score and a pv become Strings; currmove, hashfull, "info string", option listings and the like
+ * are skipped before any object is made. Kept lines are plain copies when ASCII and UTF-8 otherwise.
+ */
+public class EngineOutputReader implements Closeable {
+
+    // Raw engine output is only traced, and sampled: a search prints hundreds of lines per second
+    private static final Log.Sampler OUTPUT_SAMPLER = Log.sampler("engineOutput", 50);
+    private static final Metrics.Counter INFO_LINES_SKIPPED =
+        Metrics.counter(EngineProcess.INFO_LINES_METRIC, EngineProcess.INFO_LINES_HELP, "result", "skipped");
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    // The line break search looks at eight bytes at a time, see firstByte
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long NEWLINES = 0x0a0a0a0a0a0a0a0aL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final byte[] INFO = ascii("info ");
+    private static final byte[] BESTMOVE = ascii("bestmove");
+    private static final byte[] UCIOK = ascii("uciok");
+    private static final byte[] READYOK = ascii("readyok");
+    private static final byte[] SCORE_TOKEN = ascii(" score ");
+    private static final byte[] PV_TOKEN = ascii(" pv ");
+
+    private final InputStream in;
+    private final String name;
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    // Unread bytes are buffer[start, end)
+    private int start = 0;
+    private int end = 0;
+    // Bytes before this offset are known to contain no line break; lineBits ORs them, high bits set if not ASCII
+    private int scanned = 0;
+    private long lineBits = 0;
+    private boolean eof = false;
+    private volatile long lastReadNanos = System.nanoTime();
+
+    public EngineOutputReader(InputStream in, String name) {
+        this.in = in;
+        this.name = name;
+    }
+
+    /**
+     * Block for the next line the engine process acts on; null at end of output
+     */
+    public String readLine() throws IOException {
+        while (true) {
+            int newline = findNewline();
+            if (newline < 0) {
+                if (eof) {
+                    if (start == end) {
+                        return null;
+                    }
+                    // Last line without a line break
+                    newline = end;
+                } else {
+                    fill();
+                    continue;
+                }
+            }
+            int lineStart = start;
+            int lineEnd = newline;
+            boolean ascii = (lineBits & HIGH_BITS) == 0;
+            start = Math.min(newline + 1, end);
+            scanned = start;
+            lineBits = 0;
+            if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (Log.isTraceEnabled() && OUTPUT_SAMPLER.sample()) {
+                Log.trace("🎯 [" + name + "] Engine output: " + decode(lineStart, lineEnd, ascii));
+            }
+            if (isConsumed(buffer, lineStart, lineEnd)) {
+                return decode(lineStart, lineEnd, ascii);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * When the engine last wrote anything, including lines that are skipped
+     */
+    public long getLastReadNanos() {
+        return lastReadNanos;
+    }
+
+    /**
+     * Check if EngineProcess.processEngineOutput would act on a line; skipped info lines are counted
+     */
+    static boolean isConsumed(byte[] bytes, int from, int to) {
+        if (startsWith(bytes, from, to, INFO)) {
+            // UCI fields may come in any order, so both searches cover the whole line
+            int fields = from + INFO.length - 1;
+            if (indexOf(bytes, fields, to, SCORE_TOKEN) >= 0 && indexOf(bytes, fields, to, PV_TOKEN) >= 0) {
+                return true;
+            }
+            INFO_LINES_SKIPPED.inc();
+            return false;
+        }
+        if (startsWith(bytes, from, to, BESTMOVE)) {
+            return true;
+        }
+        int pos = from;
+        while (pos < to && isSpace(bytes[pos])) {
+            pos++;
+        }
+        return startsWith(bytes, pos, to, UCIOK) || startsWith(bytes, pos, to, READYOK);
+    }
+
+    private int findNewline() {
+        byte[] bytes = buffer;
+        int limit = end;
+        long bits = lineBits;
+        int i = scanned;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = (long) LONGS.get(bytes, i);
+            if (firstByte(word, NEWLINES) < Long.BYTES) {
+                // The bytes of this word up to the line break are taken one at a time below
+                break;
+            }
+            bits |= word;
+        }
+        for (; i < limit; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                lineBits = bits;
+                return i;
+            }
+            bits |= b;
+        }
+        lineBits = bits;
+        scanned = limit;
+        return -1;
+    }
+
+    /**
+     * Read more bytes, compacting the buffer first and growing it for an overlong line
+     */
+    private void fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            scanned -= start;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            eof = true;
+            return;
+        }
+        end += read;
+        lastReadNanos = System.nanoTime();
+    }
+
+    private String decode(int from, int to, boolean ascii) {
+        // ASCII is valid Latin-1, which is copied into the String without decoding
+        return new String(buffer, from, to - from, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find a token that starts with a space; its second byte is looked for, being far rarer than spaces
+     */
+    private static int indexOf(byte[] bytes, int from, int to, byte[] token) {
+        byte second = token[1];
+        int last = to - token.length + 1;
+        for (int i = from + 1; i <= last; i++) {
+            if (bytes[i] == second && startsWith(bytes, i - 1, to, token)) {
+                return i - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Offset of the first byte of a little-endian word equal to the pattern's bytes, Long.BYTES if none.
+     * (x - 0x01..) & ~x & 0x80.. flags the zero bytes of x; flags above the first one may be wrong, so only
+     * the lowest is used.
+     */
+    private static int firstByte(long word, long pattern) {
+        long x = word ^ pattern;
+        return Long.numberOfTrailingZeros((x - LOW_BITS) & ~x & HIGH_BITS) >>> 3;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
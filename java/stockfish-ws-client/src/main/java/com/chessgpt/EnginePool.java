@@ -0,0 +1,397 @@
+package com.chessgpt;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine Process Pool
+ * Leases engine processes to callers, recycles idle ones and keeps hot standby processes.
+ * Processes that die before their UCI handshake make further spawns back off exponentially.
+ */
+public class EnginePool implements EngineProcess.EngineProcessListener {
+
+    private final String[] command;
+    private final int maxSize;
+    private final int minIdle;
+    private final int standby;
+    private final long idleTimeoutMillis;
+    private final int multiPv;
+
+    private final List<EngineProcess> processes = new ArrayList<>();
+    private final Deque<EngineProcess> idle = new ArrayDeque<>();
+    private int nextId = 1;
+    private volatile boolean shutdown = false;
+
+    // Restart backoff after processes failed to start
+    static final long INITIAL_BACKOFF_MILLIS = 500;
+    static final long MAX_BACKOFF_MILLIS = 30000;
+    private int consecutiveFailures = 0;
+    private long nextSpawnAtNanos = 0;
+    private long unexpectedExits = 0;
+    private long startFailures = 0;
+
+    // Runs standby top-ups off the caller's thread once a lease takes an idle process
+    private volatile Executor standbyExecutor;
+    private final EngineProcess.SwitchCounters switchCounters = new EngineProcess.SwitchCounters();
+
+    // Event listener
+    private final EngineProcess.EngineProcessListener listener;
+
+    public EnginePool(String[] command, int maxSize, int minIdle, int standby, long idleTimeoutMillis, int multiPv,
+                      EngineProcess.EngineProcessListener listener) {
+        this.command = command;
+        this.maxSize = Math.max(1, maxSize);
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxSize));
+        this.standby = Math.max(0, Math.min(standby, this.maxSize));
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.multiPv = multiPv;
+        this.listener = listener;
+    }
+
+    /**
+     * Start the minimum number of warm processes
+     */
+    public synchronized void start() throws IOException {
+        Log.info("🎯 Starting engine pool (max " + maxSize + " processes, " + minIdle + " warm, "
+            + standby + " standby)...");
+        registerMetrics();
+        for (int i = 0; i < Math.max(1, Math.max(minIdle, standby)); i++) {
+            idle.addLast(spawn());
+        }
+    }
+
+    /**
+     * Lease a free process, spawning a new one if the pool is below capacity.
+     * Returns null when every process is leased.
+     */
+    public synchronized EngineProcess acquire() throws IOException {
+        if (shutdown) {
+            return null;
+        }
+
+        // Prefer processes that completed the UCI handshake
+        EngineProcess selected = null;
+        for (EngineProcess process : idle) {
+            if (process.isReady()) {
+                selected = process;
+                break;
+            }
+        }
+        if (selected == null) {
+            selected = idle.peekFirst();
+        }
+
+        if (selected != null) {
+            idle.remove(selected);
+        } else if (processes.size() < maxSize && isSpawnAllowed()) {
+            selected = spawn();
+        } else {
+            return null;
+        }
+
+        selected.markLeased();
+        Executor executor = standbyExecutor;
+        if (executor != null && idle.size() < standby) {
+            executor.execute(this::ensureStandby);
+        }
+        return selected;
+    }
+
+    /**
+     * Return a leased process to the pool
+     */
+    public synchronized void release(EngineProcess process) {
+        if (process == null || !processes.contains(process)) {
+            return;
+        }
+        process.stop();
+        process.markReleased();
+        if (process.isAlive() && !shutdown) {
+            idle.addFirst(process);
+        } else {
+            processes.remove(process);
+        }
+    }
+
+    /**
+     * Shut down processes that stayed idle past the timeout, keeping the warm minimum
+     */
+    public void recycleIdle() {
+        List<EngineProcess> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<EngineProcess> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() - expired.size() > Math.max(minIdle, standby)) {
+                EngineProcess process = it.next();
+                if (!process.isAlive() || process.getIdleMillis() >= idleTimeoutMillis) {
+                    expired.add(process);
+                }
+            }
+            idle.removeAll(expired);
+            processes.removeAll(expired);
+        }
+
+        for (EngineProcess process : expired) {
+            Log.info("♻️  Recycling idle engine process " + process.getId());
+            process.shutdown();
+        }
+    }
+
+    /**
+     * Spawn idle processes until the standby count is met, within capacity and the restart backoff
+     */
+    public synchronized void ensureStandby() {
+        while (!shutdown && idle.size() < standby && processes.size() < maxSize && isSpawnAllowed()) {
+            try {
+                idle.addLast(spawn());
+            } catch (IOException e) {
+                Log.error("❌ Failed to start standby engine: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Set the executor used to replace a standby process right after it is leased; null disables it
+     */
+    public void setStandbyExecutor(Executor executor) {
+        this.standbyExecutor = executor;
+    }
+
+    /**
+     * Snapshot of every live process, leased or idle
+     */
+    synchronized List<EngineProcess> getProcesses() {
+        return new ArrayList<>(processes);
+    }
+
+    /**
+     * Get a human readable summary of process failures and the restart backoff
+     */
+    public synchronized String getRestartStats() {
+        long backoffMillis = Math.max(0, TimeUnit.NANOSECONDS.toMillis(nextSpawnAtNanos - System.nanoTime()));
+        return "unexpected exits=" + unexpectedExits + " start failures=" + startFailures
+            + " backoff=" + backoffMillis + "ms";
+    }
+
+    public synchronized long getUnexpectedExitCount() {
+        return unexpectedExits;
+    }
+
+    public synchronized long getStartFailureCount() {
+        return startFailures;
+    }
+
+    /**
+     * Check if at least one process completed its UCI handshake
+     */
+    public synchronized boolean hasReadyProcess() {
+        for (EngineProcess process : processes) {
+            if (process.isReady()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getSize() {
+        return processes.size();
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public synchronized int getLeasedCount() {
+        return processes.size() - idle.size();
+    }
+
+    /**
+     * Search switch-over counters of every process in the pool
+     */
+    public EngineProcess.SwitchCounters getSwitchCounters() {
+        return switchCounters;
+    }
+
+    /**
+     * Get a human readable utilisation summary of every process
+     */
+    public synchronized String getStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("pool size=").append(processes.size())
+          .append("/").append(maxSize)
+          .append(" leased=").append(processes.size() - idle.size())
+          .append(" idle=").append(idle.size());
+        for (EngineProcess process : processes) {
+            sb.append("\n  - engine-").append(process.getId())
+              .append(process.isReady() ? " ready" : " starting")
+              .append(process.isLeased() ? " leased" : " idle")
+              .append(" leases=").append(process.getLeaseCount())
+              .append(" searches=").append(process.getSearchCount())
+              .append(" queued=").append(process.getOutputQueueDepth())
+              .append(" utilisation=").append(Math.round(process.getUtilisation() * 100)).append("%");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Terminate every process in the pool
+     */
+    public void shutdown() {
+        List<EngineProcess> all;
+        synchronized (this) {
+            shutdown = true;
+            all = new ArrayList<>(processes);
+            processes.clear();
+            idle.clear();
+        }
+        // Stop the processes concurrently so shutdown waits for the slowest one only
+        List<Thread> stoppers = new ArrayList<>();
+        for (EngineProcess process : all) {
+            Thread stopper = new Thread(process::shutdown, "engine-" + process.getId() + "-stop");
+            stopper.start();
+            stoppers.add(stopper);
+        }
+        for (Thread stopper : stoppers) {
+            try {
+                stopper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Export pool occupancy, restarts and the per-process search figures; read at scrape time
+     */
+    private void registerMetrics() {
+        Metrics.register("chessgpt_engine_processes", "Engine processes by state", Metrics.Type.GAUGE, samples -> {
+            int leased = getLeasedCount();
+            samples.add(leased, "state", "leased");
+            samples.add(getSize() - leased, "state", "idle");
+        });
+        Metrics.gauge("chessgpt_engine_processes_max", "Engine pool capacity", () -> maxSize);
+        Metrics.register("chessgpt_engine_restarts_total", "Engine processes lost by reason", Metrics.Type.COUNTER, samples -> {
+            samples.add(getUnexpectedExitCount(), "reason", "unexpected_exit");
+            samples.add(getStartFailureCount(), "reason", "start_failure");
+        });
+        Metrics.register(EngineProcess.INFO_LINES_METRIC, EngineProcess.INFO_LINES_HELP, Metrics.Type.COUNTER,
+            samples -> samples.add(switchCounters.getStaleLines(), "result", "stale"));
+        Metrics.register("chessgpt_engine_search_switches_total", "Searches started while another was still running",
+            Metrics.Type.COUNTER, samples -> samples.add(switchCounters.getSwitchCount()));
+        Metrics.register("chessgpt_engine_depth", "Depth of the last info line per process", Metrics.Type.GAUGE,
+            samples -> {
+                for (EngineProcess process : getProcesses()) {
+                    samples.add(process.getLastDepth(), "engine", Integer.toString(process.getId()));
+                }
+            });
+        Metrics.register("chessgpt_engine_nodes", "Nodes of the last info line per process", Metrics.Type.GAUGE,
+            samples -> {
+                for (EngineProcess process : getProcesses()) {
+                    samples.add(process.getLastNodes(), "engine", Integer.toString(process.getId()));
+                }
+            });
+        Metrics.register("chessgpt_engine_nps", "Nodes per second of the last info line per process", Metrics.Type.GAUGE,
+            samples -> {
+                for (EngineProcess process : getProcesses()) {
+                    samples.add(process.getLastNps(), "engine", Integer.toString(process.getId()));
+                }
+            });
+        Metrics.register("chessgpt_engine_pending_searches", "Searches awaiting their bestmove per process",
+            Metrics.Type.GAUGE, samples -> {
+                for (EngineProcess process : getProcesses()) {
+                    samples.add(process.getPendingSearchCount(), "engine", Integer.toString(process.getId()));
+                }
+            });
+    }
+
+    private EngineProcess spawn() throws IOException {
+        EngineProcess process = new EngineProcess(nextId++, command, multiPv, switchCounters, this);
+        try {
+            process.start();
+        } catch (IOException e) {
+            recordStartFailure();
+            throw e;
+        }
+        processes.add(process);
+        return process;
+    }
+
+    private boolean isSpawnAllowed() {
+        return consecutiveFailures == 0 || System.nanoTime() - nextSpawnAtNanos >= 0;
+    }
+
+    /**
+     * Back off before the next spawn: 0.5s, 1s, 2s ... up to 30s
+     */
+    private void recordStartFailure() {
+        startFailures++;
+        consecutiveFailures++;
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(16, consecutiveFailures - 1));
+        nextSpawnAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        Log.warn("⚠️  Engine failed to start (" + consecutiveFailures + " in a row), next attempt in " + backoff + "ms");
+    }
+
+    // ============= Engine Process Listener Implementation =============
+
+    @Override
+    public void onProcessReady(EngineProcess process) {
+        synchronized (this) {
+            consecutiveFailures = 0;
+        }
+        if (listener != null) {
+            listener.onProcessReady(process);
+        }
+    }
+
+    @Override
+    public void onProcessError(EngineProcess process, String error) {
+        if (listener != null) {
+            listener.onProcessError(process, error);
+        }
+    }
+
+    @Override
+    public void onProcessTerminated(EngineProcess process) {
+        synchronized (this) {
+            idle.remove(process);
+            // Recycled processes were removed before they were stopped
+            if (processes.remove(process) && !shutdown) {
+                unexpectedExits++;
+                if (!process.hasBeenReady()) {
+                    recordStartFailure();
+                }
+            }
+        }
+        if (listener != null) {
+            listener.onProcessTerminated(process);
+        }
+        // Replace the standby the listener may just have taken over
+        ensureStandby();
+    }
+
+    @Override
+    public void onAnalysisUpdate(EngineProcess process, String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (listener != null) {
+            listener.onAnalysisUpdate(process, fen, lines);
+        }
+    }
+
+    @Override
+    public void onSearchComplete(EngineProcess process, String fen, String bestMove, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (listener != null) {
+            listener.onSearchComplete(process, fen, bestMove, lines);
+        }
+    }
+}
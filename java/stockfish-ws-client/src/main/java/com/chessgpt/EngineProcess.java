@@ -0,0 +1,693 @@
+package com.chessgpt;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single Polyglot/Stockfish process
+ * Owns the process I/O, UCI readiness state and the analysis of its current search
+ */
+public class EngineProcess {
+
+    private static final String[] PV_KEYS = new String[64];
+
+    // Lines read but not parsed yet; past this, "info" lines are dropped so the reader keeps draining the pipe
+    private static final int DEFAULT_OUTPUT_QUEUE_LINES = 4096;
+    private static final int OUTPUT_QUEUE_LINES = Integer.getInteger("chessgpt.engine.outputQueueLines", DEFAULT_OUTPUT_QUEUE_LINES);
+    private static final PipelineStage.Stats PARSER_STATS = PipelineStage.stats("parser");
+    // Queued by the reader at end of output, compared by reference
+    private static final String END_OF_OUTPUT = new String("<end of output>");
+
+    // Process-wide throughput; stale lines are exported from the pool's switch counters
+    static final String INFO_LINES_METRIC = "chessgpt_engine_info_lines_total";
+    static final String INFO_LINES_HELP = "Engine info lines by outcome: parsed, ignored (no score or pv), skipped before decoding or stale";
+    private static final Metrics.Counter INFO_LINES_PARSED = Metrics.counter(INFO_LINES_METRIC, INFO_LINES_HELP, "result", "parsed");
+    private static final Metrics.Counter INFO_LINES_IGNORED = Metrics.counter(INFO_LINES_METRIC, INFO_LINES_HELP, "result", "ignored");
+    private static final Metrics.Counter SEARCHES_COMPLETED =
+        Metrics.counter("chessgpt_engine_searches_total", "Searches that reported a best move");
+    private static final Metrics.Counter SEARCH_NODES =
+        Metrics.counter("chessgpt_engine_search_nodes_total", "Nodes searched by finished searches");
+
+    static {
+        for (int i = 0; i < PV_KEYS.length; i++) {
+            PV_KEYS[i] = Integer.toString(i);
+        }
+    }
+
+    private final int id;
+    private final String[] command;
+    private final int multiPv;
+
+    // Engine process management
+    private Process process;
+    private PrintWriter writer;
+    private volatile boolean uciOk = false;
+    private volatile boolean readyOk = false;
+    private volatile boolean everReady = false;
+    private volatile EngineOutputReader output;
+
+    // Analysis state
+    private volatile String currentFen = "startpos";
+    private volatile SearchLimits limits = SearchLimits.INFINITE;
+
+    // Searches whose "go" was sent but whose "bestmove" has not arrived yet, oldest first.
+    // Engine output belongs to the oldest one; only the newest one is current.
+    private final Deque<Search> searches = new ArrayDeque<>();
+    private volatile Search outputSearch;
+    private volatile Search latestSearch;
+    // Lines of the latest search, one per multipv slot and updated in place; every search gets a new map
+    private volatile Map<String, ChessEngine.AnalysisLine> analysisLines = new ConcurrentHashMap<>();
+    private final SwitchCounters switchCounters;
+
+    // Reused by the output reader thread for every info line
+    private final UciInfo info = new UciInfo();
+
+    // Depth, nodes and nps of the last analysis line, kept after the search ends
+    private volatile int lastDepth = 0;
+    private volatile long lastNodes = 0;
+    private volatile long lastNps = 0;
+
+    // Utilisation statistics
+    private final long startedAtNanos = System.nanoTime();
+    private volatile long leasedAtNanos = 0;
+    private volatile long releasedAtNanos = System.nanoTime();
+    private volatile long busyNanos = 0;
+    private volatile long leaseCount = 0;
+    private volatile long searchCount = 0;
+
+    private final EngineProcessListener listener;
+    private final PipelineStage<String> parser;
+
+    public EngineProcess(int id, String[] command, int multiPv, SwitchCounters switchCounters,
+                         EngineProcessListener listener) {
+        this.id = id;
+        this.command = command;
+        this.multiPv = multiPv;
+        this.switchCounters = switchCounters != null ? switchCounters : new SwitchCounters();
+        this.listener = listener;
+        this.parser = new PipelineStage<>("engine-" + id + "-parse", OUTPUT_QUEUE_LINES, PARSER_STATS, this::parseEngineOutput);
+    }
+
+    /**
+     * One "go" sent to the engine, identified by its generation; its output ends with its "bestmove"
+     */
+    private static final class Search {
+        final long generation;
+        final String fen;
+        final boolean whiteToMove;
+        final long requestedAtNanos;
+        // Requested while another search was still running
+        final boolean switched;
+        volatile long outputAtNanos;
+        boolean firstInfoSeen;
+        long nodes;
+
+        Search(long generation, String fen, long requestedAtNanos, boolean switched) {
+            this.generation = generation;
+            this.fen = fen;
+            this.whiteToMove = isWhiteToMove(fen);
+            this.requestedAtNanos = requestedAtNanos;
+            this.switched = switched;
+        }
+    }
+
+    /**
+     * Search switch-over counters that can be shared across processes.
+     * A switch is measured from the request of a new search until its first info line,
+     * split into the wait for the superseded search's "bestmove" and the rest.
+     */
+    public static class SwitchCounters {
+        final AtomicLong switches = new AtomicLong();
+        final AtomicLong switchNanos = new AtomicLong();
+        final AtomicLong maxSwitchNanos = new AtomicLong();
+        final AtomicLong acknowledged = new AtomicLong();
+        final AtomicLong acknowledgeNanos = new AtomicLong();
+        final AtomicLong maxAcknowledgeNanos = new AtomicLong();
+        final LongAdder staleLines = new LongAdder();
+
+        void recordSwitch(long nanos) {
+            switches.incrementAndGet();
+            switchNanos.addAndGet(nanos);
+            maxSwitchNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void recordAcknowledge(long nanos) {
+            acknowledged.incrementAndGet();
+            acknowledgeNanos.addAndGet(nanos);
+            maxAcknowledgeNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getSwitchCount() {
+            return switches.get();
+        }
+
+        public long getStaleLines() {
+            return staleLines.sum();
+        }
+
+        /**
+         * Get a human readable summary of the switch counters
+         */
+        public String getStats() {
+            return "search switches=" + switches.get()
+                + " avg=" + averageMillis(switchNanos.get(), switches.get()) + "ms"
+                + " max=" + TimeUnit.NANOSECONDS.toMillis(maxSwitchNanos.get()) + "ms"
+                + " (stop->bestmove avg=" + averageMillis(acknowledgeNanos.get(), acknowledged.get()) + "ms"
+                + " max=" + TimeUnit.NANOSECONDS.toMillis(maxAcknowledgeNanos.get()) + "ms)"
+                + " stale lines dropped=" + staleLines.sum();
+        }
+
+        private static String averageMillis(long totalNanos, long count) {
+            return count == 0 ? "0" : String.format("%.1f", totalNanos / 1e6 / count);
+        }
+    }
+
+    /**
+     * Interface for receiving per-process engine events
+     */
+    public interface EngineProcessListener {
+        void onProcessReady(EngineProcess process);
+        void onProcessError(EngineProcess process, String error);
+        void onProcessTerminated(EngineProcess process);
+        void onAnalysisUpdate(EngineProcess process, String fen, Map<String, ChessEngine.AnalysisLine> lines);
+        void onSearchComplete(EngineProcess process, String fen, String bestMove, Map<String, ChessEngine.AnalysisLine> lines);
+    }
+
+    /**
+     * Launch the process and start the UCI handshake
+     */
+    public void start() throws IOException {
+        Log.info("🎯 [engine-" + id + "] Starting chess engine process...");
+
+        process = new ProcessBuilder(command).start();
+        writer = new PrintWriter(new OutputStreamWriter(process.getOutputStream()), true);
+
+        parser.start();
+        output = new EngineOutputReader(process.getInputStream(), "engine-" + id);
+        Thread outputReader = new Thread(this::readEngineOutput, "engine-" + id + "-out");
+        outputReader.setDaemon(true);
+        outputReader.start();
+
+        Thread errorReader = new Thread(this::readEngineErrors, "engine-" + id + "-err");
+        errorReader.setDaemon(true);
+        errorReader.start();
+
+        sendCommand("uci");
+        sendCommand("setoption name MultiPV value " + multiPv);
+        sendCommand("isready");
+    }
+
+    /**
+     * Send a command to this engine process
+     */
+    public void sendCommand(String command) {
+        if (Log.isDebugEnabled()) {
+            Log.debug("🎯 [engine-" + id + "] Sending to engine: " + command);
+        }
+        if (writer != null) {
+            writer.println(command);
+        }
+    }
+
+    /**
+     * Start an infinite search on the given position
+     */
+    public void analyze(String fen) {
+        search(fen, SearchLimits.INFINITE);
+    }
+
+    /**
+     * Start a search on the given position; limited searches report onSearchComplete when done
+     */
+    public void search(String fen, SearchLimits searchLimits) {
+        search("position fen " + fen, fen, searchLimits);
+    }
+
+    /**
+     * Start a search given a full UCI position command ("position startpos moves ...");
+     * fen is the resulting position, used for reporting and the side to move
+     */
+    public void search(String positionCommand, String fen, SearchLimits searchLimits) {
+        synchronized (searches) {
+            long now = System.nanoTime();
+            boolean switched = !searches.isEmpty();
+            if (switched) {
+                stop();
+            }
+            Search search = new Search(++searchCount, fen, now, switched);
+            currentFen = fen;
+            limits = searchLimits;
+            analysisLines = new ConcurrentHashMap<>();
+            if (Log.isDebugEnabled()) {
+                Log.debug("🔍 [engine-" + id + "] Starting analysis #" + search.generation + " (" + searchLimits
+                    + ") for position: " + currentFen);
+            }
+            sendCommand(positionCommand);
+
+            // Registered before "go" so even an instant "bestmove" finds its search
+            searches.addLast(search);
+            latestSearch = search;
+            if (outputSearch == null) {
+                search.outputAtNanos = now;
+                outputSearch = search;
+            }
+            sendCommand(searchLimits.toGoCommand());
+        }
+    }
+
+    /**
+     * Stop the current search
+     */
+    public void stop() {
+        sendCommand("stop");
+    }
+
+    /**
+     * Mark the process as handed out to a caller
+     */
+    synchronized void markLeased() {
+        leaseCount++;
+        leasedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Mark the process as returned to the pool
+     */
+    synchronized void markReleased() {
+        long now = System.nanoTime();
+        if (leasedAtNanos != 0) {
+            busyNanos += now - leasedAtNanos;
+            leasedAtNanos = 0;
+        }
+        releasedAtNanos = now;
+        analysisLines = new ConcurrentHashMap<>();
+    }
+
+    public boolean isLeased() {
+        return leasedAtNanos != 0;
+    }
+
+    /**
+     * Check if the UCI handshake completed and the process is alive
+     */
+    public boolean isReady() {
+        return uciOk && readyOk && isAlive();
+    }
+
+    /**
+     * Check if the process ever completed its UCI handshake
+     */
+    public boolean hasBeenReady() {
+        return everReady;
+    }
+
+    /**
+     * Milliseconds since the process was started
+     */
+    public long getAgeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+    }
+
+    /**
+     * Milliseconds since the engine last printed anything
+     */
+    public long getMillisSinceOutput() {
+        EngineOutputReader current = output;
+        long lastOutputNanos = current != null ? current.getLastReadNanos() : startedAtNanos;
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastOutputNanos);
+    }
+
+    public boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getCurrentFen() {
+        return currentFen;
+    }
+
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Check if a search is running or a stopped search has not reported its best move yet
+     */
+    public boolean isSearching() {
+        return outputSearch != null;
+    }
+
+    /**
+     * Generation of the latest search; it changes with every search started on this process
+     */
+    public long getGeneration() {
+        return searchCount;
+    }
+
+    /**
+     * Searches whose "go" was sent but whose "bestmove" has not arrived yet
+     */
+    public int getPendingSearchCount() {
+        synchronized (searches) {
+            return searches.size();
+        }
+    }
+
+    /**
+     * Depth of the last analysis line of the current or last search
+     */
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    public long getLastNodes() {
+        return lastNodes;
+    }
+
+    public long getLastNps() {
+        return lastNps;
+    }
+
+    /**
+     * Get a snapshot of the current analysis lines
+     */
+    public Map<String, ChessEngine.AnalysisLine> getAnalysisLines() {
+        return ChessEngine.AnalysisLine.snapshot(analysisLines);
+    }
+
+    /**
+     * Milliseconds since the process was last returned to the pool
+     */
+    public long getIdleMillis() {
+        if (isLeased()) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - releasedAtNanos);
+    }
+
+    /**
+     * Fraction of the process lifetime spent leased (0.0 - 1.0)
+     */
+    public synchronized double getUtilisation() {
+        long now = System.nanoTime();
+        long busy = busyNanos + (leasedAtNanos != 0 ? now - leasedAtNanos : 0);
+        long lifetime = Math.max(1, now - startedAtNanos);
+        return (double) busy / lifetime;
+    }
+
+    public long getLeaseCount() {
+        return leaseCount;
+    }
+
+    public long getSearchCount() {
+        return searchCount;
+    }
+
+    /**
+     * Output lines read but not yet parsed
+     */
+    public int getOutputQueueDepth() {
+        return parser.getQueueDepth();
+    }
+
+    /**
+     * Kill a hung process without waiting for "quit"; the output reader then reports the termination
+     */
+    public void kill() {
+        if (process != null) {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Terminate the process
+     */
+    public void shutdown() {
+        if (process != null && process.isAlive()) {
+            sendCommand("quit");
+            process.destroy();
+            try {
+                if (!process.waitFor(3, TimeUnit.SECONDS)) {
+                    Log.warn("⚠️  [engine-" + id + "] Force killing chess engine...");
+                    process.destroyForcibly();
+                }
+                Log.info("✅ [engine-" + id + "] Chess engine stopped");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.error("❌ [engine-" + id + "] Interrupted while stopping chess engine");
+            }
+        }
+    }
+
+    /**
+     * Determine whose turn it is from FEN
+     */
+    private static boolean isWhiteToMove(String fen) {
+        int space = fen.indexOf(' ');
+        return space >= 0 && space + 1 < fen.length() && fen.charAt(space + 1) == 'w';
+    }
+
+    private void readEngineOutput() {
+        try (EngineOutputReader reader = output) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Stale info lines are the only ones that may go; a lost bestmove or readyok would hang a search
+                parser.offer(line, line.startsWith("info "));
+            }
+        } catch (IOException e) {
+            Log.error("❌ [engine-" + id + "] Error reading engine output: " + e.getMessage());
+            if (listener != null) {
+                listener.onProcessError(this, "Error reading engine output: " + e.getMessage());
+            }
+        }
+        parser.offer(END_OF_OUTPUT, false);
+    }
+
+    /**
+     * Parser stage: handle lines in the order the reader queued them, then the end of output
+     */
+    private void parseEngineOutput(String line) {
+        if (line != END_OF_OUTPUT) {
+            processEngineOutput(line);
+            return;
+        }
+        parser.stop();
+        Log.error("❌ [engine-" + id + "] Chess engine process terminated");
+        readyOk = false;
+        synchronized (searches) {
+            searches.clear();
+            outputSearch = null;
+        }
+        if (listener != null) {
+            listener.onProcessTerminated(this);
+        }
+    }
+
+    private void readEngineErrors() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Log.warn("🎯 [engine-" + id + "] Engine error: " + line);
+                if (listener != null) {
+                    listener.onProcessError(this, line);
+                }
+            }
+        } catch (IOException e) {
+            Log.error("❌ [engine-" + id + "] Error reading engine errors: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handle one line of engine output; called by the parser stage and by benchmarks replaying transcripts
+     */
+    void processEngineOutput(String line) {
+        // Handle UCI initialization responses
+        if ("uciok".equals(line.trim())) {
+            Log.info("✅ [engine-" + id + "] Chess engine UCI initialized");
+            uciOk = true;
+        } else if ("readyok".equals(line.trim())) {
+            Log.info("✅ [engine-" + id + "] Chess engine ready for commands");
+            readyOk = true;
+            everReady = true;
+            if (listener != null) {
+                listener.onProcessReady(this);
+            }
+        }
+        // Handle analysis output
+        else if (line.startsWith("info ")) {
+            processAnalysisLine(line);
+        } else if (line.startsWith("bestmove")) {
+            processBestMove(line);
+        }
+    }
+
+    private void processBestMove(String line) {
+        // Every "go" is answered by exactly one "bestmove"; it ends the oldest pending search
+        Search finished;
+        Search next;
+        Map<String, ChessEngine.AnalysisLine> lines = null;
+        long now = System.nanoTime();
+        synchronized (searches) {
+            finished = searches.pollFirst();
+            next = searches.peekFirst();
+            outputSearch = next;
+            if (next != null) {
+                next.outputAtNanos = now;
+            }
+            if (finished != null && finished == latestSearch) {
+                lines = getAnalysisLines();
+            }
+        }
+        if (next != null) {
+            switchCounters.recordAcknowledge(now - next.requestedAtNanos);
+        }
+        if (finished != null) {
+            SEARCHES_COMPLETED.inc();
+            SEARCH_NODES.add(finished.nodes);
+        }
+
+        // A superseded search still reports a best move; only the latest search completes
+        if (lines == null) {
+            return;
+        }
+
+        int start = "bestmove".length();
+        while (start < line.length() && line.charAt(start) == ' ') {
+            start++;
+        }
+        int end = line.indexOf(' ', start);
+        String bestMove = line.substring(start, end < 0 ? line.length() : end);
+
+        if (listener != null) {
+            listener.onSearchComplete(this, finished.fen, bestMove, lines);
+        }
+    }
+
+    private void processAnalysisLine(String line) {
+        // Output of a superseded search is dropped before it is parsed
+        Search search = outputSearch;
+        if (search == null || search != latestSearch) {
+            switchCounters.staleLines.increment();
+            return;
+        }
+
+        if (!UciInfoParser.parse(line, info) || !info.isAnalysisLine()) {
+            INFO_LINES_IGNORED.inc();
+            return;
+        }
+        INFO_LINES_PARSED.inc();
+        if (info.nodes > search.nodes) {
+            search.nodes = info.nodes;
+        }
+        lastDepth = info.depth;
+        lastNodes = info.nodes;
+        if (info.hasNps) {
+            lastNps = info.nps;
+        }
+
+        if (!search.firstInfoSeen) {
+            search.firstInfoSeen = true;
+            if (search.switched) {
+                switchCounters.recordSwitch(System.nanoTime() - search.requestedAtNanos);
+            }
+        }
+
+        Map<String, ChessEngine.AnalysisLine> lines;
+        synchronized (searches) {
+            // A new search may have started while this line was parsed
+            if (search != latestSearch) {
+                switchCounters.staleLines.increment();
+                return;
+            }
+            lines = analysisLines;
+        }
+
+        // Update the line of this multipv slot in place; readers on other threads copy it under its lock
+        String key = pvKey(info.multipv);
+        ChessEngine.AnalysisLine analysisLine = lines.get(key);
+        boolean added = analysisLine == null;
+        if (added) {
+            analysisLine = new ChessEngine.AnalysisLine();
+            analysisLine.fen = search.fen;
+        }
+        String score = formatScore(info.scoreType, info.scoreValue, search.whiteToMove);
+        synchronized (analysisLine) {
+            analysisLine.score = score;
+            analysisLine.depth = info.depth;
+            analysisLine.nodes = info.nodes;
+            // Keep the pv string while the engine repeats the same line
+            if (analysisLine.uciMoves == null || !analysisLine.uciMoves.contentEquals(info.pv)) {
+                analysisLine.uciMoves = info.pv.toString();
+            }
+        }
+        if (added) {
+            lines.put(key, analysisLine);
+        }
+
+        // Notify listener about analysis update
+        if (listener != null) {
+            listener.onAnalysisUpdate(this, search.fen, lines);
+        }
+    }
+
+    /**
+     * Format a UCI score from White's point of view: "0.35", "-1.20" or "#3".
+     * Same text as String.format("%.2f", cp / 100.0) on the score negated for Black, which gives "-0.00"
+     * for an even position with Black to move.
+     */
+    static String formatScore(int scoreType, int scoreValue, boolean whiteToMove) {
+        int value = whiteToMove ? scoreValue : -scoreValue;
+        if (scoreType == UciInfo.SCORE_MATE) {
+            return "#" + value;
+        }
+
+        StringBuilder sb = new StringBuilder(8);
+        if (value < 0 || (value == 0 && !whiteToMove)) {
+            sb.append('-');
+            value = -value;
+        }
+        int fraction = value % 100;
+        sb.append(value / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+        return sb.toString();
+    }
+
+    /**
+     * Convert a formatted score ("0.35", "-1.20", "#-3") back to centipawns or mate distance
+     */
+    static int parseScore(String score) {
+        if (score.startsWith("#")) {
+            return Integer.parseInt(score.substring(1));
+        }
+        int value = 0;
+        boolean negative = false;
+        for (int i = 0; i < score.length(); i++) {
+            char c = score.charAt(i);
+            if (c == '-') {
+                negative = true;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    private static String pvKey(int multipv) {
+        if (multipv >= 0 && multipv < PV_KEYS.length) {
+            return PV_KEYS[multipv];
+        }
+        return Integer.toString(multipv);
+    }
+}
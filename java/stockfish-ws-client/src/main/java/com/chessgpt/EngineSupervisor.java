@@ -0,0 +1,106 @@
+package com.chessgpt;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Engine Supervisor
+ * Watches the pool's processes: kills engines that hang in the UCI handshake or go silent during a search,
+ * and keeps hot standby processes ready so a failed engine is replaced without a cold start.
+ * Exits are reported through the pool's onProcessTerminated, where in-flight work is resumed.
+ */
+public class EngineSupervisor {
+
+    private static final long DEFAULT_CHECK_INTERVAL_MILLIS = 500;
+    private static final long DEFAULT_STALL_TIMEOUT_SECONDS = 30;
+    private static final long DEFAULT_HANDSHAKE_TIMEOUT_SECONDS = 10;
+
+    private final EnginePool pool;
+    private final ScheduledExecutorService scheduler;
+    private final long checkIntervalMillis =
+        Long.getLong("chessgpt.supervisor.checkIntervalMillis", DEFAULT_CHECK_INTERVAL_MILLIS);
+    private final long stallTimeoutMillis = TimeUnit.SECONDS.toMillis(
+        Long.getLong("chessgpt.supervisor.stallTimeoutSeconds", DEFAULT_STALL_TIMEOUT_SECONDS));
+    private final long handshakeTimeoutMillis = TimeUnit.SECONDS.toMillis(
+        Long.getLong("chessgpt.supervisor.handshakeTimeoutSeconds", DEFAULT_HANDSHAKE_TIMEOUT_SECONDS));
+
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong handshakeTimeouts = new AtomicLong();
+    private ScheduledFuture<?> checkTask;
+
+    public EngineSupervisor(EnginePool pool, ScheduledExecutorService scheduler) {
+        this.pool = pool;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Start the periodic health check
+     */
+    public synchronized void start() {
+        if (checkTask == null) {
+            Log.info("🩺 Engine supervisor started (stall timeout " + stallTimeoutMillis + "ms, handshake timeout "
+                + handshakeTimeoutMillis + "ms)");
+            pool.setStandbyExecutor(scheduler);
+            Metrics.register("chessgpt_engine_supervisor_kills_total", "Engine processes killed by the supervisor",
+                Metrics.Type.COUNTER, samples -> {
+                    samples.add(stalls.get(), "reason", "stall");
+                    samples.add(handshakeTimeouts.get(), "reason", "handshake_timeout");
+                });
+            checkTask = scheduler.scheduleWithFixedDelay(this::check, checkIntervalMillis, checkIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        pool.setStandbyExecutor(null);
+        if (checkTask != null) {
+            checkTask.cancel(false);
+            checkTask = null;
+        }
+    }
+
+    /**
+     * Kill hung processes and top up the standby processes
+     */
+    void check() {
+        try {
+            for (EngineProcess process : pool.getProcesses()) {
+                if (!process.isAlive()) {
+                    continue;
+                }
+                if (!process.hasBeenReady() && process.getAgeMillis() > handshakeTimeoutMillis) {
+                    Log.warn("🩺 [engine-" + process.getId() + "] No readyok after " + process.getAgeMillis()
+                        + "ms, killing it");
+                    handshakeTimeouts.incrementAndGet();
+                    process.kill();
+                } else if (process.isSearching() && process.getMillisSinceOutput() > stallTimeoutMillis) {
+                    Log.warn("🩺 [engine-" + process.getId() + "] No output for " + process.getMillisSinceOutput()
+                        + "ms during a search, killing it");
+                    stalls.incrementAndGet();
+                    process.kill();
+                }
+            }
+            pool.ensureStandby();
+        } catch (RuntimeException e) {
+            Log.error("❌ Engine supervisor check failed: " + e.getMessage(), e);
+        }
+    }
+
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    public long getHandshakeTimeoutCount() {
+        return handshakeTimeouts.get();
+    }
+
+    /**
+     * Get a human readable summary of the supervisor's interventions
+     */
+    public String getStats() {
+        return "supervisor stalls=" + stalls.get() + " handshake timeouts=" + handshakeTimeouts.get()
+            + " " + pool.getRestartStats();
+    }
+}
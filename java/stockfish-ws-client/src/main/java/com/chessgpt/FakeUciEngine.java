@@ -0,0 +1,360 @@
+package com.chessgpt;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fake UCI Engine
+ * Deterministic engine simulator for load and latency tests without polyglot or Stockfish.
+ * Start the server with -Dchessgpt.engine.command=fake to run it in place of the real engine;
+ * the -Dchessgpt.fake.* properties below are passed on to every engine process.
+ * PVs are legal move sequences derived from the position and the seed, so runs are reproducible.
+ */
+public class FakeUciEngine {
+
+    public static final String COMMAND_ALIAS = "fake";
+
+    private static final String PROPERTY_PREFIX = "chessgpt.fake.";
+    private static final int DEFAULT_LINES_PER_SECOND = 200;
+    private static final int DEFAULT_MULTI_PV = 1;
+    private static final int DEFAULT_MAX_DEPTH = 40;
+    private static final int DEFAULT_PV_LENGTH = 12;
+    private static final long DEFAULT_SEED = 1;
+    private static final long MAX_NODES = 1L << 40;
+
+    // Info lines per second over all PVs; 0 writes as fast as the pipe accepts
+    private final int linesPerSecond = Integer.getInteger(PROPERTY_PREFIX + "linesPerSecond", DEFAULT_LINES_PER_SECOND);
+    // Depth of an infinite search after which the engine waits silently for "stop"
+    private final int maxDepth = Integer.getInteger(PROPERTY_PREFIX + "maxDepth", DEFAULT_MAX_DEPTH);
+    private final int pvLength = Integer.getInteger(PROPERTY_PREFIX + "pvLength", DEFAULT_PV_LENGTH);
+    private final long seed = Long.getLong(PROPERTY_PREFIX + "seed", DEFAULT_SEED);
+    // Delay before the handshake answers and between "stop" and "bestmove"
+    private final long startupDelayMillis = Long.getLong(PROPERTY_PREFIX + "startupDelayMillis", 0);
+    private final long bestMoveDelayMillis = Long.getLong(PROPERTY_PREFIX + "bestMoveDelayMillis", 0);
+    // The N-th search (1-based, 0 disables) goes silent and ignores "stop" at the given depth
+    private final int stallAtSearch = Integer.getInteger(PROPERTY_PREFIX + "stallAtSearch", 0);
+    private final int stallAtDepth = Integer.getInteger(PROPERTY_PREFIX + "stallAtDepth", 1);
+    // The N-th search (1-based, 0 disables) kills the process at the given depth
+    private final int crashAtSearch = Integer.getInteger(PROPERTY_PREFIX + "crashAtSearch", 0);
+    private final int crashAtDepth = Integer.getInteger(PROPERTY_PREFIX + "crashAtDepth", 1);
+
+    private final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+    private final StringBuilder line = new StringBuilder(256);
+    private int multiPv = Integer.getInteger(PROPERTY_PREFIX + "multiPv", DEFAULT_MULTI_PV);
+    private Board position = Board.startPosition();
+    private int searchCount = 0;
+    private Search search;
+
+    public static void main(String[] args) throws IOException {
+        new FakeUciEngine().run();
+    }
+
+    /**
+     * Command line that runs this engine in a new JVM with the current classpath and chessgpt.fake.* properties
+     */
+    public static String[] command() {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.add("-XX:TieredStopAtLevel=1");
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PROPERTY_PREFIX)) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(FakeUciEngine.class.getName());
+        return command.toArray(new String[0]);
+    }
+
+    private void run() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        String input;
+        while ((input = in.readLine()) != null) {
+            String command = input.trim();
+            if (command.equals("uci")) {
+                sleepMillis(startupDelayMillis);
+                println("id name ChessGPT Fake Engine");
+                println("id author chessgpt");
+                println("option name MultiPV type spin default 1 min 1 max 256");
+                println("uciok");
+            } else if (command.equals("isready")) {
+                println("readyok");
+            } else if (command.startsWith("setoption ")) {
+                setOption(command);
+            } else if (command.startsWith("position ")) {
+                setPosition(command);
+            } else if (command.startsWith("go")) {
+                stopSearch();
+                startSearch(command);
+            } else if (command.equals("stop")) {
+                stopSearch();
+            } else if (command.equals("quit")) {
+                break;
+            }
+        }
+        stopSearch();
+        flush();
+    }
+
+    private void setOption(String command) {
+        String[] words = command.split("\\s+");
+        for (int i = 0; i + 3 < words.length; i++) {
+            if (words[i].equals("name") && words[i + 1].equalsIgnoreCase("MultiPV") && words[i + 2].equals("value")) {
+                multiPv = Math.max(1, Integer.parseInt(words[i + 3]));
+            }
+        }
+    }
+
+    /**
+     * "position startpos [moves ...]" or "position fen <fen> [moves ...]"
+     */
+    private void setPosition(String command) {
+        int movesAt = command.indexOf(" moves ");
+        String setup = movesAt >= 0 ? command.substring(0, movesAt) : command;
+        try {
+            Board board = setup.startsWith("position fen ")
+                ? Board.fromFen(setup.substring("position fen ".length()))
+                : Board.startPosition();
+            if (movesAt >= 0) {
+                for (String move : command.substring(movesAt + " moves ".length()).trim().split("\\s+")) {
+                    board.apply(move);
+                }
+            }
+            position = board;
+        } catch (RuntimeException e) {
+            System.err.println("Invalid position command: " + command);
+        }
+    }
+
+    private void startSearch(String command) {
+        int depthLimit = 0;
+        long movetimeMillis = 0;
+        long nodesLimit = 0;
+        boolean infinite = false;
+        String[] words = command.split("\\s+");
+        for (int i = 1; i < words.length; i++) {
+            String word = words[i];
+            if (word.equals("infinite")) {
+                infinite = true;
+            } else if (i + 1 < words.length && word.equals("depth")) {
+                depthLimit = Integer.parseInt(words[++i]);
+            } else if (i + 1 < words.length && word.equals("movetime")) {
+                movetimeMillis = Long.parseLong(words[++i]);
+            } else if (i + 1 < words.length && word.equals("nodes")) {
+                nodesLimit = Long.parseLong(words[++i]);
+            }
+        }
+        searchCount++;
+        search = new Search(position.copy(), searchCount, depthLimit, movetimeMillis, nodesLimit,
+            infinite || (depthLimit == 0 && movetimeMillis == 0 && nodesLimit == 0));
+        search.start();
+    }
+
+    /**
+     * Stop the running search and wait until its "bestmove" was written; a stalled search is abandoned
+     */
+    private void stopSearch() {
+        Search running = search;
+        if (running == null) {
+            return;
+        }
+        running.stopRequested = true;
+        LockSupport.unpark(running);
+        if (!running.stalled) {
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        search = null;
+    }
+
+    /**
+     * One "go": prints multiPv info lines per depth at the configured rate, then "bestmove"
+     */
+    private final class Search extends Thread {
+        private final Board root;
+        private final int number;
+        private final int depthLimit;
+        private final long movetimeMillis;
+        private final long nodesLimit;
+        private final boolean infinite;
+        private final List<List<String>> pvs;
+        private final int[] baseScores;
+        volatile boolean stopRequested = false;
+        volatile boolean stalled = false;
+
+        Search(Board root, int number, int depthLimit, long movetimeMillis, long nodesLimit, boolean infinite) {
+            super("fake-search-" + number);
+            setDaemon(true);
+            this.root = root;
+            this.number = number;
+            this.depthLimit = depthLimit > 0 ? depthLimit : maxDepth;
+            this.movetimeMillis = movetimeMillis;
+            this.nodesLimit = nodesLimit;
+            this.infinite = infinite;
+
+            // The same position and seed always give the same lines
+            Random random = new Random(seed * 31 + root.toFen().hashCode());
+            List<String> rootMoves = root.legalMoves();
+            int lines = Math.min(multiPv, rootMoves.size());
+            pvs = new ArrayList<>(lines);
+            baseScores = new int[lines];
+            int score = random.nextInt(81) - 40;
+            for (int pv = 0; pv < lines; pv++) {
+                String first = rootMoves.remove(random.nextInt(rootMoves.size()));
+                pvs.add(buildPv(first, random));
+                baseScores[pv] = score;
+                score -= 5 + random.nextInt(20);
+            }
+        }
+
+        private List<String> buildPv(String first, Random random) {
+            List<String> pv = new ArrayList<>(pvLength);
+            Board board = root.copy();
+            String move = first;
+            while (move != null && pv.size() < Math.max(1, pvLength)) {
+                pv.add(move);
+                board.apply(move);
+                List<String> legal = board.legalMoves();
+                move = legal.isEmpty() ? null : legal.get(random.nextInt(legal.size()));
+            }
+            return pv;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            long intervalNanos = linesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / linesPerSecond : 0;
+            long nextLineNanos = startNanos;
+            long nodes = 0;
+            int completedDepth = 0;
+
+            search:
+            for (int depth = 1; depth <= depthLimit && !pvs.isEmpty(); depth++) {
+                if (number == crashAtSearch && depth >= crashAtDepth) {
+                    flush();
+                    Runtime.getRuntime().halt(1);
+                }
+                if (number == stallAtSearch && depth >= stallAtDepth) {
+                    stall();
+                    return;
+                }
+                nodes = Math.min(MAX_NODES, nodes * 2 + 1000L * depth);
+                for (int pv = 0; pv < pvs.size(); pv++) {
+                    if (intervalNanos > 0) {
+                        nextLineNanos += intervalNanos;
+                        waitUntil(nextLineNanos);
+                    }
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                    if (stopRequested || (movetimeMillis > 0 && elapsedMillis >= movetimeMillis)
+                        || (nodesLimit > 0 && nodes >= nodesLimit)) {
+                        break search;
+                    }
+                    printInfo(depth, pv, nodes, elapsedMillis);
+                }
+                completedDepth = depth;
+            }
+
+            // An infinite search only reports its best move after "stop"
+            while (infinite && !stopRequested) {
+                LockSupport.park(this);
+            }
+            sleepMillis(bestMoveDelayMillis);
+            String best = pvs.isEmpty() ? "0000" : pvs.get(0).get(0);
+            String ponder = !pvs.isEmpty() && pvs.get(0).size() > 1 && completedDepth > 1 ? " ponder " + pvs.get(0).get(1) : "";
+            println("bestmove " + best + ponder);
+        }
+
+        private void printInfo(int depth, int pv, long nodes, long elapsedMillis) {
+            List<String> moves = pvs.get(pv);
+            int score = baseScores[pv] + (depth % 3) - 1;
+            synchronized (out) {
+                line.setLength(0);
+                line.append("info depth ").append(depth)
+                    .append(" seldepth ").append(depth + depth / 2 + 1)
+                    .append(" multipv ").append(pv + 1)
+                    .append(" score cp ").append(score)
+                    .append(" nodes ").append(nodes)
+                    .append(" nps ").append(nodes * 1000 / Math.max(1, elapsedMillis))
+                    .append(" hashfull ").append(Math.min(1000, depth * 25))
+                    .append(" tbhits 0 time ").append(elapsedMillis)
+                    .append(" pv");
+                int length = Math.min(moves.size(), Math.max(1, depth));
+                for (int i = 0; i < length; i++) {
+                    line.append(' ').append(moves.get(i));
+                }
+                writeLine(line);
+            }
+        }
+
+        /**
+         * Go silent and ignore "stop", like a hung engine; only killing the process ends it
+         */
+        private void stall() {
+            stalled = true;
+            flush();
+            while (true) {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    private void waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0 && !isStopRequested()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private boolean isStopRequested() {
+        Search running = search;
+        return running == null || running.stopRequested;
+    }
+
+    private void println(String text) {
+        synchronized (out) {
+            line.setLength(0);
+            line.append(text);
+            writeLine(line);
+        }
+    }
+
+    private void writeLine(CharSequence text) {
+        try {
+            out.append(text).append('\n');
+            out.flush();
+        } catch (IOException e) {
+            // The server closed the pipe
+            Runtime.getRuntime().halt(0);
+        }
+    }
+
+    private void flush() {
+        synchronized (out) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                Runtime.getRuntime().halt(0);
+            }
+        }
+    }
+
+    private static void sleepMillis(long millis) {
+        if (millis > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+}
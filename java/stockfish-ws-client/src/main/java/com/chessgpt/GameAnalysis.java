@@ -0,0 +1,253 @@
+package com.chessgpt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Whole-Game Analysis State
+ * Evaluates every ply of a game in order on one engine process and classifies each move
+ * by how much evaluation it lost compared to the position before it
+ */
+public class GameAnalysis {
+
+    // Centipawn loss thresholds for the side that moved
+    static final int INACCURACY_LOSS = 50;
+    static final int MISTAKE_LOSS = 100;
+    static final int BLUNDER_LOSS = 300;
+    // Evaluation change between consecutive plies reported as a swing
+    static final int SWING_THRESHOLD = 150;
+    // Mate scores and large advantages are clamped so a won position cannot "lose" thousands
+    static final int EVAL_CLAMP = 1000;
+
+    private final String id;
+    private final String sessionId;
+    private final GameRecord game;
+    private final SearchLimits limits;
+
+    private final int[] evals;
+    private final String[] bestMoves;
+    private int nextPly = 0;
+    private int searchingPly = -1;
+    private EngineProcess process;
+    private boolean cancelled = false;
+    private boolean finished = false;
+
+    private final Summary summary = new Summary();
+
+    public GameAnalysis(String id, String sessionId, GameRecord game, SearchLimits limits) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.game = game;
+        this.limits = limits;
+        this.evals = new int[game.getPlyCount() + 1];
+        this.bestMoves = new String[game.getPlyCount() + 1];
+        summary.plies = game.getPlyCount();
+    }
+
+    /**
+     * Result of one analyzed position; from ply 1 on it also judges the move that led to it
+     */
+    public static class PlyResult {
+        public int ply;
+        public String fen;
+        public String score;
+        public String bestMove;
+        public String san;
+        public String uci;
+        public Integer loss;
+        public String classification;
+        public List<ChessEngine.AnalysisLine> lines;
+    }
+
+    /**
+     * Per-side move quality counts and the plies with large evaluation swings
+     */
+    public static class Summary {
+        public int plies;
+        public SideSummary white = new SideSummary();
+        public SideSummary black = new SideSummary();
+        public List<Integer> swings = new ArrayList<>();
+    }
+
+    public static class SideSummary {
+        public int moves;
+        public int inaccuracies;
+        public int mistakes;
+        public int blunders;
+        public int averageLoss;
+        transient long totalLoss;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public GameRecord getGame() {
+        return game;
+    }
+
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    public synchronized EngineProcess getProcess() {
+        return process;
+    }
+
+    synchronized void setProcess(EngineProcess process) {
+        this.process = process;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    public synchronized Summary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Number of positions evaluated so far
+     */
+    public synchronized int getCompleted() {
+        return nextPly;
+    }
+
+    /**
+     * Number of positions to evaluate (plies + the start position)
+     */
+    public int getTotal() {
+        return game.getPlyCount() + 1;
+    }
+
+    /**
+     * Take the next ply to search, or -1 when the game is done or cancelled
+     */
+    synchronized int beginNextPly() {
+        if (cancelled || nextPly > game.getPlyCount()) {
+            return -1;
+        }
+        searchingPly = nextPly;
+        return searchingPly;
+    }
+
+    /**
+     * The ply being searched, or -1
+     */
+    synchronized int getSearchingPly() {
+        return searchingPly;
+    }
+
+    /**
+     * Record the evaluation of a ply and judge the move that led to it
+     */
+    synchronized PlyResult record(int ply, String score, String bestMove, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (cancelled || ply != searchingPly) {
+            return null;
+        }
+        searchingPly = -1;
+        nextPly = ply + 1;
+        evals[ply] = toCentipawns(score, game.isWhiteToMove(ply));
+        bestMoves[ply] = bestMove;
+
+        PlyResult result = new PlyResult();
+        result.ply = ply;
+        result.fen = game.getFen(ply);
+        result.score = score;
+        result.bestMove = bestMove;
+        result.lines = lines != null ? new ArrayList<>(lines.values()) : new ArrayList<>();
+
+        if (ply > 0) {
+            boolean whiteMoved = game.isWhiteToMove(ply - 1);
+            int change = evals[ply] - evals[ply - 1];
+            int loss = Math.max(0, whiteMoved ? -change : change);
+            result.uci = game.getUciMove(ply);
+            result.san = game.getSanMove(ply);
+            if (result.uci.equals(bestMoves[ply - 1])) {
+                loss = 0;
+            }
+            result.loss = loss;
+            result.classification = classify(loss);
+
+            SideSummary side = whiteMoved ? summary.white : summary.black;
+            side.moves++;
+            side.totalLoss += loss;
+            side.averageLoss = (int) (side.totalLoss / side.moves);
+            if (loss >= BLUNDER_LOSS) {
+                side.blunders++;
+            } else if (loss >= MISTAKE_LOSS) {
+                side.mistakes++;
+            } else if (loss >= INACCURACY_LOSS) {
+                side.inaccuracies++;
+            }
+            if (Math.abs(change) >= SWING_THRESHOLD) {
+                summary.swings.add(ply);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Mark the game finished once every ply is evaluated; true only for the first caller
+     */
+    synchronized boolean markFinishedIfDone() {
+        if (finished || cancelled || nextPly <= game.getPlyCount()) {
+            return false;
+        }
+        finished = true;
+        return true;
+    }
+
+    /**
+     * Cancel the analysis and return the process that was searching for it, or null
+     */
+    synchronized EngineProcess cancel() {
+        if (cancelled || finished) {
+            return null;
+        }
+        cancelled = true;
+        EngineProcess searching = process;
+        process = null;
+        return searching;
+    }
+
+    static String classify(int loss) {
+        if (loss >= BLUNDER_LOSS) {
+            return "blunder";
+        }
+        if (loss >= MISTAKE_LOSS) {
+            return "mistake";
+        }
+        if (loss >= INACCURACY_LOSS) {
+            return "inaccuracy";
+        }
+        return loss == 0 ? "best" : "good";
+    }
+
+    /**
+     * Convert a White-view score ("0.35", "#-3") to clamped centipawns.
+     * "#0" means the side to move is mated.
+     */
+    static int toCentipawns(String score, boolean whiteToMove) {
+        if (score == null) {
+            return 0;
+        }
+        int value = EngineProcess.parseScore(score);
+        if (score.startsWith("#")) {
+            if (value == 0) {
+                return whiteToMove ? -EVAL_CLAMP : EVAL_CLAMP;
+            }
+            return value > 0 ? EVAL_CLAMP : -EVAL_CLAMP;
+        }
+        return Math.max(-EVAL_CLAMP, Math.min(EVAL_CLAMP, value));
+    }
+}
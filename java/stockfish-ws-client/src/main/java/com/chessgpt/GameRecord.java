@@ -0,0 +1,201 @@
+package com.chessgpt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replayed Game
+ * Parses a PGN or a start position plus move list and keeps every ply as UCI, SAN and FEN
+ */
+public class GameRecord {
+
+    private final String startFen;
+    private final boolean standardStart;
+    private final Map<String, String> headers;
+    private final List<String> uciMoves = new ArrayList<>();
+    private final List<String> sanMoves = new ArrayList<>();
+    private final List<String> fens = new ArrayList<>();
+
+    private GameRecord(String startFen, Map<String, String> headers) {
+        Board board = startFen == null ? Board.startPosition() : Board.fromFen(startFen);
+        this.startFen = board.toFen();
+        this.standardStart = startFen == null || Board.START_FEN.equals(this.startFen);
+        this.headers = headers;
+        fens.add(this.startFen);
+    }
+
+    /**
+     * Parse the first game of a PGN; a [FEN] header sets the start position.
+     * Comments, variations, NAGs, move numbers and the result are skipped.
+     */
+    public static GameRecord fromPgn(String pgn) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        List<String> moves = new ArrayList<>();
+
+        int i = 0;
+        int variationDepth = 0;
+        int length = pgn.length();
+        while (i < length) {
+            char c = pgn.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '[' && variationDepth == 0 && moves.isEmpty()) {
+                int end = pgn.indexOf(']', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated PGN header");
+                }
+                parseHeader(pgn.substring(i + 1, end), headers);
+                i = end + 1;
+            } else if (c == '{') {
+                int end = pgn.indexOf('}', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == ';') {
+                int end = pgn.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '(') {
+                variationDepth++;
+                i++;
+            } else if (c == ')') {
+                variationDepth = Math.max(0, variationDepth - 1);
+                i++;
+            } else {
+                int end = i;
+                while (end < length && !Character.isWhitespace(pgn.charAt(end)) && "{}();".indexOf(pgn.charAt(end)) < 0) {
+                    end++;
+                }
+                String token = pgn.substring(i, end);
+                i = end;
+                if (variationDepth > 0) {
+                    continue;
+                }
+                if (isResult(token)) {
+                    break;
+                }
+                String move = stripMoveNumber(token);
+                if (!move.isEmpty() && move.charAt(0) != '$') {
+                    moves.add(move);
+                }
+            }
+        }
+
+        String fen = headers.get("FEN");
+        GameRecord game = new GameRecord(fen, headers);
+        game.playAll(moves);
+        return game;
+    }
+
+    /**
+     * Build a game from a start FEN (null for the standard position) and SAN or UCI moves
+     */
+    public static GameRecord fromMoves(String startFen, List<String> moves) {
+        GameRecord game = new GameRecord(startFen, new LinkedHashMap<>());
+        game.playAll(moves);
+        return game;
+    }
+
+    public String getStartFen() {
+        return startFen;
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Number of half-moves played
+     */
+    public int getPlyCount() {
+        return uciMoves.size();
+    }
+
+    /**
+     * FEN after the given number of plies (0 is the start position)
+     */
+    public String getFen(int ply) {
+        return fens.get(ply);
+    }
+
+    /**
+     * UCI move of the given ply, counting from 1
+     */
+    public String getUciMove(int ply) {
+        return uciMoves.get(ply - 1);
+    }
+
+    /**
+     * SAN move of the given ply, counting from 1
+     */
+    public String getSanMove(int ply) {
+        return sanMoves.get(ply - 1);
+    }
+
+    /**
+     * Check if White is to move after the given number of plies
+     */
+    public boolean isWhiteToMove(int ply) {
+        return fens.get(ply).contains(" w ");
+    }
+
+    /**
+     * UCI "position" command for the position after the given number of plies.
+     * The game is replayed from its start so the engine keeps its hash between plies.
+     */
+    public String getPositionCommand(int ply) {
+        StringBuilder sb = new StringBuilder(16 + ply * 5);
+        sb.append(standardStart ? "position startpos" : "position fen " + startFen);
+        if (ply > 0) {
+            sb.append(" moves");
+            for (int i = 0; i < ply; i++) {
+                sb.append(' ').append(uciMoves.get(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private void playAll(List<String> moves) {
+        Board board = Board.fromFen(startFen);
+        for (String move : moves) {
+            String uci = board.resolve(move);
+            if (uci == null) {
+                throw new IllegalArgumentException("Illegal move " + move + " at ply " + (uciMoves.size() + 1));
+            }
+            sanMoves.add(board.toSan(uci));
+            board.apply(uci);
+            uciMoves.add(uci);
+            fens.add(board.toFen());
+        }
+    }
+
+    private static void parseHeader(String header, Map<String, String> headers) {
+        int quote = header.indexOf('"');
+        int lastQuote = header.lastIndexOf('"');
+        if (quote < 0 || lastQuote <= quote) {
+            return;
+        }
+        headers.put(header.substring(0, quote).trim(), header.substring(quote + 1, lastQuote));
+    }
+
+    private static boolean isResult(String token) {
+        return "1-0".equals(token) || "0-1".equals(token) || "1/2-1/2".equals(token) || "*".equals(token);
+    }
+
+    /**
+     * Remove a leading move number ("12." or "12...") from a token
+     */
+    private static String stripMoveNumber(String token) {
+        int i = 0;
+        while (i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+        if (i == 0 || i == token.length() || token.charAt(i) != '.') {
+            return i == token.length() ? "" : token;
+        }
+        while (i < token.length() && token.charAt(i) == '.') {
+            i++;
+        }
+        return token.substring(i);
+    }
+}
@@ -0,0 +1,148 @@
+package com.chessgpt;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency Histogram
+ * Log-linear buckets over nanoseconds: exact below 64ns, then 64 buckets per power of two,
+ * so any recorded value is reported within 1.6%. Recording is lock-free and allocation-free;
+ * only percentile queries copy the counts.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Highest power of two tracked separately (2^42ns is about 73 minutes); larger values share the last bucket
+    private static final int MAX_EXPONENT = 42;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record one latency
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sumNanos.add(value);
+        if (value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Latency below which the given percentage (0-100) of the recorded values fall, 0 when empty
+     */
+    public long getPercentileNanos(double percentile) {
+        return getPercentilesNanos(percentile)[0];
+    }
+
+    /**
+     * Several percentiles from one consistent copy of the counts
+     */
+    public long[] getPercentilesNanos(double... percentiles) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long[] result = new long[percentiles.length];
+        if (total == 0) {
+            return result;
+        }
+        long max = maxNanos.get();
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentiles[p]) / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    result[p] = Math.min(bucketHighest(i), max);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get a human readable percentile summary, e.g. "n=120 p50=3.1ms p90=8.0ms p99=20ms p99.9=41ms max=44ms"
+     */
+    public String getSummary() {
+        long[] values = getPercentilesNanos(50, 90, 99, 99.9);
+        return "n=" + getCount()
+            + " p50=" + formatMillis(values[0])
+            + " p90=" + formatMillis(values[1])
+            + " p99=" + formatMillis(values[2])
+            + " p99.9=" + formatMillis(values[3])
+            + " max=" + formatMillis(getMaxNanos());
+    }
+
+    /**
+     * Forget every recorded value
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sumNanos.reset();
+        maxNanos.set(0);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Largest value that falls into a bucket
+     */
+    static long bucketHighest(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        if (index == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    private static String formatMillis(long nanos) {
+        double millis = nanos / 1e6;
+        if (millis >= 100) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+        }
+        return String.format("%.2fms", millis);
+    }
+}
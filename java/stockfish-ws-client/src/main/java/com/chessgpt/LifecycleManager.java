@@ -0,0 +1,155 @@
+package com.chessgpt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lifecycle Manager
+ * Runs startup or shutdown phases concurrently, each as soon as its dependencies are done,
+ * and records how long every phase took
+ */
+public class LifecycleManager {
+
+    private final String name;
+    private final ExecutorService executor;
+    private final long startedAtNanos = System.nanoTime();
+    private final Map<String, CompletableFuture<Void>> phases = new LinkedHashMap<>();
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private volatile long totalMillis = -1;
+
+    public LifecycleManager(String name) {
+        this.name = name;
+        AtomicInteger threadCount = new AtomicInteger(1);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Body of a phase; may block until its component is really ready
+     */
+    public interface Phase {
+        void run() throws Exception;
+    }
+
+    /**
+     * Schedule a phase that starts once all dependencies completed.
+     * A phase whose dependency failed is skipped and fails with the same cause.
+     */
+    public synchronized CompletableFuture<Void> phase(String phaseName, Phase phase, CompletableFuture<?>... dependencies) {
+        CompletableFuture<Void> future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                phase.run();
+                Log.debug("⏱️  [" + name + "] " + phaseName + " done");
+            } catch (Exception e) {
+                Log.error("❌ [" + name + "] " + phaseName + " failed: " + e.getMessage());
+                throw new CompletionException(e);
+            } finally {
+                recordPhase(phaseName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }, executor);
+        phases.put(phaseName, future);
+        return future;
+    }
+
+    /**
+     * Wait for every scheduled phase and rethrow the first failure
+     */
+    public void await(long timeoutMillis) throws Exception {
+        CompletableFuture<?>[] all;
+        synchronized (this) {
+            all = phases.values().toArray(new CompletableFuture<?>[0]);
+        }
+        try {
+            CompletableFuture.allOf(all).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            throw new TimeoutException(name + " did not finish within " + timeoutMillis + "ms, pending: " + getPendingPhases());
+        } finally {
+            totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Log the duration of every phase and the total wall time
+     */
+    public void report() {
+        StringBuilder sb = new StringBuilder("⏱️  ").append(capitalize(name)).append(" took ").append(getTotalMillis()).append("ms");
+        for (Map.Entry<String, Long> entry : getPhaseMillis().entrySet()) {
+            sb.append("\n  - ").append(entry.getKey()).append(": ").append(entry.getValue()).append("ms");
+        }
+        for (String pending : getPendingPhases()) {
+            sb.append("\n  - ").append(pending).append(": not finished");
+        }
+        for (String skipped : getSkippedPhases()) {
+            sb.append("\n  - ").append(skipped).append(": skipped");
+        }
+        Log.info(sb.toString());
+    }
+
+    /**
+     * Duration of every finished phase, in the order they finished
+     */
+    public synchronized Map<String, Long> getPhaseMillis() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(phaseMillis));
+    }
+
+    /**
+     * Wall time from creation until await() returned, or until now while still running
+     */
+    public long getTotalMillis() {
+        long total = totalMillis;
+        return total >= 0 ? total : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private synchronized void recordPhase(String phaseName, long millis) {
+        phaseMillis.put(phaseName, millis);
+    }
+
+    private synchronized List<String> getPendingPhases() {
+        List<String> pending = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Void>> entry : phases.entrySet()) {
+            if (!entry.getValue().isDone()) {
+                pending.add(entry.getKey());
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Phases that never ran because a dependency failed
+     */
+    private synchronized List<String> getSkippedPhases() {
+        List<String> skipped = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Void>> entry : phases.entrySet()) {
+            if (entry.getValue().isCompletedExceptionally() && !phaseMillis.containsKey(entry.getKey())) {
+                skipped.add(entry.getKey());
+            }
+        }
+        return skipped;
+    }
+
+    private static String capitalize(String text) {
+        return text.isEmpty() ? text : Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
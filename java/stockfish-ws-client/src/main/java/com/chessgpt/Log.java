@@ -0,0 +1,389 @@
+package com.chessgpt;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous levelled logger
+ * Callers publish into a lock-free ring buffer; a background thread formats and writes,
+ * so console or file I/O never runs on engine reader or WebSocket threads.
+ *
+ * Configuration (system properties):
+ *   chessgpt.log.level       TRACE, DEBUG, INFO (default), WARN, ERROR, OFF
+ *   chessgpt.log.format      text (default) or json
+ *   chessgpt.log.file        write to a rotating file instead of the console
+ *   chessgpt.log.maxBytes    rotation size, default 10 MB
+ *   chessgpt.log.maxFiles    rotated files kept, default 5
+ *   chessgpt.log.sample.NAME log every N-th event of a sampler
+ */
+public final class Log {
+
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final int BUFFER_SIZE = Integer.highestOneBit(Math.max(64, Integer.getInteger("chessgpt.log.bufferSize", 8192)));
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile Level level = parseLevel(System.getProperty("chessgpt.log.level", "INFO"));
+    private static final boolean json = "json".equalsIgnoreCase(System.getProperty("chessgpt.log.format", "text"));
+
+    private static final Ring RING = new Ring(BUFFER_SIZE);
+    private static final AtomicLong dropped = new AtomicLong();
+    // Safety net against a missed wake-up; the writer is normally unparked by the logging thread
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final Writer WRITER = new Writer();
+
+    static {
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "LogFlush"));
+    }
+
+    private Log() {
+    }
+
+    public static void trace(String message) {
+        log(Level.TRACE, message, null);
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    public static void error(String message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    public static boolean isTraceEnabled() {
+        return level.ordinal() <= Level.TRACE.ordinal();
+    }
+
+    public static boolean isDebugEnabled() {
+        return level.ordinal() <= Level.DEBUG.ordinal();
+    }
+
+    public static boolean isEnabled(Level candidate) {
+        return candidate != Level.OFF && level.ordinal() <= candidate.ordinal();
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Number of events dropped because the ring buffer was full
+     */
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Number of events waiting for the writer thread
+     */
+    public static int getQueueDepth() {
+        return RING.size();
+    }
+
+    /**
+     * Create a sampler that lets through every N-th event (-Dchessgpt.log.sample.NAME overrides N)
+     */
+    public static Sampler sampler(String name, int defaultEvery) {
+        return new Sampler(Integer.getInteger("chessgpt.log.sample." + name, defaultEvery));
+    }
+
+    /**
+     * Block until everything queued so far has been written
+     */
+    public static void flush() {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!RING.isEmpty() && System.nanoTime() < deadline) {
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(1_000_000L);
+        }
+        WRITER.flushOutput();
+    }
+
+    private static void log(Level eventLevel, String message, Throwable error) {
+        if (!isEnabled(eventLevel)) {
+            return;
+        }
+        if (!RING.offer(eventLevel, message, error)) {
+            dropped.incrementAndGet();
+        } else if (WRITER.waiting) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    /**
+     * Lets through one in every N events; N <= 0 disables the events entirely
+     */
+    public static final class Sampler {
+        private final int every;
+        private final AtomicLong counter = new AtomicLong();
+
+        private Sampler(int every) {
+            this.every = every;
+        }
+
+        public boolean sample() {
+            return every > 0 && counter.getAndIncrement() % every == 0;
+        }
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer ring with per-slot sequence numbers
+     */
+    private static final class Ring {
+        private final int mask;
+        private final AtomicLongArray sequences;
+        private final Level[] levels;
+        private final long[] times;
+        private final String[] threads;
+        private final String[] messages;
+        private final Throwable[] errors;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head = 0;
+
+        Ring(int capacity) {
+            mask = capacity - 1;
+            sequences = new AtomicLongArray(capacity);
+            levels = new Level[capacity];
+            times = new long[capacity];
+            threads = new String[capacity];
+            messages = new String[capacity];
+            errors = new Throwable[capacity];
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(Level eventLevel, String message, Throwable error) {
+            long pos = tail.get();
+            while (true) {
+                int index = (int) (pos & mask);
+                long diff = sequences.get(index) - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        levels[index] = eventLevel;
+                        times[index] = System.currentTimeMillis();
+                        threads[index] = Thread.currentThread().getName();
+                        messages[index] = message;
+                        errors[index] = error;
+                        sequences.lazySet(index, pos + 1);
+                        return true;
+                    }
+                    pos = tail.get();
+                } else if (diff < 0) {
+                    return false;
+                } else {
+                    pos = tail.get();
+                }
+            }
+        }
+
+        /**
+         * Consume the next event into the writer; returns false when empty
+         */
+        boolean poll(Writer writer) {
+            long pos = head;
+            int index = (int) (pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                return false;
+            }
+            writer.write(levels[index], times[index], threads[index], messages[index], errors[index]);
+            messages[index] = null;
+            errors[index] = null;
+            sequences.lazySet(index, pos + mask + 1);
+            head = pos + 1;
+            return true;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+
+        boolean isEmpty() {
+            return sequences.get((int) (head & mask)) != head + 1;
+        }
+    }
+
+    /**
+     * Background thread formatting events to the console or a rotating file
+     */
+    private static final class Writer extends Thread {
+        private final StringBuilder line = new StringBuilder(512);
+        private final PrintStream stdout = System.out;
+        private final PrintStream stderr = System.err;
+        private final String filePath = System.getProperty("chessgpt.log.file");
+        private final long maxBytes = Long.getLong("chessgpt.log.maxBytes", 10L * 1024 * 1024);
+        private final int maxFiles = Integer.getInteger("chessgpt.log.maxFiles", 5);
+        private OutputStream file;
+        private long fileBytes;
+        private volatile boolean waiting = false;
+
+        Writer() {
+            super("LogWriter");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                boolean wrote = false;
+                while (RING.poll(this)) {
+                    wrote = true;
+                }
+                if (wrote) {
+                    flushOutput();
+                } else {
+                    // Publish the intent to sleep before the last look at the ring, so an event is rarely missed
+                    waiting = true;
+                    if (RING.isEmpty()) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    waiting = false;
+                }
+            }
+        }
+
+        synchronized void flushOutput() {
+            try {
+                if (file != null) {
+                    file.flush();
+                }
+            } catch (IOException e) {
+                stderr.println("❌ Log file flush failed: " + e.getMessage());
+            }
+            stdout.flush();
+            stderr.flush();
+        }
+
+        synchronized void write(Level eventLevel, long time, String thread, String message, Throwable error) {
+            line.setLength(0);
+            if (json) {
+                line.append("{\"ts\":\"").append(Instant.ofEpochMilli(time))
+                    .append("\",\"level\":\"").append(eventLevel)
+                    .append("\",\"thread\":");
+                appendJsonString(thread);
+                line.append(",\"msg\":");
+                appendJsonString(message);
+                if (error != null) {
+                    line.append(",\"error\":");
+                    appendJsonString(stackTrace(error));
+                }
+                line.append('}');
+            } else {
+                TIME_FORMAT.formatTo(Instant.ofEpochMilli(time), line);
+                line.append(' ').append(eventLevel).append(" [").append(thread).append("] ").append(message);
+                if (error != null) {
+                    line.append('\n').append(stackTrace(error));
+                }
+            }
+
+            if (filePath != null) {
+                writeToFile();
+            } else if (eventLevel.ordinal() >= Level.WARN.ordinal()) {
+                stderr.println(line);
+            } else {
+                stdout.println(line);
+            }
+        }
+
+        private void writeToFile() {
+            try {
+                if (file == null || fileBytes >= maxBytes) {
+                    rotate();
+                }
+                line.append('\n');
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                file.write(bytes);
+                fileBytes += bytes.length;
+            } catch (IOException e) {
+                stderr.println("❌ Log file write failed: " + e.getMessage());
+                stderr.println(line);
+            }
+        }
+
+        /**
+         * Shift app.log -> app.log.1 -> ... and start a new file
+         */
+        private void rotate() throws IOException {
+            if (file != null) {
+                file.close();
+                for (int i = maxFiles - 1; i >= 1; i--) {
+                    File from = new File(filePath + (i == 1 ? "" : "." + (i - 1)));
+                    File to = new File(filePath + "." + i);
+                    if (from.exists()) {
+                        to.delete();
+                        from.renameTo(to);
+                    }
+                }
+            }
+            File target = new File(filePath);
+            if (target.getParentFile() != null) {
+                target.getParentFile().mkdirs();
+            }
+            fileBytes = target.exists() ? target.length() : 0;
+            file = new FileOutputStream(target, true);
+        }
+
+        private void appendJsonString(String value) {
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"': line.append("\\\""); break;
+                    case '\\': line.append("\\\\"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\r': line.append("\\r"); break;
+                    case '\t': line.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            line.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            line.append(c);
+                        }
+                }
+            }
+            line.append('"');
+        }
+
+        private static String stackTrace(Throwable error) {
+            StringWriter sw = new StringWriter();
+            error.printStackTrace(new PrintWriter(sw));
+            return sw.toString().trim();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.chessgpt;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Metrics Registry
+ * Process-wide counters, gauges and summaries rendered in the Prometheus text format.
+ * Counters are striped (LongAdder) so they are safe on the engine output and broadcast hot paths;
+ * gauges and collectors are only evaluated when the endpoint is scraped.
+ */
+public final class Metrics {
+
+    public enum Type {
+        COUNTER, GAUGE, SUMMARY;
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final Map<String, Family> FAMILIES = new LinkedHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Monotonic counter of one label combination
+     */
+    public static final class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        public void inc() {
+            adder.increment();
+        }
+
+        public void add(long amount) {
+            adder.add(amount);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+    }
+
+    /**
+     * Receives the samples of a collector; labels are name/value pairs
+     */
+    public interface Samples {
+        void add(double value, String... labels);
+
+        /**
+         * Add a sample named after the family plus a suffix, e.g. "_sum" and "_count" of a summary
+         */
+        void addWithSuffix(String suffix, double value, String... labels);
+    }
+
+    /**
+     * Produces the samples of a metric family at scrape time
+     */
+    public interface Collector {
+        void collect(Samples samples);
+    }
+
+    /**
+     * Get or create the counter for a name and label pairs, e.g. counter("x_total", "help", "result", "parsed").
+     * Look the counter up once and keep it in a field; the lookup itself is not meant for hot paths.
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        Family family = family(name, help, Type.COUNTER);
+        return family.counters.computeIfAbsent(formatLabels(labels), key -> new Counter());
+    }
+
+    /**
+     * Register a gauge read at scrape time, replacing an earlier gauge of the same name
+     */
+    public static void gauge(String name, String help, DoubleSupplier supplier) {
+        register(name, help, Type.GAUGE, samples -> samples.add(supplier.getAsDouble()));
+    }
+
+    /**
+     * Register a collector for a labelled family, replacing an earlier collector of the same name
+     */
+    public static void register(String name, String help, Type type, Collector collector) {
+        family(name, help, type).collector = collector;
+    }
+
+    /**
+     * Render every family in the Prometheus text exposition format (version 0.0.4)
+     */
+    public static String scrape() {
+        List<Family> families;
+        synchronized (FAMILIES) {
+            families = new ArrayList<>(FAMILIES.values());
+        }
+        StringBuilder sb = new StringBuilder(8192);
+        for (Family family : families) {
+            family.write(sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Register heap, GC and thread metrics of this JVM
+     */
+    public static void registerJvmMetrics() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        register("jvm_memory_bytes_used", "Used bytes of a JVM memory area", Type.GAUGE, samples -> {
+            samples.add(memory.getHeapMemoryUsage().getUsed(), "area", "heap");
+            samples.add(memory.getNonHeapMemoryUsage().getUsed(), "area", "nonheap");
+        });
+        register("jvm_memory_bytes_committed", "Committed bytes of a JVM memory area", Type.GAUGE, samples -> {
+            samples.add(memory.getHeapMemoryUsage().getCommitted(), "area", "heap");
+            samples.add(memory.getNonHeapMemoryUsage().getCommitted(), "area", "nonheap");
+        });
+        register("jvm_memory_bytes_max", "Max bytes of a JVM memory area, -1 when undefined", Type.GAUGE, samples -> {
+            MemoryUsage heap = memory.getHeapMemoryUsage();
+            samples.add(heap.getMax(), "area", "heap");
+        });
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        register("jvm_gc_collections_total", "Collections run by a garbage collector", Type.COUNTER, samples -> {
+            for (GarbageCollectorMXBean gc : collectors) {
+                samples.add(gc.getCollectionCount(), "gc", gc.getName());
+            }
+        });
+        register("jvm_gc_collection_seconds_total", "Time spent in a garbage collector", Type.COUNTER, samples -> {
+            for (GarbageCollectorMXBean gc : collectors) {
+                samples.add(gc.getCollectionTime() / 1000.0, "gc", gc.getName());
+            }
+        });
+        gauge("jvm_threads_current", "Live JVM threads", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        gauge("process_uptime_seconds", "Time since the JVM started",
+            () -> ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+    }
+
+    private static Family family(String name, String help, Type type) {
+        synchronized (FAMILIES) {
+            Family family = FAMILIES.get(name);
+            if (family == null) {
+                family = new Family(name, help, type);
+                FAMILIES.put(name, family);
+            } else if (family.type != type) {
+                throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.label());
+            }
+            return family;
+        }
+    }
+
+    /**
+     * Render label pairs as {a="x",b="y"}, or an empty string without labels
+     */
+    static String formatLabels(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder sb = new StringBuilder().append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1] != null ? labels[i + 1] : "";
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * All samples sharing a metric name: fixed counters and at most one scrape-time collector
+     */
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Counter> counters = new ConcurrentHashMap<>();
+        volatile Collector collector;
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        void write(StringBuilder sb) {
+            sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(type.label()).append('\n');
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                sb.append(name).append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+            }
+            Collector current = collector;
+            if (current != null) {
+                try {
+                    current.collect(new Samples() {
+                        @Override
+                        public void add(double value, String... labels) {
+                            addWithSuffix("", value, labels);
+                        }
+
+                        @Override
+                        public void addWithSuffix(String suffix, double value, String... labels) {
+                            sb.append(name).append(suffix).append(formatLabels(labels)).append(' ')
+                                .append(formatValue(value)).append('\n');
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    Log.warn("⚠️  Metric " + name + " could not be collected: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
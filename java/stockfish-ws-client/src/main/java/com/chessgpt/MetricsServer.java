@@ -0,0 +1,103 @@
+package com.chessgpt;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Metrics Endpoint
+ * Serves the metrics registry at http://host:port/metrics for Prometheus to scrape, plus plain text pages.
+ * Binds to the loopback interface by default; a port of 0 disables the endpoint.
+ */
+public class MetricsServer {
+
+    private static final int DEFAULT_PORT = 9464;
+    private static final String DEFAULT_HOST = "127.0.0.1";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final String host = System.getProperty("chessgpt.metrics.host", DEFAULT_HOST);
+    private final int port = Integer.getInteger("chessgpt.metrics.port", DEFAULT_PORT);
+    private HttpServer server;
+    private ExecutorService executor;
+    private final Map<String, Supplier<String>> pages = new LinkedHashMap<>();
+
+    /**
+     * Serve a plain text page next to /metrics, e.g. a percentile dump; call before start()
+     */
+    public synchronized void addPage(String path, Supplier<String> page) {
+        pages.put(path, page);
+    }
+
+    /**
+     * Bind the endpoint and register the JVM and log metrics
+     */
+    public synchronized void start() throws IOException {
+        if (port <= 0) {
+            Log.info("📊 Metrics endpoint disabled");
+            return;
+        }
+        if (server != null) {
+            return;
+        }
+        Metrics.registerJvmMetrics();
+        Metrics.gauge("chessgpt_log_queue_events", "Log events waiting for the writer thread", Log::getQueueDepth);
+        Metrics.register("chessgpt_log_dropped_total", "Log events dropped because the queue was full",
+            Metrics.Type.COUNTER, samples -> samples.add(Log.getDroppedCount()));
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, Metrics::scrape));
+        for (Map.Entry<String, Supplier<String>> page : pages.entrySet()) {
+            server.createContext(page.getKey(), exchange -> respond(exchange, page.getValue()));
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MetricsServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        Log.info("📊 Metrics endpoint listening on http://" + host + ":" + server.getAddress().getPort() + "/metrics");
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            Log.info("✅ Metrics endpoint stopped");
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    private void respond(HttpExchange exchange, Supplier<String> page) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = page.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.chessgpt;
+
+/**
+ * Packs UCI moves into 16 bits
+ * Layout: bits 0-5 target square, 6-11 source square, 12-14 promotion piece
+ */
+public final class MoveCodec {
+
+    public static final int NULL_MOVE = 0;
+
+    private static final char[] PROMOTIONS = {0, 'n', 'b', 'r', 'q'};
+
+    private MoveCodec() {
+    }
+
+    /**
+     * Pack a move such as "e2e4" or "e7e8q"; returns -1 if the text is not a move
+     */
+    public static int pack(CharSequence move, int start, int end) {
+        if (!UciInfoParser.isMove(move, start, end)) {
+            return -1;
+        }
+        if (move.charAt(start) == '0') {
+            return NULL_MOVE;
+        }
+        int n = end - start;
+        int from = square(move.charAt(start), move.charAt(start + 1));
+        int to = square(move.charAt(start + 2), move.charAt(start + 3));
+        int promotion = 0;
+        if (n == 5) {
+            switch (move.charAt(start + 4)) {
+                case 'n': promotion = 1; break;
+                case 'b': promotion = 2; break;
+                case 'r': promotion = 3; break;
+                case 'q': promotion = 4; break;
+                default: return -1;
+            }
+        }
+        return (promotion << 12) | (from << 6) | to;
+    }
+
+    public static int pack(String move) {
+        return pack(move, 0, move.length());
+    }
+
+    /**
+     * Append the UCI text of a packed move
+     */
+    public static void unpack(int packed, StringBuilder out) {
+        if (packed == NULL_MOVE) {
+            out.append("0000");
+            return;
+        }
+        int from = (packed >> 6) & 0x3F;
+        int to = packed & 0x3F;
+        int promotion = (packed >> 12) & 0x7;
+        out.append((char) ('a' + (from & 7))).append((char) ('1' + (from >> 3)));
+        out.append((char) ('a' + (to & 7))).append((char) ('1' + (to >> 3)));
+        if (promotion > 0 && promotion < PROMOTIONS.length) {
+            out.append(PROMOTIONS[promotion]);
+        }
+    }
+
+    public static String unpack(int packed) {
+        StringBuilder sb = new StringBuilder(5);
+        unpack(packed, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Pack a space separated move list; returns the number of moves written
+     */
+    public static int packAll(String moves, short[] out) {
+        int count = 0;
+        int len = moves.length();
+        int pos = 0;
+        while (pos < len && count < out.length) {
+            while (pos < len && moves.charAt(pos) == ' ') {
+                pos++;
+            }
+            int end = pos;
+            while (end < len && moves.charAt(end) != ' ') {
+                end++;
+            }
+            if (end > pos) {
+                int packed = pack(moves, pos, end);
+                if (packed < 0) {
+                    break;
+                }
+                out[count++] = (short) packed;
+            }
+            pos = end;
+        }
+        return count;
+    }
+
+    private static int square(char file, char rank) {
+        return (rank - '1') * 8 + (file - 'a');
+    }
+}
@@ -10,7 +10,9 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 /**
  * NgrokManager - Manages ngrok tunnel operations
@@ -20,15 +22,23 @@ public class NgrokManager {
     
     private static final String WEB_APP_BASE_URL = "https://chess-analyze.online";
     private static final String NGROK_API_URL = "http://localhost:4040/api/tunnels";
+    private static final long DEFAULT_START_TIMEOUT_SECONDS = 15;
+    private static final long RELEASE_TIMEOUT_MILLIS = 5000;
+    private static final long POLL_INTERVAL_MILLIS = 100;
     
     // ngrok process and status
     private Process ngrokProcess;
-    private String ngrokPublicUrl;
+    private volatile String ngrokPublicUrl;
     private int targetPort;
+    private final long startTimeoutMillis = TimeUnit.SECONDS.toMillis(
+        Long.getLong("chessgpt.ngrok.startTimeoutSeconds", DEFAULT_START_TIMEOUT_SECONDS));
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(1))
+        .build();
     
     // Event listener
     private NgrokManagerListener listener;
-    private StatusWindow statusWindow;
+    private volatile StatusWindow statusWindow;
     
     public NgrokManager(int targetPort, NgrokManagerListener listener, StatusWindow statusWindow) {
         this.targetPort = targetPort;
@@ -66,18 +76,29 @@ public class NgrokManager {
             logStatus("🧹 Terminating conflicting ngrok processes...");
             terminateExistingProcesses();
             
-            // Wait a bit after terminating processes
-            Thread.sleep(2000);
+            // Wait until the old agent released its local API port
+            if (!waitUntil(() -> !isApiResponding(), RELEASE_TIMEOUT_MILLIS)) {
+                logStatus("⚠️  Previous ngrok agent is still answering on its API port");
+            }
             
             logStatus("🚀 Starting new ngrok process on port " + targetPort + "...");
             
             // Start ngrok process
+            long startedAt = System.nanoTime();
             ProcessBuilder ngrokBuilder = new ProcessBuilder("ngrok", "http", String.valueOf(targetPort));
             ngrokProcess = ngrokBuilder.start();
             
-            // Wait a moment for ngrok to start
+            // Poll the local API until the tunnel is listed
             logStatus("⏳ Waiting for ngrok to initialize...");
-            Thread.sleep(3000);
+            Process started = ngrokProcess;
+            boolean listed = waitUntil(() -> !started.isAlive() || fetchTunnelUrlQuietly() != null, startTimeoutMillis);
+            if (!started.isAlive()) {
+                handleTunnelFailure("ngrok exited with code " + started.exitValue());
+                return;
+            }
+            if (listed) {
+                Log.info("⏱️  ngrok tunnel came up after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + "ms");
+            }
             
             // Get ngrok public URL
             logStatus("🔗 Querying ngrok API for public URL...");
@@ -94,6 +115,13 @@ public class NgrokManager {
         }
     }
     
+    /**
+     * How long startTunnel() waits for a new agent to list the tunnel
+     */
+    public long getStartTimeoutMillis() {
+        return startTimeoutMillis;
+    }
+    
     /**
      * Stop ngrok tunnel and cleanup
      */
@@ -112,7 +140,7 @@ public class NgrokManager {
                 logStatus("✅ ngrok process stopped");
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                System.err.println("❌ Interrupted while stopping ngrok");
+                Log.error("❌ Interrupted while stopping ngrok");
             }
         }
         
@@ -138,44 +166,24 @@ public class NgrokManager {
         }
         
         try {
-            // Query ngrok local API
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(NGROK_API_URL))
-                    .build();
-            
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() == 200) {
-                JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
-                
-                if (jsonResponse.has("tunnels")) {
-                    var tunnelsArray = jsonResponse.getAsJsonArray("tunnels");
-                    
-                    for (int i = 0; i < tunnelsArray.size(); i++) {
-                        JsonObject tunnel = tunnelsArray.get(i).getAsJsonObject();
-                        
-                        if (tunnel.has("proto") && "https".equals(tunnel.get("proto").getAsString())) {
-                            if (tunnel.has("config")) {
-                                JsonObject config = tunnel.getAsJsonObject("config");
-                                String addr = config.get("addr").getAsString();
-                                
-                                if (addr.equals("http://localhost:" + targetPort)) {
-                                    return tunnel.get("public_url").getAsString();
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            
+            return fetchTunnelUrl();
         } catch (Exception e) {
-            System.err.println("⚠️  Error querying ngrok API: " + e.getMessage());
+            Log.warn("⚠️  Error querying ngrok API: " + e.getMessage());
         }
         
         return null;
     }
     
+    /**
+     * Attach the status window once it is built; an established tunnel URL is shown right away
+     */
+    public void setStatusWindow(StatusWindow statusWindow) {
+        this.statusWindow = statusWindow;
+        if (statusWindow != null && ngrokPublicUrl != null) {
+            statusWindow.updateNgrokUrl(getWebAppUrl());
+        }
+    }
+    
     /**
      * Check if tunnel is currently active
      */
@@ -210,45 +218,90 @@ public class NgrokManager {
      * Check for existing ngrok tunnel for the target port
      */
     private String checkExistingTunnel() {
-        try {
-            // Query ngrok local API to check existing tunnels
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(NGROK_API_URL))
-                    .build();
-            
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        // ngrok might not be running
+        return fetchTunnelUrlQuietly();
+    }
+    
+    /**
+     * Query the ngrok local API for the HTTPS tunnel of the target port; null if it is not listed
+     */
+    private String fetchTunnelUrl() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(NGROK_API_URL))
+                .timeout(Duration.ofSeconds(2))
+                .build();
+        
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        
+        if (response.statusCode() == 200) {
+            JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
             
-            if (response.statusCode() == 200) {
-                JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
+            if (jsonResponse.has("tunnels")) {
+                var tunnelsArray = jsonResponse.getAsJsonArray("tunnels");
                 
-                if (jsonResponse.has("tunnels")) {
-                    var tunnelsArray = jsonResponse.getAsJsonArray("tunnels");
+                for (int i = 0; i < tunnelsArray.size(); i++) {
+                    JsonObject tunnel = tunnelsArray.get(i).getAsJsonObject();
                     
-                    for (int i = 0; i < tunnelsArray.size(); i++) {
-                        JsonObject tunnel = tunnelsArray.get(i).getAsJsonObject();
-                        
-                        if (tunnel.has("proto") && "https".equals(tunnel.get("proto").getAsString())) {
-                            if (tunnel.has("config")) {
-                                JsonObject config = tunnel.getAsJsonObject("config");
-                                String addr = config.get("addr").getAsString();
-                                
-                                if (addr.equals("http://localhost:" + targetPort)) {
-                                    return tunnel.get("public_url").getAsString();
-                                }
+                    if (tunnel.has("proto") && "https".equals(tunnel.get("proto").getAsString())) {
+                        if (tunnel.has("config")) {
+                            JsonObject config = tunnel.getAsJsonObject("config");
+                            String addr = config.get("addr").getAsString();
+                            
+                            if (addr.equals("http://localhost:" + targetPort)) {
+                                return tunnel.get("public_url").getAsString();
                             }
                         }
                     }
                 }
             }
-            
+        }
+        return null;
+    }
+    
+    private String fetchTunnelUrlQuietly() {
+        try {
+            return fetchTunnelUrl();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            // Ignore errors - ngrok might not be running
+            // API not reachable yet
         }
-        
         return null;
     }
     
+    /**
+     * Check if an ngrok agent answers on the local API port
+     */
+    private boolean isApiResponding() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(NGROK_API_URL))
+                    .timeout(Duration.ofSeconds(1))
+                    .build();
+            httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Poll a readiness condition until it holds or the timeout expires
+     */
+    private static boolean waitUntil(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+        return true;
+    }
+    
     /**
      * Terminate existing ngrok processes that might conflict
      */
@@ -351,7 +404,7 @@ public class NgrokManager {
                             int pid = Integer.parseInt(line.trim());
                             ProcessBuilder killPb = new ProcessBuilder("kill", "-9", String.valueOf(pid));
                             killPb.start().waitFor(1, TimeUnit.SECONDS);
-                            System.out.println("🔥 Force killed ngrok process PID: " + pid);
+                            Log.info("🔥 Force killed ngrok process PID: " + pid);
                             logStatus("🔥 Force killed ngrok process PID: " + pid);
                         } catch (NumberFormatException e) {
                             // Ignore invalid PID
@@ -372,16 +425,13 @@ public class NgrokManager {
         String wsUrl = publicUrl.replace("https://", "wss://");
         String webAppUrl = WEB_APP_BASE_URL + "/?ws=" + wsUrl;
         
-        System.out.println("✅ ngrok tunnel established successfully!");
-        System.out.println("  - Public HTTPS URL: " + publicUrl);
-        System.out.println("  - WebSocket WSS URL: " + wsUrl);
-        System.out.println("");
-        System.out.println("🎯 READY TO USE:");
-        System.out.println("📱 Open this link in your browser or mobile device:");
-        System.out.println("🔗 " + webAppUrl);
-        System.out.println("");
-        System.out.println("💡 You can also manually connect using WebSocket URL: " + wsUrl);
-        System.out.println("");
+        Log.info("✅ ngrok tunnel established successfully!");
+        Log.info("  - Public HTTPS URL: " + publicUrl);
+        Log.info("  - WebSocket WSS URL: " + wsUrl);
+        Log.info("🎯 READY TO USE:");
+        Log.info("📱 Open this link in your browser or mobile device:");
+        Log.info("🔗 " + webAppUrl);
+        Log.info("💡 You can also manually connect using WebSocket URL: " + wsUrl);
         
         // Update StatusWindow with detailed info
         logStatus("✅ ngrok tunnel established successfully!", "success");
@@ -406,10 +456,10 @@ public class NgrokManager {
      * Handle tunnel establishment failure
      */
     private void handleTunnelFailure(String errorMessage) {
-        System.err.println("❌ " + errorMessage);
-        System.out.println("💡 Make sure ngrok is installed and available in PATH");
-        System.out.println("💡 Check if you have multiple ngrok sessions running");
-        System.out.println("💡 Server is running locally on ws://localhost:" + targetPort);
+        Log.error("❌ " + errorMessage);
+        Log.info("💡 Make sure ngrok is installed and available in PATH");
+        Log.info("💡 Check if you have multiple ngrok sessions running");
+        Log.info("💡 Server is running locally on ws://localhost:" + targetPort);
         
         // Update StatusWindow with failure info
         logStatus("❌ " + errorMessage, "error");
@@ -454,12 +504,12 @@ public class NgrokManager {
             }
             
             process.waitFor();
-            System.out.println("📋 Link copied to clipboard!");
+            Log.info("📋 Link copied to clipboard!");
             logStatus("📋 Link automatically copied to clipboard!");
             
         } catch (Exception e) {
             // Silently ignore clipboard errors
-            System.out.println("💡 Copy the link above to access your chess analysis app");
+            Log.info("💡 Copy the link above to access your chess analysis app");
             logStatus("💡 Copy the link above to access your chess analysis app");
         }
     }
@@ -0,0 +1,211 @@
+package com.chessgpt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Pipeline Stage
+ * One consumer thread fed by a bounded lock-free queue, so a slow step never blocks the step before it.
+ * Producers never wait: over capacity, items offered as droppable are counted and discarded while
+ * the others are still accepted, so control messages are never lost.
+ * Stages of the same kind share a Stats with their queue depth, drops, wait time and handling time.
+ */
+public class PipelineStage<T> {
+
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+    private static final List<Stats> STATS_ORDER = new CopyOnWriteArrayList<>();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final double[] PERCENTILES = {50, 90, 99};
+    // Safety net against a missed wake-up; the consumer is normally unparked by the producer
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String threadName;
+    private final int capacity;
+    private final Stats stats;
+    private final Consumer<T> handler;
+    private final ConcurrentLinkedQueue<Entry<T>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile Thread thread;
+    private volatile boolean waiting = false;
+    private volatile boolean stopped = false;
+
+    public PipelineStage(String threadName, int capacity, Stats stats, Consumer<T> handler) {
+        this.threadName = threadName;
+        this.capacity = capacity;
+        this.stats = stats;
+        this.handler = handler;
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final long enqueuedNanos;
+
+        Entry(T item, long enqueuedNanos) {
+            this.item = item;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    /**
+     * Figures shared by every stage of one kind, e.g. all engine output parsers
+     */
+    public static final class Stats {
+        private final String name;
+        private final AtomicLong queued = new AtomicLong();
+        private final Metrics.Counter dropped;
+        private final LatencyHistogram waitTime = new LatencyHistogram();
+        private final LatencyHistogram handleTime = new LatencyHistogram();
+
+        private Stats(String name) {
+            this.name = name;
+            this.dropped = Metrics.counter("chessgpt_pipeline_dropped_total",
+                "Items a pipeline stage dropped or replaced because it was behind", "stage", name);
+        }
+
+        public long getQueued() {
+            return queued.get();
+        }
+
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        /**
+         * Count an item that was superseded before the stage got to it
+         */
+        public void recordDropped() {
+            dropped.inc();
+        }
+
+        public String getSummary() {
+            return name + " queued=" + queued.get() + " dropped=" + dropped.get()
+                + "\n    wait " + waitTime.getSummary()
+                + "\n    handle " + handleTime.getSummary();
+        }
+    }
+
+    /**
+     * Get or create the shared figures of a stage kind
+     */
+    public static Stats stats(String name) {
+        return STATS.computeIfAbsent(name, key -> {
+            Stats stats = new Stats(key);
+            STATS_ORDER.add(stats);
+            return stats;
+        });
+    }
+
+    /**
+     * Export queue depth and wait/handle time summaries of every stage kind; read at scrape time
+     */
+    public static void registerMetrics() {
+        Metrics.register("chessgpt_pipeline_queue_items", "Items waiting in the queues of a pipeline stage",
+            Metrics.Type.GAUGE, samples -> {
+                for (Stats stats : STATS_ORDER) {
+                    samples.add(stats.queued.get(), "stage", stats.name);
+                }
+            });
+        registerSummary("chessgpt_pipeline_wait_seconds", "Time items wait in a pipeline stage queue", true);
+        registerSummary("chessgpt_pipeline_handle_seconds", "Time a pipeline stage spends on one item", false);
+    }
+
+    private static void registerSummary(String name, String help, boolean wait) {
+        Metrics.register(name, help, Metrics.Type.SUMMARY, samples -> {
+            for (Stats stats : STATS_ORDER) {
+                LatencyHistogram histogram = wait ? stats.waitTime : stats.handleTime;
+                long[] values = histogram.getPercentilesNanos(PERCENTILES);
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    samples.add(values[i] / 1e9, "stage", stats.name, "quantile", Double.toString(QUANTILES[i]));
+                }
+                samples.addWithSuffix("_sum", histogram.getSumNanos() / 1e9, "stage", stats.name);
+                samples.addWithSuffix("_count", histogram.getCount(), "stage", stats.name);
+            }
+        });
+    }
+
+    /**
+     * Get a human readable summary of every stage kind, one "\n  - stage ..." block each
+     */
+    public static String getSummaries() {
+        StringBuilder sb = new StringBuilder();
+        for (Stats stats : STATS_ORDER) {
+            sb.append("\n  - ").append(stats.getSummary());
+        }
+        return sb.toString();
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread consumer = new Thread(this::run, threadName);
+        consumer.setDaemon(true);
+        thread = consumer;
+        consumer.start();
+    }
+
+    /**
+     * Handle what is queued, then end the consumer thread
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Queue an item; a droppable item is discarded when the queue is full. Returns false if it was dropped.
+     */
+    public boolean offer(T item, boolean droppable) {
+        if (droppable && size.get() >= capacity) {
+            stats.dropped.inc();
+            return false;
+        }
+        size.incrementAndGet();
+        stats.queued.incrementAndGet();
+        queue.offer(new Entry<>(item, System.nanoTime()));
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return size.get();
+    }
+
+    private void run() {
+        while (true) {
+            Entry<T> entry = queue.poll();
+            if (entry == null) {
+                if (stopped) {
+                    return;
+                }
+                // Publish the intent to sleep before the last look at the queue, so an offer cannot be missed
+                waiting = true;
+                if (queue.isEmpty() && !stopped) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                waiting = false;
+                continue;
+            }
+            size.decrementAndGet();
+            stats.queued.decrementAndGet();
+            long startNanos = System.nanoTime();
+            stats.waitTime.record(startNanos - entry.enqueuedNanos);
+            try {
+                handler.accept(entry.item);
+            } catch (RuntimeException e) {
+                Log.error("❌ [" + threadName + "] Pipeline stage failed: " + e.getMessage(), e);
+            }
+            stats.handleTime.record(System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.chessgpt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental Position Tracker
+ * Remembers the line last sent to an engine process so that a nearby position is sent as
+ * "position fen <root> moves ..." instead of a fresh FEN, keeping the engine's hash and game history
+ */
+public class PositionTracker {
+
+    // Longest move list sent before starting over from a new root
+    static final int MAX_LINE_PLIES = 200;
+
+    private final int maxDistance;
+
+    private String rootFen;
+    private final List<String> moves = new ArrayList<>();
+    // Positions along the line; index 0 is the root
+    private final List<Board> boards = new ArrayList<>();
+
+    private long incrementalCount = 0;
+    private long fullCount = 0;
+
+    /**
+     * @param maxDistance how many plies a new position may be away from the line (back and forth)
+     */
+    public PositionTracker(int maxDistance) {
+        this.maxDistance = Math.max(0, maxDistance);
+    }
+
+    /**
+     * Build the UCI "position" command for a FEN and make it the end of the tracked line.
+     * Positions on the line or within maxDistance plies of its end continue from the same root.
+     * Ancestors are ruled out with Board.minPliesTo before any move is generated, so a position
+     * unrelated to the line costs a few board comparisons.
+     */
+    public synchronized String positionCommand(String fen) {
+        Board target;
+        try {
+            target = Board.fromFen(fen);
+        } catch (RuntimeException e) {
+            reset();
+            fullCount++;
+            return "position fen " + fen;
+        }
+
+        if (rootFen != null && maxDistance > 0) {
+            // Step back and, from each ancestor, search forward for the rest of the distance
+            for (int back = 0; back <= maxDistance && back < boards.size(); back++) {
+                int from = boards.size() - 1 - back;
+                Board ancestor = boards.get(from);
+                if (ancestor.samePosition(target)) {
+                    truncate(from);
+                    incrementalCount++;
+                    return buildCommand();
+                }
+                List<String> path = findPath(ancestor, target, maxDistance - back);
+                if (path != null && from + path.size() <= MAX_LINE_PLIES) {
+                    truncate(from);
+                    for (String move : path) {
+                        Board next = boards.get(boards.size() - 1).copy();
+                        next.apply(move);
+                        moves.add(move);
+                        boards.add(next);
+                    }
+                    incrementalCount++;
+                    return buildCommand();
+                }
+            }
+        }
+
+        // Too far away: the FEN becomes the new root
+        reset();
+        rootFen = fen;
+        boards.add(target);
+        fullCount++;
+        return buildCommand();
+    }
+
+    /**
+     * Forget the line, e.g. when the session moves to another engine process
+     */
+    public synchronized void reset() {
+        rootFen = null;
+        moves.clear();
+        boards.clear();
+    }
+
+    /**
+     * Number of moves after the root in the tracked line
+     */
+    public synchronized int getLineLength() {
+        return moves.size();
+    }
+
+    public synchronized long getIncrementalCount() {
+        return incrementalCount;
+    }
+
+    public synchronized long getFullCount() {
+        return fullCount;
+    }
+
+    private String buildCommand() {
+        StringBuilder sb = new StringBuilder(16 + rootFen.length() + moves.size() * 6);
+        sb.append("position fen ").append(rootFen);
+        if (!moves.isEmpty()) {
+            sb.append(" moves");
+            for (String move : moves) {
+                sb.append(' ').append(move);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void truncate(int lastIndex) {
+        while (boards.size() > lastIndex + 1) {
+            boards.remove(boards.size() - 1);
+            moves.remove(moves.size() - 1);
+        }
+    }
+
+    /**
+     * Shortest move sequence of at most maxPlies plies reaching the target. Only lengths that leave the
+     * target's side to move are tried.
+     */
+    private static List<String> findPath(Board from, Board target, int maxPlies) {
+        int plies = from.isWhiteToMove() == target.isWhiteToMove() ? 2 : 1;
+        for (; plies <= maxPlies; plies += 2) {
+            List<String> path = findPathOfLength(from, target, plies);
+            if (path != null) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Depth-first search for a sequence of exactly the given plies; positions that cannot reach the target
+     * in the plies left are cut before their moves are generated
+     */
+    private static List<String> findPathOfLength(Board from, Board target, int plies) {
+        if (from.minPliesTo(target) > plies) {
+            return null;
+        }
+        for (String move : from.legalMoves()) {
+            Board next = from.copy();
+            next.apply(move);
+            List<String> rest;
+            if (plies == 1) {
+                rest = next.samePosition(target) ? new ArrayList<>() : null;
+            } else {
+                rest = findPathOfLength(next, target, plies - 1);
+            }
+            if (rest != null) {
+                rest.add(0, move);
+                return rest;
+            }
+        }
+        return null;
+    }
+}
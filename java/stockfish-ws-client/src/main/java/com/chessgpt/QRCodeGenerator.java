@@ -44,7 +44,7 @@ public class QRCodeGenerator {
      */
     public static BufferedImage generateQRCode(String url, int width, int height) {
         if (url == null || url.trim().isEmpty()) {
-            System.err.println("❌ Cannot generate QR code: URL is null or empty");
+            Log.error("❌ Cannot generate QR code: URL is null or empty");
             return null;
         }
         
@@ -70,12 +70,11 @@ public class QRCodeGenerator {
                 }
             }
             
-            System.out.println("✅ QR code generated successfully (" + matrixWidth + "x" + matrixHeight + ")");
+            Log.info("✅ QR code generated successfully (" + matrixWidth + "x" + matrixHeight + ")");
             return qrImage;
             
         } catch (WriterException e) {
-            System.err.println("❌ Error generating QR code: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("❌ Error generating QR code: " + e.getMessage(), e);
             return null;
         }
     }
@@ -90,27 +89,26 @@ public class QRCodeGenerator {
      */
     public static boolean saveQRCode(BufferedImage qrImage, File file, String format) {
         if (qrImage == null) {
-            System.err.println("❌ Cannot save QR code: image is null");
+            Log.error("❌ Cannot save QR code: image is null");
             return false;
         }
         
         if (file == null) {
-            System.err.println("❌ Cannot save QR code: file is null");
+            Log.error("❌ Cannot save QR code: file is null");
             return false;
         }
         
         try {
             boolean saved = ImageIO.write(qrImage, format, file);
             if (saved) {
-                System.out.println("💾 QR code saved successfully to: " + file.getAbsolutePath());
+                Log.info("💾 QR code saved successfully to: " + file.getAbsolutePath());
                 return true;
             } else {
-                System.err.println("❌ Failed to save QR code: unsupported format '" + format + "'");
+                Log.error("❌ Failed to save QR code: unsupported format '" + format + "'");
                 return false;
             }
         } catch (IOException e) {
-            System.err.println("❌ Error saving QR code to file: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("❌ Error saving QR code to file: " + e.getMessage(), e);
             return false;
         }
     }
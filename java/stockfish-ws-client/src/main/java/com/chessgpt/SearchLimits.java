@@ -0,0 +1,111 @@
+package com.chessgpt;
+
+/**
+ * UCI search budget
+ * Depth, movetime and nodes become "go" parameters; the wall time is enforced by the server,
+ * which stops the search when it runs out. A limit of 0 means "not set".
+ */
+public class SearchLimits {
+
+    public static final SearchLimits INFINITE = new SearchLimits(0, 0, 0);
+
+    private final int depth;
+    private final long movetimeMillis;
+    private final long nodes;
+    private final long maxWallTimeMillis;
+
+    public SearchLimits(int depth, long movetimeMillis, long nodes) {
+        this(depth, movetimeMillis, nodes, 0);
+    }
+
+    public SearchLimits(int depth, long movetimeMillis, long nodes, long maxWallTimeMillis) {
+        this.depth = Math.max(0, depth);
+        this.movetimeMillis = Math.max(0, movetimeMillis);
+        this.nodes = Math.max(0, nodes);
+        this.maxWallTimeMillis = Math.max(0, maxWallTimeMillis);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getMovetimeMillis() {
+        return movetimeMillis;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getMaxWallTimeMillis() {
+        return maxWallTimeMillis;
+    }
+
+    /**
+     * Check if the engine itself will end the search (depth, movetime or nodes)
+     */
+    public boolean hasEngineLimit() {
+        return depth > 0 || movetimeMillis > 0 || nodes > 0;
+    }
+
+    /**
+     * Check if the search only ends on "stop"
+     */
+    public boolean isInfinite() {
+        return !hasEngineLimit() && maxWallTimeMillis == 0;
+    }
+
+    /**
+     * Apply a server-wide wall time cap; a cap of 0 leaves the limits unchanged
+     */
+    public SearchLimits withWallTimeCap(long capMillis) {
+        if (capMillis <= 0 || (maxWallTimeMillis > 0 && maxWallTimeMillis <= capMillis)) {
+            return this;
+        }
+        return new SearchLimits(depth, movetimeMillis, nodes, capMillis);
+    }
+
+    /**
+     * Same limits with a default depth when no engine limit was given
+     */
+    public SearchLimits withDefaultDepth(int defaultDepth) {
+        if (hasEngineLimit() || defaultDepth <= 0) {
+            return this;
+        }
+        return new SearchLimits(defaultDepth, movetimeMillis, nodes, maxWallTimeMillis);
+    }
+
+    /**
+     * Check if cached analysis of the given depth satisfies these limits.
+     * Only pure depth limits can be answered from cache; time and node budgets cannot be compared.
+     */
+    public boolean isSatisfiedBy(int completedDepth) {
+        return depth > 0 && movetimeMillis == 0 && nodes == 0 && completedDepth >= depth;
+    }
+
+    /**
+     * Build the UCI "go" command for these limits
+     */
+    public String toGoCommand() {
+        if (!hasEngineLimit()) {
+            return "go infinite";
+        }
+        StringBuilder sb = new StringBuilder("go");
+        if (depth > 0) {
+            sb.append(" depth ").append(depth);
+        }
+        if (movetimeMillis > 0) {
+            sb.append(" movetime ").append(movetimeMillis);
+        }
+        if (nodes > 0) {
+            sb.append(" nodes ").append(nodes);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        String go = toGoCommand().substring(3);
+        return maxWallTimeMillis > 0 ? go + ", wall time " + maxWallTimeMillis + "ms" : go;
+    }
+}
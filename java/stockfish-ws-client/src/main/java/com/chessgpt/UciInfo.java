@@ -0,0 +1,71 @@
+package com.chessgpt;
+
+/**
+ * Mutable UCI "info" record
+ * Reused by UciInfoParser for every line so parsing does not allocate
+ */
+public class UciInfo {
+
+    public static final int SCORE_NONE = 0;
+    public static final int SCORE_CP = 1;
+    public static final int SCORE_MATE = 2;
+
+    public int depth;
+    public int seldepth;
+    public int multipv;
+    public int scoreType;
+    public int scoreValue;
+    public boolean lowerbound;
+    public boolean upperbound;
+    public long nodes;
+    public long nps;
+    public long time;
+
+    public boolean hasDepth;
+    public boolean hasSeldepth;
+    public boolean hasNodes;
+    public boolean hasNps;
+    public boolean hasTime;
+
+    /** Principal variation, moves separated by single spaces */
+    public final StringBuilder pv = new StringBuilder(256);
+    public int pvLength;
+
+    /**
+     * Clear every field before parsing the next line
+     */
+    public void reset() {
+        depth = 0;
+        seldepth = 0;
+        multipv = 1;
+        scoreType = SCORE_NONE;
+        scoreValue = 0;
+        lowerbound = false;
+        upperbound = false;
+        nodes = 0;
+        nps = 0;
+        time = 0;
+        hasDepth = false;
+        hasSeldepth = false;
+        hasNodes = false;
+        hasNps = false;
+        hasTime = false;
+        pv.setLength(0);
+        pvLength = 0;
+    }
+
+    public boolean hasScore() {
+        return scoreType != SCORE_NONE;
+    }
+
+    public boolean hasPv() {
+        return pvLength > 0;
+    }
+
+    /**
+     * Check if the line carries everything needed for an analysis line
+     */
+    public boolean isAnalysisLine() {
+        return hasDepth && hasScore() && hasPv();
+    }
+}
@@ -0,0 +1,247 @@
+package com.chessgpt;
+
+/**
+ * Single-pass UCI "info" line parser
+ * Reads fields straight from the character buffer into a reusable UciInfo,
+ * in any order and with any field missing
+ */
+public final class UciInfoParser {
+
+    private UciInfoParser() {
+    }
+
+    /**
+     * Parse an "info" line into the given record.
+     * Returns false if the line is not an info line.
+     */
+    public static boolean parse(CharSequence line, UciInfo out) {
+        out.reset();
+        int len = line.length();
+        int pos = skipSpaces(line, 0, len);
+        int end = tokenEnd(line, pos, len);
+        if (!tokenEquals(line, pos, end, "info")) {
+            return false;
+        }
+        pos = skipSpaces(line, end, len);
+
+        while (pos < len) {
+            end = tokenEnd(line, pos, len);
+            int next = skipSpaces(line, end, len);
+
+            switch (end - pos) {
+                case 2:
+                    if (tokenEquals(line, pos, end, "pv")) {
+                        next = readPv(line, next, len, out);
+                    }
+                    break;
+                case 3:
+                    if (tokenEquals(line, pos, end, "nps")) {
+                        out.nps = parseLong(line, next, len);
+                        out.hasNps = true;
+                        next = skipToken(line, next, len);
+                    } else if (tokenEquals(line, pos, end, "wdl")) {
+                        next = skipToken(line, skipToken(line, skipToken(line, next, len), len), len);
+                    }
+                    break;
+                case 4:
+                    if (tokenEquals(line, pos, end, "time")) {
+                        out.time = parseLong(line, next, len);
+                        out.hasTime = true;
+                        next = skipToken(line, next, len);
+                    }
+                    break;
+                case 5:
+                    if (tokenEquals(line, pos, end, "depth")) {
+                        out.depth = (int) parseLong(line, next, len);
+                        out.hasDepth = true;
+                        next = skipToken(line, next, len);
+                    } else if (tokenEquals(line, pos, end, "score")) {
+                        next = readScore(line, next, len, out);
+                    } else if (tokenEquals(line, pos, end, "nodes")) {
+                        out.nodes = parseLong(line, next, len);
+                        out.hasNodes = true;
+                        next = skipToken(line, next, len);
+                    }
+                    break;
+                case 6:
+                    if (tokenEquals(line, pos, end, "string")) {
+                        // Free text runs to the end of the line
+                        next = len;
+                    } else if (tokenEquals(line, pos, end, "tbhits") || tokenEquals(line, pos, end, "sbhits")) {
+                        next = skipToken(line, next, len);
+                    }
+                    break;
+                case 7:
+                    if (tokenEquals(line, pos, end, "multipv")) {
+                        out.multipv = (int) parseLong(line, next, len);
+                        next = skipToken(line, next, len);
+                    } else if (tokenEquals(line, pos, end, "cpuload")) {
+                        next = skipToken(line, next, len);
+                    }
+                    break;
+                case 8:
+                    if (tokenEquals(line, pos, end, "seldepth")) {
+                        out.seldepth = (int) parseLong(line, next, len);
+                        out.hasSeldepth = true;
+                        next = skipToken(line, next, len);
+                    } else if (tokenEquals(line, pos, end, "currmove") || tokenEquals(line, pos, end, "hashfull")) {
+                        next = skipToken(line, next, len);
+                    } else if (tokenEquals(line, pos, end, "currline")) {
+                        next = skipMoves(line, skipToken(line, next, len), len);
+                    }
+                    break;
+                case 10:
+                    if (tokenEquals(line, pos, end, "refutation")) {
+                        next = skipMoves(line, next, len);
+                    }
+                    break;
+                case 14:
+                    if (tokenEquals(line, pos, end, "currmovenumber")) {
+                        next = skipToken(line, next, len);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            pos = next;
+        }
+        return true;
+    }
+
+    private static int readScore(CharSequence line, int pos, int len, UciInfo out) {
+        int end = tokenEnd(line, pos, len);
+        int type = UciInfo.SCORE_NONE;
+        if (tokenEquals(line, pos, end, "cp")) {
+            type = UciInfo.SCORE_CP;
+        } else if (tokenEquals(line, pos, end, "mate")) {
+            type = UciInfo.SCORE_MATE;
+        }
+        if (type == UciInfo.SCORE_NONE) {
+            return skipSpaces(line, end, len);
+        }
+
+        pos = skipSpaces(line, end, len);
+        out.scoreType = type;
+        out.scoreValue = (int) parseLong(line, pos, len);
+        pos = skipSpaces(line, tokenEnd(line, pos, len), len);
+
+        // Optional bound flags follow the value
+        end = tokenEnd(line, pos, len);
+        if (tokenEquals(line, pos, end, "lowerbound")) {
+            out.lowerbound = true;
+            pos = skipSpaces(line, end, len);
+        } else if (tokenEquals(line, pos, end, "upperbound")) {
+            out.upperbound = true;
+            pos = skipSpaces(line, end, len);
+        }
+        return pos;
+    }
+
+    private static int readPv(CharSequence line, int pos, int len, UciInfo out) {
+        StringBuilder pv = out.pv;
+        while (pos < len) {
+            int end = tokenEnd(line, pos, len);
+            if (!isMove(line, pos, end)) {
+                break;
+            }
+            if (out.pvLength > 0) {
+                pv.append(' ');
+            }
+            pv.append(line, pos, end);
+            out.pvLength++;
+            pos = skipSpaces(line, end, len);
+        }
+        return pos;
+    }
+
+    private static int skipMoves(CharSequence line, int pos, int len) {
+        while (pos < len) {
+            int end = tokenEnd(line, pos, len);
+            if (!isMove(line, pos, end)) {
+                break;
+            }
+            pos = skipSpaces(line, end, len);
+        }
+        return pos;
+    }
+
+    /**
+     * Check for a long algebraic move such as e2e4, e7e8q or the null move 0000
+     */
+    static boolean isMove(CharSequence line, int start, int end) {
+        int n = end - start;
+        if (n != 4 && n != 5) {
+            return false;
+        }
+        if (n == 4 && line.charAt(start) == '0' && line.charAt(start + 1) == '0'
+                && line.charAt(start + 2) == '0' && line.charAt(start + 3) == '0') {
+            return true;
+        }
+        if (!isFile(line.charAt(start)) || !isRank(line.charAt(start + 1))
+                || !isFile(line.charAt(start + 2)) || !isRank(line.charAt(start + 3))) {
+            return false;
+        }
+        if (n == 5) {
+            char promo = line.charAt(start + 4);
+            return promo == 'q' || promo == 'r' || promo == 'b' || promo == 'n';
+        }
+        return true;
+    }
+
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(char c) {
+        return c >= '1' && c <= '8';
+    }
+
+    private static long parseLong(CharSequence line, int pos, int len) {
+        boolean negative = false;
+        if (pos < len && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+            negative = line.charAt(pos) == '-';
+            pos++;
+        }
+        long value = 0;
+        while (pos < len) {
+            char c = line.charAt(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    private static int skipToken(CharSequence line, int pos, int len) {
+        return skipSpaces(line, tokenEnd(line, pos, len), len);
+    }
+
+    private static int skipSpaces(CharSequence line, int pos, int len) {
+        while (pos < len && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int tokenEnd(CharSequence line, int pos, int len) {
+        while (pos < len && !Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean tokenEquals(CharSequence line, int start, int end, String keyword) {
+        int n = keyword.length();
+        if (end - start != n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (line.charAt(start + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,283 +1,817 @@
 package com.chessgpt;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ClientHandshake;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * WebSocket Client Manager
- * Handles WebSocket client connections and message processing
+ * Handles WebSocket client sessions and message processing
  */
 public class WebSocketClientManager {
-    
-    // Single client connection (enforced policy)
-    private WebSocket connectedClient = null;
-    
+
+    private static final int DEFAULT_MAX_SESSIONS = 16;
+    private static final int DEFAULT_BATCH_MAX_POSITIONS = 1000;
+    private static final int DEFAULT_BATCH_DEPTH = 18;
+    private static final int DEFAULT_GAME_MAX_PLIES = 1000;
+    private static final int DEFAULT_GAME_DEPTH = 16;
+    private static final int DEFAULT_MAX_QUEUED_FRAMES = 16;
+    private static final long DEFAULT_BACKLOG_FLUSH_MILLIS = 50;
+    private static final long LONG_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Per-frame logs are sampled so they stay cheap even when enabled
+    private static final Log.Sampler SEND_SAMPLER = Log.sampler("send", 100);
+    private static final Log.Sampler BROADCAST_SAMPLER = Log.sampler("broadcast", 20);
+
+    // Totals survive disconnects; per-session figures are exported while the session is open
+    private static final Metrics.Counter FRAMES_SENT =
+        Metrics.counter("chessgpt_ws_frames_sent_total", "WebSocket frames sent to all clients");
+    private static final Metrics.Counter BYTES_SENT =
+        Metrics.counter("chessgpt_ws_bytes_sent_total", "WebSocket payload bytes sent to all clients");
+    private static final String MESSAGES_METRIC = "chessgpt_ws_messages_received_total";
+    private static final String MESSAGES_HELP = "WebSocket messages received by type";
+    private static final List<String> MESSAGE_TYPES = Arrays.asList(
+        "analyze", "stop", "analyzeBatch", "analyzeGame", "cancelGame", "cancelBatch");
+    // Looked up once; unknown types share "other" so clients cannot grow the label set
+    private static final Map<String, Metrics.Counter> MESSAGES_RECEIVED = messageCounters();
+    private static final Metrics.Counter MESSAGES_OTHER = Metrics.counter(MESSAGES_METRIC, MESSAGES_HELP, "type", "other");
+
+    // One session per open connection
+    private final Map<WebSocket, ClientSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, ClientSession> sessionsById = new ConcurrentHashMap<>();
+    private final int maxSessions = Integer.getInteger("chessgpt.sessions.max", DEFAULT_MAX_SESSIONS);
+    private final int batchMaxPositions = Integer.getInteger("chessgpt.batch.maxPositions", DEFAULT_BATCH_MAX_POSITIONS);
+    private final int batchDefaultDepth = Integer.getInteger("chessgpt.batch.defaultDepth", DEFAULT_BATCH_DEPTH);
+    private final int gameMaxPlies = Integer.getInteger("chessgpt.game.maxPlies", DEFAULT_GAME_MAX_PLIES);
+    private final int gameDefaultDepth = Integer.getInteger("chessgpt.game.defaultDepth", DEFAULT_GAME_DEPTH);
+    private final AtomicLong nextBatchId = new AtomicLong(1);
+    private final AtomicLong nextGameId = new AtomicLong(1);
+
+    // Backpressure: over this many queued frames a session only gets the newest analysis once it drains
+    private final int maxQueuedFrames = Integer.getInteger("chessgpt.ws.maxQueuedFrames", DEFAULT_MAX_QUEUED_FRAMES);
+    private final ScheduledExecutorService backlogFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ws-backlog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // Event listener
     private WebSocketClientListener listener;
-    
+
     // Utilities
     private final Gson gson = new Gson();
-    private StatusWindow statusWindow;
-    
+    private volatile StatusWindow statusWindow;
+    private volatile boolean serverStarted = false;
+
     public WebSocketClientManager(WebSocketClientListener listener, StatusWindow statusWindow) {
         this.listener = listener;
         this.statusWindow = statusWindow;
+        registerMetrics();
+        long flushMillis = Long.getLong("chessgpt.ws.backlogFlushMillis", DEFAULT_BACKLOG_FLUSH_MILLIS);
+        backlogFlusher.scheduleWithFixedDelay(this::flushBacklogs, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
     }
-    
+
+    /**
+     * Export connected sessions and their traffic; read at scrape time
+     */
+    private void registerMetrics() {
+        Metrics.gauge("chessgpt_ws_sessions", "Open WebSocket sessions", sessions::size);
+        Metrics.register("chessgpt_ws_session_frames_sent_total", "WebSocket frames sent per open session",
+            Metrics.Type.COUNTER, samples -> {
+                for (ClientSession session : sessions.values()) {
+                    samples.add(session.getFramesSent(), "session", session.getId());
+                }
+            });
+        Metrics.register("chessgpt_ws_session_bytes_sent_total", "WebSocket payload bytes sent per open session",
+            Metrics.Type.COUNTER, samples -> {
+                for (ClientSession session : sessions.values()) {
+                    samples.add(session.getBytesSent(), "session", session.getId());
+                }
+            });
+        Metrics.register("chessgpt_ws_send_queue_frames", "Frames waiting to be written per open session",
+            Metrics.Type.GAUGE, samples -> {
+                for (ClientSession session : sessions.values()) {
+                    samples.add(session.getSendQueueDepth(), "session", session.getId());
+                }
+            });
+        Metrics.register("chessgpt_ws_send_queue_bytes", "Bytes waiting to be written per open session",
+            Metrics.Type.GAUGE, samples -> {
+                for (ClientSession session : sessions.values()) {
+                    samples.add(session.getSendQueueBytes(), "session", session.getId());
+                }
+            });
+        Metrics.register("chessgpt_ws_session_lag_seconds", "Time an open session has been over its send queue limit",
+            Metrics.Type.GAUGE, samples -> {
+                for (ClientSession session : sessions.values()) {
+                    samples.add(session.getLagMillis() / 1000.0, "session", session.getId());
+                }
+            });
+        Metrics.register("chessgpt_ws_session_frames_coalesced_total", "Analysis frames replaced by a newer snapshot per open session",
+            Metrics.Type.COUNTER, samples -> {
+                for (ClientSession session : sessions.values()) {
+                    samples.add(session.getFramesCoalesced(), "session", session.getId());
+                }
+            });
+    }
+
     /**
      * Interface for receiving WebSocket client events
      */
     public interface WebSocketClientListener {
-        void onAnalyzeRequest(String fen);
-        void onStopRequest();
-        void onClientConnected(String clientAddress);
-        void onClientDisconnected(String clientAddress);
+        void onAnalyzeRequest(ClientSession session, String fen, SearchLimits limits);
+        void onStopRequest(ClientSession session);
+        void onAnalyzeBatchRequest(ClientSession session, String batchId, List<String> fens, SearchLimits limits);
+        void onCancelBatchRequest(ClientSession session, String batchId);
+        void onAnalyzeGameRequest(ClientSession session, String gameId, GameRecord game, SearchLimits limits);
+        void onCancelGameRequest(ClientSession session, String gameId);
+        void onClientConnected(ClientSession session);
+        void onClientDisconnected(ClientSession session);
         void onClientError(String error);
         void onServerStarted(); // Добавили новый метод
     }
-    
+
+    /**
+     * Attach the status window once it is built; the current server status is shown right away
+     */
+    public void setStatusWindow(StatusWindow statusWindow) {
+        this.statusWindow = statusWindow;
+        if (statusWindow != null) {
+            statusWindow.updateWebSocketStatus(serverStarted);
+        }
+    }
+
     /**
      * Called when WebSocket server starts
      */
     public void onServerStarted() {
+        serverStarted = true;
         if (statusWindow != null) {
             statusWindow.updateWebSocketStatus(true);
         }
-        
+
         if (listener != null) {
             listener.onServerStarted();
         }
     }
-    
+
     /**
      * Handle new WebSocket connection
      */
     public void handleConnection(WebSocket conn, ClientHandshake handshake) {
-        System.out.println("🔌 New WebSocket connection attempt from: " + conn.getRemoteSocketAddress());
-        
-        // Enforce single client policy
-        if (connectedClient != null && connectedClient.isOpen()) {
-            System.out.println("⚠️  Disconnecting previous client to maintain single-client mode");
-            connectedClient.close(1000, "New client connected - only one client allowed");
-        }
-        
-        // Accept the new client
-        connectedClient = conn;
-        
-        System.out.println("✅ WebSocket client connected successfully");
-        System.out.println("  - Remote address: " + conn.getRemoteSocketAddress());
-        System.out.println("  - User-Agent: " + handshake.getFieldValue("User-Agent"));
-        
+        Log.info("🔌 New WebSocket connection attempt from: " + conn.getRemoteSocketAddress());
+
+        // Enforce the global session cap
+        if (sessions.size() >= maxSessions) {
+            Log.warn("⚠️  Rejecting client, " + sessions.size() + "/" + maxSessions + " sessions in use");
+            conn.send(busyMessage("Server is at its limit of " + maxSessions + " sessions"));
+            conn.close(1013, "Server busy - try again later");
+            return;
+        }
+
+        // Binary analysis frames for clients that negotiated the subprotocol
+        boolean binary = conn.getProtocol() != null
+            && BinaryAnalysisCodec.SUBPROTOCOL.equals(conn.getProtocol().getProvidedProtocol());
+
+        ClientSession session = new ClientSession(conn, binary);
+        conn.setAttachment(session);
+        sessions.put(conn, session);
+        sessionsById.put(session.getId(), session);
+
+        Log.info("✅ WebSocket client connected: " + session.getId()
+            + ", remote " + conn.getRemoteSocketAddress()
+            + ", User-Agent " + handshake.getFieldValue("User-Agent")
+            + ", protocol " + (binary ? BinaryAnalysisCodec.SUBPROTOCOL : "JSON")
+            + ", active sessions " + sessions.size() + "/" + maxSessions);
+
         // Notify listener
         if (listener != null) {
-            listener.onClientConnected(conn.getRemoteSocketAddress().toString());
+            listener.onClientConnected(session);
         }
     }
-    
+
     /**
      * Handle WebSocket disconnection
      */
     public void handleDisconnection(WebSocket conn, int code, String reason, boolean remote) {
-        System.out.println("❌ WebSocket client disconnected");
-        System.out.println("  - Code: " + code);
-        System.out.println("  - Reason: " + (reason != null ? reason : "No reason provided"));
-        System.out.println("  - Remote: " + remote);
-        
-        String clientAddress = "Unknown";
-        
-        // Clear connected client reference
-        if (conn == connectedClient) {
-            clientAddress = conn.getRemoteSocketAddress().toString();
-            connectedClient = null;
-            System.out.println("🧹 Cleared connected client reference");
-            
-            if (statusWindow != null) {
-                statusWindow.addNgrokStatusMessage("❌ Client disconnected - waiting for new connections");
-            }
+        Log.info("❌ WebSocket client disconnected: code " + code
+            + ", reason " + (reason != null ? reason : "No reason provided")
+            + ", remote " + remote);
+
+        ClientSession session = sessions.remove(conn);
+        if (session == null) {
+            return;
         }
-        
+        sessionsById.remove(session.getId());
+        Log.info("🧹 Closed session " + session.getId());
+
+        if (statusWindow != null && sessions.isEmpty()) {
+            statusWindow.addNgrokStatusMessage("❌ Client disconnected - waiting for new connections");
+        }
+
         // Notify listener
         if (listener != null) {
-            listener.onClientDisconnected(clientAddress);
+            listener.onClientDisconnected(session);
         }
     }
-    
+
     /**
      * Handle incoming WebSocket message
      */
     public void handleMessage(WebSocket conn, String message) {
-        System.out.println("📨 WebSocket message received:");
-        System.out.println("  - From: " + conn.getRemoteSocketAddress());
-        System.out.println("  - Length: " + message.length());
-        System.out.println("  - Content: " + message);
-        
-        // Ensure message is from our connected client
-        if (conn != connectedClient) {
-            System.out.println("⚠️  Message from unauthorized client, ignoring");
+        long receivedAtNanos = System.nanoTime();
+        if (Log.isDebugEnabled()) {
+            Log.debug("📨 WebSocket message from " + conn.getRemoteSocketAddress() + " (" + message.length() + " chars): " + message);
+        }
+
+        // Ensure message is from a registered session
+        ClientSession session = sessions.get(conn);
+        if (session == null) {
+            Log.warn("⚠️  Message from unknown client, ignoring");
             return;
         }
-        
-        processMessage(message);
+        session.markMessageReceived(receivedAtNanos);
+
+        processMessage(session, message);
     }
-    
+
     /**
      * Handle WebSocket error
      */
     public void handleError(WebSocket conn, Exception ex) {
-        System.err.println("🚨 WebSocket client error occurred:");
+        Log.error("🚨 WebSocket client error" + (conn != null ? " from " + conn.getRemoteSocketAddress() : "") + ": " + ex.getMessage(), ex);
+
+        // Drop the session of the failed connection
         if (conn != null) {
-            System.err.println("  - From: " + conn.getRemoteSocketAddress());
-        }
-        System.err.println("  - Error: " + ex.getMessage());
-        ex.printStackTrace();
-        
-        // Clear client reference if it was our connected client
-        if (conn == connectedClient) {
-            connectedClient = null;
+            ClientSession session = sessions.remove(conn);
+            if (session != null) {
+                sessionsById.remove(session.getId());
+                if (listener != null) {
+                    listener.onClientDisconnected(session);
+                }
+            }
         }
-        
+
         // Notify listener
         if (listener != null) {
             listener.onClientError(ex.getMessage());
         }
     }
-    
-    // ... (остальные методы остаются без изменений)
-    
+
     /**
-     * Send message to connected client
+     * Send message to a session
      */
-    public void sendToClient(String message) {
-        if (connectedClient != null && connectedClient.isOpen()) {
+    public void sendToClient(ClientSession session, String message) {
+        if (session != null && session.isOpen()) {
+            // Held analysis goes first so the client sees messages in order
+            flushBacklog(session, true);
             try {
-                connectedClient.send(message);
-                System.out.println("📤 Sent to client: " + message);
+                session.getConnection().send(message);
+                recordSent(session, utf8Length(message));
+                if (Log.isTraceEnabled() && SEND_SAMPLER.sample()) {
+                    Log.trace("📤 Sent to " + session.getId() + ": " + message);
+                }
             } catch (Exception e) {
-                System.err.println("❌ Failed to send message to client: " + e.getMessage());
-                e.printStackTrace();
-                
+                Log.error("❌ Failed to send message to client: " + e.getMessage(), e);
+
                 if (listener != null) {
                     listener.onClientError("Failed to send message: " + e.getMessage());
                 }
             }
         } else {
-            System.out.println("⚠️  No connected client to send message to");
+            Log.debug("⚠️  No connected client to send message to");
         }
     }
-    
+
     /**
-     * Send structured response to client
+     * Send structured response to a session
      */
-    public void sendResponseToClient(String responseType, Object data) {
+    public void sendResponseToClient(ClientSession session, String responseType, Object data) {
         JsonObject response = new JsonObject();
         response.addProperty("type", responseType);
         if (data != null) {
             response.add("data", gson.toJsonTree(data));
         }
         String json = gson.toJson(response);
-        sendToClient(json);
+        sendToClient(session, json);
     }
-    
+
     /**
-     * Broadcast analysis results to client
+     * Tell a session that no engine capacity is available
      */
-    public void broadcastAnalysisToClient(String fen, Map<String, ChessEngine.AnalysisLine> lines) {
-        if (connectedClient != null && connectedClient.isOpen()) {
-            List<ChessEngine.AnalysisLine> analysisData = new ArrayList<>(lines.values());
-            
-            // Create object with FEN and analysis lines
-            JsonObject analysisResponse = new JsonObject();
-            analysisResponse.addProperty("fen", fen);
-            analysisResponse.add("lines", gson.toJsonTree(analysisData));
-            
-            String json = gson.toJson(analysisResponse);
-            System.out.println("📤 Broadcasting analysis (" + analysisData.size() + " lines) with FEN: " + fen);
-            sendToClient(json);
+    public void sendBusyToClient(ClientSession session, String reason) {
+        sendToClient(session, busyMessage(reason));
+    }
+
+    /**
+     * Broadcast analysis results to a session
+     */
+    public void broadcastAnalysisToClient(String sessionId, String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        ClientSession session = findSession(sessionId);
+        if (session == null || !session.isOpen()) {
+            return;
+        }
+        synchronized (session) {
+            int queued = session.getSendQueueDepth();
+            if (queued >= maxQueuedFrames) {
+                // Keep only the newest snapshot until the connection drains
+                boolean backlogged = session.holdAnalysis(fen, lines);
+                if (backlogged && Log.isDebugEnabled()) {
+                    Log.debug("🐢 Session " + session.getId() + " is lagging with " + queued + " frames ("
+                        + session.getSendQueueBytes() + " bytes) queued, holding back stale analysis");
+                }
+                return;
+            }
+            session.discardHeldAnalysis();
+            sendAnalysis(session, fen, lines);
+            logCaughtUp(session, session.markDrained());
+        }
+    }
+
+    /**
+     * Send held analysis of sessions whose send queue drained below the limit
+     */
+    private void flushBacklogs() {
+        try {
+            for (ClientSession session : sessions.values()) {
+                if (session.isBacklogged()) {
+                    flushBacklog(session, false);
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.error("❌ Failed to flush lagging sessions: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Send the held analysis of a session if its queue drained, or regardless when forced
+     */
+    private void flushBacklog(ClientSession session, boolean force) {
+        if (!session.isBacklogged()) {
+            return;
+        }
+        synchronized (session) {
+            if (!force && session.getSendQueueDepth() >= maxQueuedFrames) {
+                return;
+            }
+            String fen = session.getHeldFen();
+            Map<String, ChessEngine.AnalysisLine> lines = session.takeHeldAnalysis();
+            if (lines != null && session.isOpen()) {
+                sendAnalysis(session, fen, lines);
+            }
+            if (session.getSendQueueDepth() < maxQueuedFrames) {
+                logCaughtUp(session, session.markDrained());
+            }
+        }
+    }
+
+    /**
+     * Short backlogs come with every burst of engine output; only a long one is worth an info line
+     */
+    private void logCaughtUp(ClientSession session, long lagNanos) {
+        if (lagNanos == 0) {
+            return;
+        }
+        String message = "✅ Session " + session.getId() + " caught up after " + TimeUnit.NANOSECONDS.toMillis(lagNanos)
+            + "ms, " + session.getFramesCoalesced() + " stale frames skipped so far";
+        if (lagNanos >= LONG_LAG_NANOS) {
+            Log.info(message);
+        } else {
+            Log.debug(message);
+        }
+    }
+
+    private void sendAnalysis(ClientSession session, String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        if (session.getBinaryCodec() != null) {
+            sendBinaryAnalysis(session, fen, lines);
+        } else {
+            sendJsonAnalysis(session, fen, lines);
+        }
+    }
+
+    /**
+     * Tell a session that its analysis finished, with the final best move
+     */
+    public void sendDone(String sessionId, String fen, String bestMove, Map<String, ChessEngine.AnalysisLine> lines,
+                         boolean timedOut) {
+        JsonObject data = new JsonObject();
+        data.addProperty("fen", fen);
+        data.addProperty("bestMove", bestMove);
+        ChessEngine.AnalysisLine best = lines.get("1");
+        if (best != null) {
+            data.addProperty("score", best.score);
+            data.addProperty("depth", best.depth);
         }
+        data.addProperty("timedOut", timedOut);
+        sendResponseToClient(findSession(sessionId), "done", data);
     }
-    
+
+    private static Map<String, Metrics.Counter> messageCounters() {
+        Map<String, Metrics.Counter> counters = new HashMap<>();
+        for (String type : MESSAGE_TYPES) {
+            counters.put(type, Metrics.counter(MESSAGES_METRIC, MESSAGES_HELP, "type", type));
+        }
+        return counters;
+    }
+
+    /**
+     * Send the opening book moves of a position to a session, highest weight first
+     */
+    public void sendBookMoves(String sessionId, String fen, List<OpeningBook.BookMove> moves) {
+        JsonObject data = new JsonObject();
+        data.addProperty("fen", fen);
+        data.add("moves", gson.toJsonTree(moves));
+        sendResponseToClient(findSession(sessionId), "book", data);
+    }
+
     /**
-     * Check if client is connected
+     * Send the result of one batch position to a session
+     */
+    public void sendBatchResult(String sessionId, String batchId, int index, String fen, String bestMove,
+                                Map<String, ChessEngine.AnalysisLine> lines) {
+        JsonObject data = new JsonObject();
+        data.addProperty("id", batchId);
+        data.addProperty("index", index);
+        data.addProperty("fen", fen);
+        data.addProperty("bestMove", bestMove);
+        data.add("lines", gson.toJsonTree(new ArrayList<>(lines.values())));
+        sendResponseToClient(findSession(sessionId), "batchResult", data);
+    }
+
+    /**
+     * Send batch progress to a session
+     */
+    public void sendBatchProgress(String sessionId, String batchId, int completed, int total, int running) {
+        JsonObject data = new JsonObject();
+        data.addProperty("id", batchId);
+        data.addProperty("completed", completed);
+        data.addProperty("total", total);
+        data.addProperty("running", running);
+        sendResponseToClient(findSession(sessionId), "batchProgress", data);
+    }
+
+    /**
+     * Tell a session that a batch finished or was cancelled
+     */
+    public void sendBatchComplete(String sessionId, String batchId, int completed, int total, boolean cancelled) {
+        JsonObject data = new JsonObject();
+        data.addProperty("id", batchId);
+        data.addProperty("completed", completed);
+        data.addProperty("total", total);
+        data.addProperty("cancelled", cancelled);
+        sendResponseToClient(findSession(sessionId), "batchComplete", data);
+    }
+
+    /**
+     * Send the evaluation of one game ply to a session
+     */
+    public void sendGamePly(String sessionId, String gameId, GameAnalysis.PlyResult result, int completed, int total) {
+        JsonObject data = gson.toJsonTree(result).getAsJsonObject();
+        data.addProperty("id", gameId);
+        data.addProperty("completed", completed);
+        data.addProperty("total", total);
+        sendResponseToClient(findSession(sessionId), "gamePly", data);
+    }
+
+    /**
+     * Send the summary of a finished or cancelled game analysis to a session
+     */
+    public void sendGameComplete(String sessionId, String gameId, GameAnalysis.Summary summary, boolean cancelled) {
+        JsonObject data = new JsonObject();
+        data.addProperty("id", gameId);
+        data.addProperty("cancelled", cancelled);
+        data.add("summary", gson.toJsonTree(summary));
+        sendResponseToClient(findSession(sessionId), "gameComplete", data);
+    }
+
+    /**
+     * Send analysis as a text frame written by the session's AnalysisJsonWriter, without an intermediate String
+     */
+    private void sendJsonAnalysis(ClientSession session, String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        AnalysisJsonWriter writer = session.getJsonWriter();
+        try {
+            synchronized (writer) {
+                ByteBuffer json = writer.encodeAnalysis(fen, lines);
+                int size = json.remaining();
+                if (Log.isTraceEnabled() && SEND_SAMPLER.sample()) {
+                    Log.trace("📤 Sent to " + session.getId() + ": "
+                        + new String(json.array(), json.position(), size, StandardCharsets.UTF_8));
+                }
+                TextFrame frame = new TextFrame();
+                frame.setPayload(json);
+                session.getConnection().sendFrame(frame);
+                recordSent(session, size);
+                if (Log.isDebugEnabled() && BROADCAST_SAMPLER.sample()) {
+                    Log.debug("📤 Broadcasting analysis (" + lines.size() + " lines, " + size + " bytes) to " + session.getId() + " with FEN: " + fen);
+                }
+            }
+        } catch (Exception e) {
+            Log.error("❌ Failed to send message to client: " + e.getMessage(), e);
+            if (listener != null) {
+                listener.onClientError("Failed to send message: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Send analysis as binary frames, defining the position id first if needed
+     */
+    private void sendBinaryAnalysis(ClientSession session, String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+        BinaryAnalysisCodec codec = session.getBinaryCodec();
+        try {
+            synchronized (codec) {
+                ByteBuffer position = codec.encodePositionIfNew(fen);
+                if (position != null) {
+                    int positionSize = position.remaining();
+                    session.getConnection().send(position);
+                    recordSent(session, positionSize);
+                }
+                ByteBuffer frame = codec.encodeAnalysis(fen, lines);
+                int size = frame.remaining();
+                session.getConnection().send(frame);
+                recordSent(session, size);
+                if (Log.isDebugEnabled() && BROADCAST_SAMPLER.sample()) {
+                    Log.debug("📤 Broadcasting binary analysis (" + lines.size() + " lines, " + size + " bytes) to " + session.getId() + " with FEN: " + fen);
+                }
+            }
+        } catch (Exception e) {
+            Log.error("❌ Failed to send binary analysis to client: " + e.getMessage());
+            if (listener != null) {
+                listener.onClientError("Failed to send message: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void recordSent(ClientSession session, int bytes) {
+        session.recordSent(bytes);
+        FRAMES_SENT.inc();
+        BYTES_SENT.add(bytes);
+    }
+
+    /**
+     * Encoded size of a text frame without encoding it
+     */
+    static int utf8Length(String text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Find an open session by id
+     */
+    public ClientSession findSession(String sessionId) {
+        return sessionsById.get(sessionId);
+    }
+
+    /**
+     * Get all open sessions
+     */
+    public Collection<ClientSession> getSessions() {
+        return sessions.values();
+    }
+
+    /**
+     * Check if any client is connected
      */
     public boolean hasConnectedClient() {
-        return connectedClient != null && connectedClient.isOpen();
+        return !sessions.isEmpty();
     }
-    
+
     /**
-     * Get connected client address
+     * Get connected client addresses
      */
     public String getConnectedClientAddress() {
-        if (connectedClient != null) {
-            return connectedClient.getRemoteSocketAddress().toString();
+        if (sessions.isEmpty()) {
+            return "No client connected";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (ClientSession session : sessions.values()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(session.getRemoteAddress());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Disconnect every client
+     */
+    public void disconnectAllClients(String reason) {
+        for (ClientSession session : new ArrayList<>(sessions.values())) {
+            if (session.isOpen()) {
+                session.getConnection().close(1000, reason != null ? reason : "Server initiated disconnect");
+            }
+        }
+        sessions.clear();
+        sessionsById.clear();
+    }
+
+    private String busyMessage(String reason) {
+        JsonObject data = new JsonObject();
+        data.addProperty("reason", reason);
+        JsonObject response = new JsonObject();
+        response.addProperty("type", "busy");
+        response.add("data", data);
+        return gson.toJson(response);
+    }
+
+    /**
+     * Validate an analyzeBatch message: {"type":"analyzeBatch","id":"b1","fens":[...],"depth":20,"movetime":1000,"nodes":1000000}
+     * Without a depth, movetime or nodes budget the default batch depth is used.
+     */
+    private void processBatchRequest(ClientSession session, JsonObject msg) {
+        if (!msg.has("fens") || !msg.get("fens").isJsonArray()) {
+            sendErrorToClient(session, "analyzeBatch requires a 'fens' array");
+            return;
+        }
+        JsonArray array = msg.getAsJsonArray("fens");
+        if (array.size() == 0 || array.size() > batchMaxPositions) {
+            sendErrorToClient(session, "analyzeBatch accepts 1 to " + batchMaxPositions + " positions");
+            return;
+        }
+        List<String> fens = new ArrayList<>(array.size());
+        for (JsonElement element : array) {
+            fens.add(element.getAsString());
+        }
+
+        SearchLimits limits = parseLimits(msg, batchDefaultDepth);
+        String batchId = msg.has("id") ? msg.get("id").getAsString() : "batch-" + nextBatchId.getAndIncrement();
+
+        Log.debug("📦 ANALYZE BATCH command received: " + batchId + ", " + fens.size() + " positions");
+        if (listener != null) {
+            listener.onAnalyzeBatchRequest(session, batchId, fens, limits);
         }
-        return "No client connected";
     }
-    
+
     /**
-     * Disconnect current client
+     * Validate an analyzeGame message: {"type":"analyzeGame","id":"g1","pgn":"1. e4 e5 ..."}
+     * or {"type":"analyzeGame","fen":"...","moves":["e4","e5"] or "e2e4 e7e5"}, with an optional depth/movetime/nodes budget
      */
-    public void disconnectClient(String reason) {
-        if (connectedClient != null && connectedClient.isOpen()) {
-            connectedClient.close(1000, reason != null ? reason : "Server initiated disconnect");
-            connectedClient = null;
+    private void processGameRequest(ClientSession session, JsonObject msg) {
+        GameRecord game;
+        try {
+            if (msg.has("pgn")) {
+                game = GameRecord.fromPgn(msg.get("pgn").getAsString());
+            } else if (msg.has("moves")) {
+                List<String> moves = new ArrayList<>();
+                JsonElement movesElement = msg.get("moves");
+                if (movesElement.isJsonArray()) {
+                    for (JsonElement element : movesElement.getAsJsonArray()) {
+                        moves.add(element.getAsString());
+                    }
+                } else {
+                    for (String move : movesElement.getAsString().trim().split("\\s+")) {
+                        if (!move.isEmpty()) {
+                            moves.add(move);
+                        }
+                    }
+                }
+                game = GameRecord.fromMoves(msg.has("fen") ? msg.get("fen").getAsString() : null, moves);
+            } else {
+                sendErrorToClient(session, "analyzeGame requires 'pgn' or 'moves'");
+                return;
+            }
+        } catch (IllegalArgumentException e) {
+            sendErrorToClient(session, "Invalid game: " + e.getMessage());
+            return;
+        }
+        if (game.getPlyCount() > gameMaxPlies) {
+            sendErrorToClient(session, "analyzeGame accepts at most " + gameMaxPlies + " plies");
+            return;
+        }
+
+        SearchLimits limits = parseLimits(msg, gameDefaultDepth);
+        String gameId = msg.has("id") ? msg.get("id").getAsString() : "game-" + nextGameId.getAndIncrement();
+
+        Log.debug("♟️ ANALYZE GAME command received: " + gameId + ", " + game.getPlyCount() + " plies");
+        if (listener != null) {
+            listener.onAnalyzeGameRequest(session, gameId, game, limits);
         }
     }
-    
+
     /**
-     * Process incoming message from client
+     * Read the depth/movetime/nodes/maxWallTime (milliseconds) budget of a request.
+     * Without a depth, movetime or nodes limit the default depth is used, unless it is 0.
      */
-    private void processMessage(String message) {
+    private static SearchLimits parseLimits(JsonObject msg, int defaultDepth) {
+        SearchLimits limits = new SearchLimits(
+            msg.has("depth") ? msg.get("depth").getAsInt() : 0,
+            msg.has("movetime") ? msg.get("movetime").getAsLong() : 0,
+            msg.has("nodes") ? msg.get("nodes").getAsLong() : 0,
+            msg.has("maxWallTime") ? msg.get("maxWallTime").getAsLong() : 0);
+        return limits.withDefaultDepth(defaultDepth);
+    }
+
+    private void sendErrorToClient(ClientSession session, String message) {
+        Log.warn("⚠️  " + message);
+        JsonObject data = new JsonObject();
+        data.addProperty("message", message);
+        sendResponseToClient(session, "error", data);
+    }
+
+    /**
+     * Process incoming message from a session
+     */
+    private void processMessage(ClientSession session, String message) {
         try {
             JsonObject msg = JsonParser.parseString(message).getAsJsonObject();
-            System.out.println("📋 Parsed JSON message: " + msg.toString());
-            
+
             if (!msg.has("type")) {
-                System.out.println("⚠️  Message missing 'type' field, ignoring");
+                Log.warn("⚠️  Message missing 'type' field, ignoring");
                 return;
             }
-            
+
             String type = msg.get("type").getAsString();
-            System.out.println("📝 Processing message type: " + type);
-            
+            MESSAGES_RECEIVED.getOrDefault(type, MESSAGES_OTHER).inc();
+            Log.debug("📝 Processing message type: " + type + " from " + session.getId());
+
             switch (type) {
                 case "analyze":
                     if (msg.has("fen")) {
                         String fen = msg.get("fen").getAsString();
-                        System.out.println("🎯 ANALYZE command received for FEN: " + fen);
+                        SearchLimits limits = parseLimits(msg, 0);
+                        Log.debug("🎯 ANALYZE command received for FEN: " + fen + " (" + limits + ")");
                         if (listener != null) {
-                            listener.onAnalyzeRequest(fen);
+                            listener.onAnalyzeRequest(session, fen, limits);
                         }
                     } else {
-                        System.out.println("⚠️  ANALYZE message missing 'fen' field");
+                        Log.warn("⚠️  ANALYZE message missing 'fen' field");
                     }
                     break;
-                    
+
                 case "stop":
-                    System.out.println("⏹️ STOP command received");
+                    Log.debug("⏹️ STOP command received");
                     if (listener != null) {
-                        listener.onStopRequest();
+                        listener.onStopRequest(session);
                     }
                     break;
-                    
+
+                case "analyzeBatch":
+                    processBatchRequest(session, msg);
+                    break;
+
+                case "analyzeGame":
+                    processGameRequest(session, msg);
+                    break;
+
+                case "cancelGame":
+                    Log.debug("⏹️ CANCEL GAME command received");
+                    if (listener != null) {
+                        listener.onCancelGameRequest(session, msg.has("id") ? msg.get("id").getAsString() : null);
+                    }
+                    break;
+
+                case "cancelBatch":
+                    Log.debug("⏹️ CANCEL BATCH command received");
+                    if (listener != null) {
+                        listener.onCancelBatchRequest(session, msg.has("id") ? msg.get("id").getAsString() : null);
+                    }
+                    break;
+
                 default:
-                    System.out.println("⚠️  Unknown message type: " + type);
+                    Log.warn("⚠️  Unknown message type: " + type);
                     break;
             }
-            
+
         } catch (Exception e) {
-            System.err.println("❌ Failed to parse WebSocket message: " + e.getMessage());
-            e.printStackTrace();
-            
+            Log.error("❌ Failed to parse WebSocket message: " + e.getMessage(), e);
+
             if (listener != null) {
                 listener.onClientError("Failed to parse message: " + e.getMessage());
             }
         }
     }
-}
\ No newline at end of file
+}
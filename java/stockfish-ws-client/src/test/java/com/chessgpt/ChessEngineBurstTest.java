@@ -0,0 +1,103 @@
+package com.chessgpt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Burst debouncing against the fake engine: the search a burst stops must not complete the request.
+ * Plain test class run by Surefire without a test framework; test* methods fail by throwing.
+ */
+public class ChessEngineBurstTest {
+
+    private static final int DEPTH = 12;
+    private static final String POSITION_A = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1";
+    private static final String POSITION_B = "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2";
+    private static final String POSITION_C = "rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq - 0 1";
+
+    static {
+        System.setProperty("chessgpt.engine.command", FakeUciEngine.COMMAND_ALIAS);
+        System.setProperty("chessgpt.engine.poolSize", "1");
+        System.setProperty("chessgpt.store.enabled", "false");
+        System.setProperty("chessgpt.analyze.debounceMillis", "100");
+        // 20ms per depth, so a search to DEPTH outlasts the debounce
+        System.setProperty("chessgpt.fake.linesPerSecond", "50");
+        Log.setLevel(Log.Level.WARN);
+    }
+
+    private static class Completion {
+        final String sessionId;
+        final String fen;
+        final Map<String, ChessEngine.AnalysisLine> lines;
+
+        Completion(String sessionId, String fen, Map<String, ChessEngine.AnalysisLine> lines) {
+            this.sessionId = sessionId;
+            this.fen = fen;
+            this.lines = lines;
+        }
+    }
+
+    private static class Listener implements ChessEngine.ChessEngineListener {
+        final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+
+        @Override public void onEngineReady() {}
+        @Override public void onEngineError(String error) {}
+        @Override public void onAnalysisUpdate(String sessionId, String fen, Map<String, ChessEngine.AnalysisLine> lines) {}
+        @Override public void onAnalysisComplete(String sessionId, String fen, String bestMove,
+                                                 Map<String, ChessEngine.AnalysisLine> lines, boolean timedOut) {
+            completions.add(new Completion(sessionId, fen, lines));
+        }
+        @Override public void onBookMoves(String sessionId, String fen, List<OpeningBook.BookMove> moves) {}
+        @Override public void onBatchResult(String sessionId, String batchId, int index, String fen, String bestMove,
+                                            Map<String, ChessEngine.AnalysisLine> lines) {}
+        @Override public void onBatchProgress(String sessionId, String batchId, int completed, int total, int running) {}
+        @Override public void onBatchComplete(String sessionId, String batchId, int completed, int total, boolean cancelled) {}
+        @Override public void onGamePly(String sessionId, String gameId, GameAnalysis.PlyResult result, int completed, int total) {}
+        @Override public void onGameComplete(String sessionId, String gameId, GameAnalysis.Summary summary, boolean cancelled) {}
+    }
+
+    public void testSamePositionTwice() throws Exception {
+        runBurst(POSITION_A, POSITION_A);
+    }
+
+    public void testBackToFirstPosition() throws Exception {
+        runBurst(POSITION_B, POSITION_C, POSITION_B);
+    }
+
+    /**
+     * Send the positions as one burst and expect a single "done", for the last one, at the requested depth
+     */
+    private static void runBurst(String... fens) throws Exception {
+        Listener listener = new Listener();
+        ChessEngine engine = new ChessEngine(listener, null);
+        engine.start();
+        try {
+            // The first search also waits for the engine process to start
+            SearchLimits warmUp = new SearchLimits(1, 0, 0);
+            check(engine.analyze("warm-up", Board.startPosition().toFen(), warmUp), "warm-up search not started");
+            check(listener.completions.poll(30, TimeUnit.SECONDS) != null, "warm-up search did not finish");
+
+            SearchLimits limits = new SearchLimits(DEPTH, 0, 0);
+            for (String fen : fens) {
+                check(engine.analyze("burst", fen, limits), "analyze refused " + fen);
+            }
+            String last = fens[fens.length - 1];
+            Completion done = listener.completions.poll(10, TimeUnit.SECONDS);
+            check(done != null, "no done for " + last);
+            check("burst".equals(done.sessionId) && last.equals(done.fen), "done for the wrong position: " + done.fen);
+            int depth = AnalysisCache.completedDepth(done.lines);
+            check(depth >= DEPTH, "done at depth " + depth + ", the stopped search completed the request");
+            check(listener.completions.poll(500, TimeUnit.MILLISECONDS) == null, "more than one done for the burst");
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.chessgpt;
+
+import java.util.Locale;
+
+/**
+ * Score text must stay what String.format("%.2f") produced before the info parser rewrite.
+ * Plain test class run by Surefire without a test framework; test* methods fail by throwing.
+ */
+public class EngineProcessScoreTest {
+
+    public void testCentipawnsMatchStringFormat() {
+        for (int cp = -2500; cp <= 2500; cp++) {
+            for (boolean whiteToMove : new boolean[] {true, false}) {
+                double pawns = cp / 100.0;
+                String expected = String.format(Locale.ROOT, "%.2f", whiteToMove ? pawns : -pawns);
+                String actual = EngineProcess.formatScore(UciInfo.SCORE_CP, cp, whiteToMove);
+                check(expected.equals(actual), "cp " + cp + (whiteToMove ? " white" : " black")
+                    + ": " + actual + " instead of " + expected);
+            }
+        }
+    }
+
+    public void testEvenPositionKeepsSign() {
+        check(EngineProcess.formatScore(UciInfo.SCORE_CP, 0, true).equals("0.00"), "0 with White to move");
+        check(EngineProcess.formatScore(UciInfo.SCORE_CP, 0, false).equals("-0.00"), "0 with Black to move");
+        check(EngineProcess.parseScore("-0.00") == 0, "-0.00 parses to 0");
+    }
+
+    public void testMate() {
+        check(EngineProcess.formatScore(UciInfo.SCORE_MATE, 3, true).equals("#3"), "mate for White");
+        check(EngineProcess.formatScore(UciInfo.SCORE_MATE, 3, false).equals("#-3"), "mate for Black");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.chessgpt;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+/**
+ * Polyglot keys against the test positions of the book format description, and a lookup in a small book.
+ * Plain test class run by Surefire without a test framework; test* methods fail by throwing.
+ */
+public class OpeningBookTest {
+
+    // FEN and key after 1. e4 d5 2. e5 f5 3. Ke2 Kf7, then after 1. a4 b5 2. h4 b4 3. c4 bxc3 4. Ra3
+    private static final String[][] KEYS = {
+        {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "463b96181691fc9c"},
+        {"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", "823c9b50fd114196"},
+        {"rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", "0756b94461c50fb0"},
+        {"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", "662fafb965db29d4"},
+        {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", "22a48b5a8e47ff78"},
+        {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3", "652a607ca3f242c1"},
+        {"rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4", "00fdd303c946bdd9"},
+        {"rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3", "3c8123ea7b067637"},
+        {"rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4", "5c3f9b829b279560"}
+    };
+
+    public void testPolyglotKeys() {
+        for (String[] position : KEYS) {
+            long key = Board.fromFen(position[0]).polyglotKey(OpeningBook.RANDOM64);
+            check(key == Long.parseUnsignedLong(position[1], 16),
+                "key " + Long.toHexString(key) + " instead of " + position[1] + " for " + position[0]);
+        }
+    }
+
+    public void testLookup() throws Exception {
+        String fen = KEYS[0][0];
+        long key = Long.parseUnsignedLong(KEYS[0][1], 16);
+        File file = File.createTempFile("book", ".bin");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                // Polyglot moves: to file, to row, from file, from row, 3 bits each from the low end
+                writeEntry(out, key, 4 | 3 << 3 | 4 << 6 | 1 << 9, 10);
+                writeEntry(out, key, 3 | 3 << 3 | 3 << 6 | 1 << 9, 30);
+                writeEntry(out, key + 1, 4 | 3 << 3 | 4 << 6 | 1 << 9, 1);
+            }
+            OpeningBook book = OpeningBook.open(file);
+            try {
+                List<OpeningBook.BookMove> moves = book.lookup(fen);
+                check(moves != null && moves.size() == 2, "expected two book moves, got " + moves);
+                check(moves.get(0).move.equals("d2d4") && moves.get(0).san.equals("d4") && moves.get(0).weight == 30,
+                    "d4 should come first");
+                check(moves.get(1).move.equals("e2e4"), "e4 should come second");
+                check(book.lookup(KEYS[1][0]) == null, "1. e4 is not in the book");
+            } finally {
+                book.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, long key, int move, int weight) throws Exception {
+        out.writeLong(key);
+        out.writeShort(move);
+        out.writeShort(weight);
+        out.writeInt(0);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}